@@ -1,15 +1,28 @@
 package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.booking.service.BookingExporter;
+import ru.practicum.shareit.booking.service.BookingIntake;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.stream.BookingStreamHub;
+import ru.practicum.shareit.pagination.Cursor;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
 import java.util.List;
 
 @RestController
@@ -18,11 +31,17 @@ import java.util.List;
 @Validated
 public class BookingController {
     private final BookingService bookingService;
+    private final BookingExporter bookingExporter;
+    private final BookingStreamHub bookingStreamHub;
+    private final BookingIntake bookingIntake;
 
     @PostMapping
     public BookingDto addBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
                                  @Valid @RequestBody BookingDto bookingDto) {
-        return bookingService.addBooking(userId, bookingDto);
+        //В режиме очереди приёма бронь записывается пакетом вместе с другими, ответ - после записи
+        return bookingIntake.isEnabled()
+                ? bookingIntake.addBooking(userId, bookingDto)
+                : bookingService.addBooking(userId, bookingDto);
     }
 
     @GetMapping("/{bookingId}")
@@ -32,21 +51,66 @@ public class BookingController {
     }
 
     @GetMapping
-    public List<BookingDto> getBookingsByUserId(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                                @RequestParam(required = false, defaultValue = "ALL")
-                                                @Valid State state,
-                                                @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
-                                                @RequestParam(required = false, defaultValue = "10") @Positive Integer size) {
-        return bookingService.getBookingsByUserId(userId, state, from, size);
+    public ResponseEntity<List<BookingDto>> getBookingsByUserId(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                @RequestParam(required = false, defaultValue = "ALL")
+                                                                @Valid State state,
+                                                                @RequestParam(required = false, defaultValue = "0")
+                                                                @PositiveOrZero Integer from,
+                                                                @RequestParam(required = false, defaultValue = "10")
+                                                                @Positive Integer size,
+                                                                @RequestParam(required = false) String cursor) {
+        List<BookingDto> bookings = cursor == null
+                ? bookingService.getBookingsByUserId(userId, state, from, size)
+                : bookingService.getBookingsByUserIdAfter(userId, state, Cursor.decode(cursor), size);
+        return withNextCursor(bookings, size);
     }
 
     @GetMapping("/owner")
-    public List<BookingDto> getBookingsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId,
-                                                 @RequestParam(required = false, defaultValue = "ALL")
-                                                 @Valid State state,
-                                                 @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
-                                                 @RequestParam(required = false, defaultValue = "10") @Positive Integer size) {
-        return bookingService.getBookingsByOwnerId(ownerId, state, from, size);
+    public ResponseEntity<List<BookingDto>> getBookingsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                                 @RequestParam(required = false, defaultValue = "ALL")
+                                                                 @Valid State state,
+                                                                 @RequestParam(required = false, defaultValue = "0")
+                                                                 @PositiveOrZero Integer from,
+                                                                 @RequestParam(required = false, defaultValue = "10")
+                                                                 @Positive Integer size,
+                                                                 @RequestParam(required = false) String cursor) {
+        List<BookingDto> bookings = cursor == null
+                ? bookingService.getBookingsByOwnerId(ownerId, state, from, size)
+                : bookingService.getBookingsByOwnerIdAfter(ownerId, state, Cursor.decode(cursor), size);
+        return withNextCursor(bookings, size);
+    }
+
+    @GetMapping(path = "/owner/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBookingsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                              @RequestHeader(value = "Last-Event-ID", required = false)
+                                              Long lastEventId) {
+        return bookingStreamHub.subscribe(ownerId, lastEventId);
+    }
+
+    @GetMapping("/summary")
+    public BookingSummaryDto getBookingSummaryByUserId(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return bookingService.getBookingSummaryByUserId(userId);
+    }
+
+    @GetMapping("/owner/summary")
+    public BookingSummaryDto getBookingSummaryByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return bookingService.getBookingSummaryByOwnerId(ownerId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUserId(
+            @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookingExporter.exportByBookerId(userId));
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwnerId(
+            @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookingExporter.exportByItemOwnerId(ownerId));
     }
 
     @PatchMapping("/{bookingId}")
@@ -55,4 +119,23 @@ public class BookingController {
                                      @RequestParam(required = false) Boolean approved) {
         return bookingService.approveBooking(bookingId, ownerId, approved);
     }
+
+    @PatchMapping("/batch")
+    public List<BookingDecisionResultDto> approveBookings(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                          @RequestBody
+                                                          @NotEmpty(message = "Передайте хотя бы одно решение")
+                                                          @Size(max = 100, message = "За один запрос можно " +
+                                                                  "передать не больше 100 решений")
+                                                          List<@Valid BookingDecisionDto> decisions) {
+        return bookingService.approveBookings(ownerId, decisions);
+    }
+
+    private ResponseEntity<List<BookingDto>> withNextCursor(List<BookingDto> bookings, Integer size) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (bookings.size() == size) {
+            BookingDto last = bookings.get(bookings.size() - 1);
+            response.header(Cursor.HEADER, new Cursor(last.getStart(), last.getId()).encode());
+        }
+        return response.body(bookings);
+    }
 }
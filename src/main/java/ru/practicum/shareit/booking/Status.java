@@ -4,5 +4,7 @@ public enum Status {
     WAITING,
     APPROVED,
     REJECTED,
-    CANCELED
+    CANCELED,
+    //Владелец не принял решение до начала бронирования
+    EXPIRED
 }
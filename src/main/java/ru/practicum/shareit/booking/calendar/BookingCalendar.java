@@ -0,0 +1,158 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.BookingPeriod;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Календарь занятости предметов: бронирования в статусах WAITING и APPROVED, которые не должны пересекаться.
+ * Календарь предмета загружается из БД при первом обращении и дальше поддерживается при каждой записи брони.
+ * Закончившиеся интервалы периодически удаляются: новая бронь начинается в будущем и пересечься с ними не может.
+ * Календари, к которым не обращались дольше тайм-аута простоя, выгружаются и при следующем обращении
+ * загружаются заново. Тайм-аут должен быть много больше времени транзакции брони.
+ */
+@Component
+public class BookingCalendar {
+    private static final List<Status> BLOCKING_STATUSES = List.of(Status.WAITING, Status.APPROVED);
+
+    private final BookingRepository bookingRepository;
+    private final long idleMillis;
+    private final LongSupplier clock;
+    private final ConcurrentMap<Long, ItemCalendar> calendars = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BookingCalendar(BookingRepository bookingRepository,
+                           @Value("${shareit.bookings.calendar.idle-millis:1800000}") long idleMillis) {
+        this(bookingRepository, idleMillis, System::currentTimeMillis);
+    }
+
+    BookingCalendar(BookingRepository bookingRepository, long idleMillis, LongSupplier clock) {
+        this.bookingRepository = bookingRepository;
+        this.idleMillis = idleMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Занимает интервал под бронирование, если он не пересекается с другими занятыми интервалами.
+     * Если интервал был занят этим вызовом, а текущая транзакция откатится, он освобождается.
+     */
+    public boolean tryAdd(Long itemId, Long bookingId, LocalDateTime start, LocalDateTime end) {
+        long from = toMillis(start);
+        long to = toMillis(end);
+        while (true) {
+            ItemCalendar calendar = getCalendar(itemId);
+            synchronized (calendar) {
+                //Календарь выгрузили между получением и блокировкой: занимать интервал нужно в новом
+                if (calendar.isEvicted()) {
+                    continue;
+                }
+                if (calendar.overlaps(from, to, bookingId)) {
+                    return false;
+                }
+                //Бронирование уже может быть в календаре: оно ожидает подтверждения или попало в загрузку из БД
+                if (calendar.contains(bookingId, from)) {
+                    return true;
+                }
+                calendar.add(bookingId, from, to);
+            }
+            AfterTransaction.afterRollback(() -> calendar.remove(bookingId, from));
+            return true;
+        }
+    }
+
+    /**
+     * Освобождает интервал бронирования после фиксации текущей транзакции.
+     */
+    public void remove(Long itemId, Long bookingId, LocalDateTime start) {
+        ItemCalendar calendar = getCalendar(itemId);
+        AfterTransaction.afterCommit(() -> calendar.remove(bookingId, toMillis(start)));
+    }
+
+    /**
+     * Загружает календарь предмета, если он ещё не загружен. Вызывается до записи новой брони,
+     * чтобы загрузка из БД не захватила её до фиксации транзакции.
+     */
+    public void preload(Long itemId) {
+        getCalendar(itemId);
+    }
+
+    /**
+     * Перечитывает календарь предмета из БД, если он разошёлся с хранилищем.
+     */
+    public void rebuild(Long itemId) {
+        calendars.put(itemId, load(itemId));
+    }
+
+    /**
+     * Сбрасывает все календари, они будут заново загружены при следующем обращении.
+     */
+    public void rebuildAll() {
+        calendars.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.bookings.calendar.prune-millis:60000}")
+    public void prune() {
+        prune(LocalDateTime.now());
+    }
+
+    /**
+     * Удаляет интервалы, закончившиеся до now, и выгружает календари, простаивающие дольше тайм-аута.
+     */
+    public void prune(LocalDateTime now) {
+        long ended = toMillis(now);
+        long idleSince = clock.getAsLong() - idleMillis;
+        calendars.forEach((itemId, calendar) -> {
+            synchronized (calendar) {
+                if (calendar.getLastAccess() < idleSince) {
+                    calendar.evict();
+                    calendars.remove(itemId, calendar);
+                } else {
+                    calendar.removeEndedBefore(ended);
+                }
+            }
+        });
+    }
+
+    int calendarCount() {
+        return calendars.size();
+    }
+
+    //Загрузка из БД идёт вне блокировки карты: computeIfAbsent держал бы её на время запроса.
+    //Из двух одновременных загрузок остаётся первая вставленная
+    private ItemCalendar getCalendar(Long itemId) {
+        ItemCalendar calendar = calendars.get(itemId);
+        if (calendar == null) {
+            ItemCalendar loaded = load(itemId);
+            calendar = calendars.putIfAbsent(itemId, loaded);
+            if (calendar == null) {
+                calendar = loaded;
+            }
+        }
+        calendar.touch(clock.getAsLong());
+        return calendar;
+    }
+
+    private ItemCalendar load(Long itemId) {
+        ItemCalendar calendar = new ItemCalendar();
+        calendar.touch(clock.getAsLong());
+        for (BookingPeriod period : bookingRepository.findByItemIdAndStatusIn(itemId, BLOCKING_STATUSES)) {
+            calendar.add(period.getId(), toMillis(period.getStart()), toMillis(period.getEnd()));
+        }
+        return calendar;
+    }
+
+    static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
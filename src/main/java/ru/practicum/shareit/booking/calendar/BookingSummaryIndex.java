@@ -0,0 +1,181 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Счётчики бронирований по состояниям отдельно для авторов броней и для владельцев предметов.
+ * Данные пользователя загружаются при первом запросе сводки: сначала основная таблица, затем архив,
+ * так что бронь, переносимая в архив в этот момент, не теряется, а попавшая в обе выборки учитывается один раз.
+ * Дальше изменения применяются после фиксации транзакции. Изменения идемпотентны, поэтому загрузка,
+ * успевшая увидеть зафиксированную бронь, не приводит к двойному учёту.
+ * Число загруженных пользователей ограничено: сверх него вытесняются сначала устаревшие, затем любые записи.
+ * Каскадное удаление броней вместе с предметом или пользователем сбрасывает затронутые счётчики. Остальные
+ * изменения в обход приложения, например смена владельца предмета в БД, учитываются не позже чем через
+ * время жизни записи.
+ */
+@Component
+public class BookingSummaryIndex {
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final int maxUsers;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentMap<Long, Entry> byBooker = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Entry> byOwner = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BookingSummaryIndex(BookingRepository bookingRepository,
+                               ArchivedBookingRepository archivedBookingRepository,
+                               @Value("${shareit.bookings.summary.max-users:10000}") int maxUsers,
+                               @Value("${shareit.bookings.summary.ttl-millis:600000}") long ttlMillis) {
+        this(bookingRepository, archivedBookingRepository, maxUsers, ttlMillis, System::currentTimeMillis);
+    }
+
+    BookingSummaryIndex(BookingRepository bookingRepository, ArchivedBookingRepository archivedBookingRepository,
+                        int maxUsers, long ttlMillis, LongSupplier clock) {
+        this.bookingRepository = bookingRepository;
+        this.archivedBookingRepository = archivedBookingRepository;
+        this.maxUsers = maxUsers;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public BookingSummaryDto getBookerSummary(Long bookerId, LocalDateTime now) {
+        return summary(byBooker, bookerId, id -> UserBookings.of(bookingRepository.findStatusPeriodsByBookerId(id),
+                archivedBookingRepository.findStatusPeriodsByBookerId(id)), now);
+    }
+
+    public BookingSummaryDto getOwnerSummary(Long ownerId, LocalDateTime now) {
+        return summary(byOwner, ownerId, id -> UserBookings.of(bookingRepository.findStatusPeriodsByItemOwnerId(id),
+                archivedBookingRepository.findStatusPeriodsByItemOwnerId(id)), now);
+    }
+
+    /**
+     * Учитывает новое бронирование после фиксации текущей транзакции.
+     */
+    public void add(Long bookerId, Long ownerId, Long bookingId, Status status, LocalDateTime start,
+                    LocalDateTime end) {
+        long from = BookingCalendar.toMillis(start);
+        long to = BookingCalendar.toMillis(end);
+        //Незагруженные пользователи получат бронь при первой загрузке из БД. computeIfPresent ждёт
+        //загрузку, которая идёт в этот момент, и применяет изменение уже к загруженным данным
+        AfterTransaction.afterCommit(() -> {
+            apply(byBooker, bookerId, bookings -> bookings.add(bookingId, status, from, to));
+            apply(byOwner, ownerId, bookings -> bookings.add(bookingId, status, from, to));
+        });
+    }
+
+    /**
+     * Переносит бронирование между счётчиками статусов после фиксации текущей транзакции.
+     */
+    public void changeStatus(Long bookerId, Long ownerId, Long bookingId, Status from, Status to) {
+        AfterTransaction.afterCommit(() -> {
+            apply(byBooker, bookerId, bookings -> bookings.changeStatus(bookingId, from, to));
+            apply(byOwner, ownerId, bookings -> bookings.changeStatus(bookingId, from, to));
+        });
+    }
+
+    /**
+     * Сбрасывает после фиксации текущей транзакции счётчики владельца и авторов броней удаляемого предмета:
+     * его бронирования удаляются каскадом. Авторы броней читаются до удаления.
+     */
+    public void invalidateItem(Long itemId, Long ownerId) {
+        Set<Long> bookerIds = new HashSet<>(bookingRepository.findBookerIdsByItemId(itemId));
+        bookerIds.addAll(archivedBookingRepository.findBookerIdsByItemId(itemId));
+        AfterTransaction.afterCommit(() -> {
+            byOwner.remove(ownerId);
+            bookerIds.forEach(byBooker::remove);
+        });
+    }
+
+    /**
+     * Сбрасывает после фиксации текущей транзакции счётчики удаляемого пользователя и владельцев предметов,
+     * которые он бронировал: его бронирования удаляются каскадом.
+     */
+    public void invalidateUser(Long userId) {
+        Set<Long> ownerIds = new HashSet<>(bookingRepository.findOwnerIdsByBookerId(userId));
+        ownerIds.addAll(archivedBookingRepository.findOwnerIdsByBookerId(userId));
+        AfterTransaction.afterCommit(() -> {
+            byBooker.remove(userId);
+            byOwner.remove(userId);
+            ownerIds.forEach(byOwner::remove);
+        });
+    }
+
+    /**
+     * Сбрасывает все счётчики, они будут заново загружены при следующем запросе сводки.
+     */
+    public void rebuildAll() {
+        byBooker.clear();
+        byOwner.clear();
+    }
+
+    int size() {
+        return byBooker.size() + byOwner.size();
+    }
+
+    //Устаревшая запись перечитывается под блокировкой ключа: изменения, фиксируемые в этот момент, ждут загрузку
+    private BookingSummaryDto summary(ConcurrentMap<Long, Entry> index, Long userId,
+                                      Function<Long, UserBookings> loader, LocalDateTime now) {
+        long loadedAt = clock.getAsLong();
+        Entry entry = index.get(userId);
+        if (entry == null || entry.isExpired(loadedAt)) {
+            entry = index.compute(userId, (id, current) -> current != null && !current.isExpired(loadedAt)
+                    ? current
+                    : new Entry(loader.apply(id), loadedAt + ttlMillis));
+            evictIfFull(index, userId, loadedAt);
+        }
+        return entry.bookings.summary(BookingCalendar.toMillis(now));
+    }
+
+    //Сначала удаляются устаревшие записи, и только если их не хватило - любые, кроме только что загруженной
+    private void evictIfFull(ConcurrentMap<Long, Entry> index, Long loadedId, long now) {
+        if (index.size() <= maxUsers) {
+            return;
+        }
+        index.values().removeIf(entry -> entry.isExpired(now));
+        Iterator<Long> iterator = index.keySet().iterator();
+        while (index.size() > maxUsers && iterator.hasNext()) {
+            if (!iterator.next().equals(loadedId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void apply(ConcurrentMap<Long, Entry> index, Long userId, Consumer<UserBookings> change) {
+        index.computeIfPresent(userId, (id, entry) -> {
+            change.accept(entry.bookings);
+            return entry;
+        });
+    }
+
+    private static final class Entry {
+        private final UserBookings bookings;
+        private final long expiresAt;
+
+        private Entry(UserBookings bookings, long expiresAt) {
+            this.bookings = bookings;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
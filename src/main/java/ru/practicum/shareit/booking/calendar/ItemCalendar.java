@@ -0,0 +1,168 @@
+package ru.practicum.shareit.booking.calendar;
+
+import java.util.Arrays;
+
+/**
+ * Занятые интервалы [start, end) одного предмета в эпохальных миллисекундах.
+ * Интервалы хранятся в массивах, отсортированных по началу, поверх концов построено дерево максимумов,
+ * поэтому проверка пересечения выполняется за O(log n), а вставка и удаление - за O(n).
+ */
+class ItemCalendar {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY];
+    private long[] maxEnds = new long[2 * INITIAL_CAPACITY];
+    private int size;
+    //Время последнего обращения: по нему выгружаются простаивающие календари
+    private volatile long lastAccess;
+    private boolean evicted;
+
+    synchronized int size() {
+        return size;
+    }
+
+    void touch(long now) {
+        lastAccess = now;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Помечает календарь выгруженным: тот, кто успел получить на него ссылку, должен взять новый.
+     */
+    synchronized void evict() {
+        evicted = true;
+    }
+
+    synchronized boolean isEvicted() {
+        return evicted;
+    }
+
+    synchronized boolean contains(long id, long start) {
+        return indexOf(id, start) >= 0;
+    }
+
+    /**
+     * Есть ли интервал, пересекающийся с [start, end), кроме интервала бронирования exceptId.
+     */
+    synchronized boolean overlaps(long start, long end, long exceptId) {
+        int candidates = lowerBound(end);
+        int except = indexOf(exceptId, start);
+        long maxEnd;
+        if (except < 0 || except >= candidates) {
+            maxEnd = maxEnd(0, candidates);
+        } else {
+            maxEnd = Math.max(maxEnd(0, except), maxEnd(except + 1, candidates));
+        }
+        return maxEnd > start;
+    }
+
+    synchronized void add(long id, long start, long end) {
+        if (size == ids.length) {
+            grow();
+        }
+        int index = lowerBound(start);
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(starts, index, starts, index + 1, size - index);
+        System.arraycopy(ends, index, ends, index + 1, size - index);
+        ids[index] = id;
+        starts[index] = start;
+        ends[index] = end;
+        size++;
+        rebuildTree();
+    }
+
+    synchronized boolean remove(long id, long start) {
+        int index = indexOf(id, start);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(starts, index + 1, starts, index, size - index - 1);
+        System.arraycopy(ends, index + 1, ends, index, size - index - 1);
+        size--;
+        rebuildTree();
+        return true;
+    }
+
+    /**
+     * Удаляет интервалы, закончившиеся не позже time, и возвращает их число.
+     */
+    synchronized int removeEndedBefore(long time) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (ends[i] > time) {
+                ids[kept] = ids[i];
+                starts[kept] = starts[i];
+                ends[kept] = ends[i];
+                kept++;
+            }
+        }
+        int removed = size - kept;
+        if (removed > 0) {
+            size = kept;
+            rebuildTree();
+        }
+        return removed;
+    }
+
+    private int indexOf(long id, long start) {
+        for (int i = lowerBound(start); i < size && starts[i] == start; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //Индекс первого интервала с началом не раньше value
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //Максимальный конец среди интервалов с индексами [from, to)
+    private long maxEnd(int from, int to) {
+        long result = Long.MIN_VALUE;
+        int capacity = ids.length;
+        for (int left = from + capacity, right = to + capacity; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                result = Math.max(result, maxEnds[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = Math.max(result, maxEnds[--right]);
+            }
+        }
+        return result;
+    }
+
+    private void rebuildTree() {
+        int capacity = ids.length;
+        Arrays.fill(maxEnds, Long.MIN_VALUE);
+        System.arraycopy(ends, 0, maxEnds, capacity, size);
+        for (int i = capacity - 1; i > 0; i--) {
+            maxEnds[i] = Math.max(maxEnds[2 * i], maxEnds[2 * i + 1]);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        maxEnds = new long[2 * capacity];
+    }
+}
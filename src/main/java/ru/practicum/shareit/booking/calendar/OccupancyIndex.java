@@ -0,0 +1,101 @@
+package ru.practicum.shareit.booking.calendar;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.ItemBookingPeriod;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Посуточная занятость предметов подтверждёнными бронированиями: для каждого предмета битовая карта,
+ * где бит дня выставлен, если в этот день предмет хотя бы частично занят.
+ * Карты не изменяются на месте: при подтверждении брони карта предмета заменяется дополненной копией,
+ * поэтому поиск читает их без блокировок.
+ */
+@Component
+@RequiredArgsConstructor
+public class OccupancyIndex {
+    //Дни до этой даты не хранятся, они соответствуют нулевому биту
+    private static final long FIRST_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+
+    private final BookingRepository bookingRepository;
+    private final ConcurrentMap<Long, BitSet> occupiedDays = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        ConcurrentMap<Long, BitSet> loaded = new ConcurrentHashMap<>();
+        for (ItemBookingPeriod period : bookingRepository.findPeriodsByStatus(Status.APPROVED)) {
+            markDays(loaded.computeIfAbsent(period.getItemId(), itemId -> new BitSet()),
+                    period.getStart(), period.getEnd());
+        }
+        occupiedDays.keySet().retainAll(loaded.keySet());
+        loaded.forEach((itemId, days) -> occupiedDays.put(itemId, days));
+    }
+
+    /**
+     * Отмечает дни бронирования занятыми после фиксации текущей транзакции.
+     */
+    public void occupy(Long itemId, LocalDateTime start, LocalDateTime end) {
+        AfterTransaction.afterCommit(() -> occupiedDays.compute(itemId, (id, days) -> {
+            BitSet copy = days == null ? new BitSet() : (BitSet) days.clone();
+            markDays(copy, start, end);
+            return copy;
+        }));
+    }
+
+    /**
+     * Свободен ли предмет во все дни периода [start, end].
+     */
+    public boolean isFree(Long itemId, LocalDateTime start, LocalDateTime end) {
+        BitSet days = occupiedDays.get(itemId);
+        if (days == null) {
+            return true;
+        }
+        int next = days.nextSetBit(firstDay(start));
+        return next < 0 || next > lastDay(start, end);
+    }
+
+    /**
+     * Оставляет в списке только предметы, свободные во все дни периода, с сохранением порядка.
+     */
+    public List<Long> filterFree(Collection<Long> itemIds, LocalDateTime start, LocalDateTime end) {
+        return itemIds.stream()
+                .filter(itemId -> isFree(itemId, start, end))
+                .collect(Collectors.toList());
+    }
+
+    private static void markDays(BitSet days, LocalDateTime start, LocalDateTime end) {
+        days.set(firstDay(start), lastDay(start, end) + 1);
+    }
+
+    private static int firstDay(LocalDateTime start) {
+        return toIndex(start.toLocalDate());
+    }
+
+    //Конец ровно в полночь не занимает следующий день
+    private static int lastDay(LocalDateTime start, LocalDateTime end) {
+        LocalDate last = end.toLocalDate();
+        if (end.toLocalTime().equals(LocalTime.MIDNIGHT) && end.isAfter(start)) {
+            last = last.minusDays(1);
+        }
+        return Math.max(toIndex(last), firstDay(start));
+    }
+
+    private static int toIndex(LocalDate date) {
+        return (int) Math.max(date.toEpochDay() - FIRST_DAY, 0);
+    }
+}
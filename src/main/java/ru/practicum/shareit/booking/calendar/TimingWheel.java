@@ -0,0 +1,149 @@
+package ru.practicum.shareit.booking.calendar;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Иерархическое колесо таймеров для id бронирований. Нижний уровень делит время на тики по tickMillis,
+ * каждый следующий уровень покрывает в SLOTS раз больший период. Таймер кладётся на уровень по удалённости
+ * срока и перекладывается ниже, когда колесо доходит до его ячейки, поэтому постановка и срабатывание
+ * стоят O(1) на таймер. Таймеры хранятся в массивах long, без объекта на каждую бронь.
+ * Класс не потокобезопасен: синхронизацию обеспечивает вызывающий.
+ */
+public class TimingWheel {
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    //Таймер дальше горизонта кладётся на край колеса и перекладывается заново, когда до края доходит время
+    private static final long HORIZON = 1L << (BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Slot[][] levels = new Slot[LEVELS][SLOTS];
+    private final int[] levelSizes = new int[LEVELS];
+    //Таймеры, чей срок уже прошёл к моменту постановки: срабатывают при следующем advance
+    private final Slot overdue = new Slot();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    /**
+     * Ставит таймер id на момент deadlineMillis. Срок округляется вверх до тика, так что таймер не срабатывает
+     * раньше срока. Повторная постановка того же id даёт второе срабатывание.
+     */
+    public void schedule(long id, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis, tickMillis);
+        if (Math.floorMod(deadlineMillis, tickMillis) != 0) {
+            deadlineTick++;
+        }
+        if (deadlineTick <= currentTick) {
+            overdue.add(id, deadlineTick);
+        } else {
+            place(id, deadlineTick);
+        }
+        size++;
+    }
+
+    /**
+     * Продвигает колесо до nowMillis и передаёт в expired id всех таймеров, срок которых наступил.
+     */
+    public void advance(long nowMillis, LongConsumer expired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        drain(overdue, expired);
+        while (currentTick < targetTick) {
+            //Пока нижние уровни пусты, до следующего оборота непустого уровня ничего не сработает:
+            //колесо сразу переходит к этому обороту, а не проходит пустые тики по одному
+            int level = 0;
+            while (level < LEVELS && levelSizes[level] == 0) {
+                level++;
+            }
+            if (level == LEVELS) {
+                currentTick = targetTick;
+                return;
+            }
+            long span = 1L << (BITS * level);
+            long nextTick = (currentTick / span + 1) * span;
+            if (nextTick > targetTick) {
+                currentTick = targetTick;
+                return;
+            }
+            currentTick = nextTick;
+            cascade();
+            int index = (int) (currentTick & MASK);
+            Slot slot = levels[0][index];
+            if (slot != null) {
+                levels[0][index] = null;
+                levelSizes[0] -= slot.size;
+                drain(slot, expired);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(long id, long deadlineTick) {
+        long delta = Math.min(deadlineTick - currentTick, HORIZON - 1);
+        int level = 0;
+        while (delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        //Ячейка выбирается по сроку, обрезанному горизонтом, а в ячейке хранится настоящий срок
+        int index = (int) (((currentTick + delta) >>> (BITS * level)) & MASK);
+        Slot slot = levels[level][index];
+        if (slot == null) {
+            slot = new Slot();
+            levels[level][index] = slot;
+        }
+        slot.add(id, deadlineTick);
+        levelSizes[level]++;
+    }
+
+    //Когда нижний уровень проходит полный оборот, очередная ячейка уровня выше раскладывается по нижним уровням
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                return;
+            }
+            int index = (int) ((currentTick >>> (BITS * level)) & MASK);
+            Slot slot = levels[level][index];
+            if (slot != null) {
+                levels[level][index] = null;
+                levelSizes[level] -= slot.size;
+                for (int i = 0; i < slot.size; i++) {
+                    place(slot.ids[i], slot.deadlines[i]);
+                }
+            }
+        }
+    }
+
+    private void drain(Slot slot, LongConsumer expired) {
+        int count = slot.size;
+        slot.size = 0;
+        size -= count;
+        for (int i = 0; i < count; i++) {
+            expired.accept(slot.ids[i]);
+        }
+    }
+
+    private static final class Slot {
+        private long[] ids = new long[4];
+        private long[] deadlines = new long[4];
+        private int size;
+
+        private void add(long id, long deadline) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                deadlines = Arrays.copyOf(deadlines, size * 2);
+            }
+            ids[size] = id;
+            deadlines[size] = deadline;
+            size++;
+        }
+    }
+}
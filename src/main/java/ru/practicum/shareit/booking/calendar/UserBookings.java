@@ -0,0 +1,167 @@
+package ru.practicum.shareit.booking.calendar;
+
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.model.BookingStatusPeriod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Бронирования одного пользователя в сжатом виде: id с кодом статуса, отсортированные по id,
+ * и отдельно отсортированные начала и концы в эпохальных миллисекундах.
+ * Счётчики по статусам поддерживаются при каждом изменении, а число текущих, прошедших и будущих
+ * бронирований находится двоичным поиском по началам и концам за O(log n).
+ */
+class UserBookings {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] ids;
+    private byte[] statuses;
+    private long[] starts;
+    private long[] ends;
+    private int size;
+    private final int[] counts = new int[Status.values().length];
+
+    UserBookings() {
+        this(0);
+    }
+
+    private UserBookings(int capacity) {
+        int length = Math.max(capacity, INITIAL_CAPACITY);
+        ids = new long[length];
+        statuses = new byte[length];
+        starts = new long[length];
+        ends = new long[length];
+    }
+
+    /**
+     * Собирает структуру из бронирований основной таблицы и архива одной сортировкой, без вставки по одному.
+     */
+    static UserBookings of(List<BookingStatusPeriod> periods, List<BookingStatusPeriod> archived) {
+        int count = periods.size() + archived.size();
+        UserBookings bookings = new UserBookings(count);
+        List<BookingStatusPeriod> byId = new ArrayList<>(count);
+        byId.addAll(periods);
+        byId.addAll(archived);
+        byId.sort(Comparator.comparing(BookingStatusPeriod::getId));
+        int size = 0;
+        for (BookingStatusPeriod period : byId) {
+            //Бронь, перенесённая в архив между двумя выборками, встречается дважды
+            if (size > 0 && bookings.ids[size - 1] == period.getId()) {
+                continue;
+            }
+            bookings.ids[size] = period.getId();
+            bookings.statuses[size] = (byte) period.getStatus().ordinal();
+            bookings.counts[period.getStatus().ordinal()]++;
+            bookings.starts[size] = BookingCalendar.toMillis(period.getStart());
+            bookings.ends[size] = BookingCalendar.toMillis(period.getEnd());
+            size++;
+        }
+        Arrays.sort(bookings.starts, 0, size);
+        Arrays.sort(bookings.ends, 0, size);
+        bookings.size = size;
+        return bookings;
+    }
+
+    /**
+     * Добавляет бронирование, если его ещё нет: повторное добавление ничего не меняет.
+     */
+    synchronized void add(long id, Status status, long start, long end) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return;
+        }
+        if (size == ids.length) {
+            grow();
+        }
+        index = -index - 1;
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(statuses, index, statuses, index + 1, size - index);
+        ids[index] = id;
+        statuses[index] = (byte) status.ordinal();
+        insertSorted(starts, start);
+        insertSorted(ends, end);
+        counts[status.ordinal()]++;
+        size++;
+    }
+
+    /**
+     * Переводит бронирование из статуса from в to; если оно уже не в статусе from, ничего не меняет.
+     */
+    synchronized void changeStatus(long id, Status from, Status to) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0 || statuses[index] != from.ordinal()) {
+            return;
+        }
+        statuses[index] = (byte) to.ordinal();
+        counts[from.ordinal()]--;
+        counts[to.ordinal()]++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Число бронирований по каждому состоянию на момент now.
+     * Бронирование заканчивается позже, чем начинается, поэтому все закончившиеся к now уже начались,
+     * и текущие - это начавшиеся до now без закончившихся к now.
+     */
+    synchronized BookingSummaryDto summary(long now) {
+        int startedBefore = lowerBound(starts, now);
+        return BookingSummaryDto.builder()
+                .all(size)
+                .current(startedBefore - upperBound(ends, now))
+                .past(lowerBound(ends, now))
+                .future(size - upperBound(starts, now))
+                .waiting(counts[Status.WAITING.ordinal()])
+                .rejected(counts[Status.REJECTED.ordinal()])
+                .expired(counts[Status.EXPIRED.ordinal()])
+                .build();
+    }
+
+    private void insertSorted(long[] values, long value) {
+        int index = upperBound(values, value);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+    }
+
+    private int lowerBound(long[] values, long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(long[] values, long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+    }
+}
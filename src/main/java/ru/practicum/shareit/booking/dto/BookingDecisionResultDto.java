@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.practicum.shareit.booking.Status;
+
+@Data
+@Builder
+public class BookingDecisionResultDto {
+    private Long bookingId;
+    private Status status;
+    //Причина отказа, если решение по бронированию не применено
+    private String error;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BookingSummaryDto {
+    private Integer all;
+    private Integer current;
+    private Integer past;
+    private Integer future;
+    private Integer waiting;
+    private Integer rejected;
+    private Integer expired;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.journal;
+
+/**
+ * Изменения состояния брони, которые пишутся в журнал. Код типа хранится в записи одним байтом.
+ */
+public enum BookingEventType {
+    CREATED,
+    APPROVED,
+    REJECTED,
+    EXPIRED;
+
+    private static final BookingEventType[] VALUES = values();
+
+    static BookingEventType ofCode(int code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+    }
+}
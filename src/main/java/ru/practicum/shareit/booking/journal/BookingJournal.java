@@ -0,0 +1,499 @@
+package ru.practicum.shareit.booking.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений состояния броней только на дозапись. Записи фиксированного размера пишутся в отображённые
+ * в память файлы-сегменты; заполненный сегмент сбрасывается на диск, и открывается следующий. Имя сегмента -
+ * номер его первой записи. Каждая запись защищена CRC32C: при открытии хвост после первой повреждённой
+ * записи отбрасывается, чтение на ней останавливается.
+ * Запись идёт после фиксации транзакции брони, поэтому не увеличивает время транзакции и не пишется для
+ * откатившихся изменений. На горячем пути нет выделения памяти: события транзакции копятся в массиве, общем
+ * для потока, а поля пишутся по смещениям в буфер сегмента.
+ * Отображение сменённого сегмента освобождается явно, не дожидаясь сборки мусора.
+ */
+@Slf4j
+@Component
+public class BookingJournal {
+    static final int RECORD_SIZE = 72;
+    static final String SUFFIX = ".journal";
+
+    //Раскладка записи: CRC считается по байтам с TYPE до конца записи
+    private static final int CRC = 0;
+    private static final int TYPE = 4;
+    private static final int SEQUENCE = 8;
+    private static final int TIMESTAMP = 16;
+    private static final int BOOKING = 24;
+    private static final int ITEM = 32;
+    private static final int BOOKER = 40;
+    private static final int OWNER = 48;
+    private static final int START = 56;
+    private static final int END = 64;
+    //Освобождение отображения до сборки мусора; без него, например на другой JVM, отображение живёт до сборки
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Отображения сегментов журнала будут освобождаться только сборщиком мусора", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final CRC32C crc = new CRC32C();
+    private final ThreadLocal<CRC32C> writerCrc = ThreadLocal.withInitial(CRC32C::new);
+    //Выданные reserve, но ещё не дописанные записи: пока они есть, сменённые сегменты не освобождаются
+    private final AtomicInteger writing = new AtomicInteger();
+    private final ThreadLocal<PendingEvents> pending = ThreadLocal.withInitial(PendingEvents::new);
+    //Сменённые сегменты: их отображения освобождает force, который мог как раз сбрасывать такой сегмент
+    private final List<MappedByteBuffer> retired = new ArrayList<>();
+    private final Object forceLock = new Object();
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence;
+
+    public BookingJournal(@Value("${shareit.journal.dir:journal}") String directory,
+                          @Value("${shareit.journal.segment-bytes:67108864}") int segmentBytes) {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes / RECORD_SIZE * RECORD_SIZE;
+        if (this.segmentBytes == 0) {
+            throw new IllegalArgumentException("Сегмент журнала меньше одной записи: " + segmentBytes);
+        }
+        try {
+            Files.createDirectories(this.directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал бронирований в " + directory, e);
+        }
+    }
+
+    /**
+     * Пишет событие после фиксации текущей транзакции, без транзакции - сразу. Ошибка журнала не отменяет
+     * уже зафиксированное изменение и только логируется.
+     */
+    public void record(BookingEventType type, long bookingId, long itemId, long bookerId, long ownerId,
+                       LocalDateTime start, LocalDateTime end) {
+        long startMillis = toMillis(start);
+        long endMillis = toMillis(end);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            appendLogged(type, bookingId, itemId, bookerId, ownerId, startMillis, endMillis);
+            return;
+        }
+        pending.get().add(type, bookingId, itemId, bookerId, ownerId, startMillis, endMillis);
+    }
+
+    /**
+     * Выдаёт номер и место под следующую запись. Запись дописывается через write уже без блокировки журнала:
+     * пока слот пуст, чтение журнала останавливается перед ним.
+     */
+    public synchronized Reservation reserve() {
+        reserveSlot();
+        return new Reservation(segment, position - RECORD_SIZE, nextSequence - 1);
+    }
+
+    /**
+     * Заполняет выданное reserve место.
+     */
+    public void write(Reservation reservation, BookingEventType type, long bookingId, long itemId, long bookerId,
+                      long ownerId, long startMillis, long endMillis) {
+        write(reservation.buffer, reservation.offset, reservation.sequence,
+                type, bookingId, itemId, bookerId, ownerId, startMillis, endMillis);
+    }
+
+    /**
+     * Дописывает запись и возвращает её номер.
+     */
+    public long append(BookingEventType type, long bookingId, long itemId, long bookerId,
+                       long ownerId, long startMillis, long endMillis) {
+        MappedByteBuffer buffer;
+        int offset;
+        long sequence;
+        synchronized (this) {
+            reserveSlot();
+            buffer = segment;
+            offset = position - RECORD_SIZE;
+            sequence = nextSequence - 1;
+        }
+        write(buffer, offset, sequence, type, bookingId, itemId, bookerId, ownerId, startMillis, endMillis);
+        return sequence;
+    }
+
+    //Под блокировкой журнала только сдвигаются позиция и номер, сама запись идёт уже без неё
+    private void reserveSlot() {
+        if (position + RECORD_SIZE > segment.capacity()) {
+            roll();
+        }
+        position += RECORD_SIZE;
+        nextSequence++;
+        writing.incrementAndGet();
+    }
+
+    private void write(MappedByteBuffer buffer, int offset, long sequence, BookingEventType type, long bookingId,
+                       long itemId, long bookerId, long ownerId, long startMillis, long endMillis) {
+        try {
+            buffer.put(offset + TYPE, (byte) type.ordinal());
+            buffer.putLong(offset + SEQUENCE, sequence);
+            buffer.putLong(offset + TIMESTAMP, System.currentTimeMillis());
+            buffer.putLong(offset + BOOKING, bookingId);
+            buffer.putLong(offset + ITEM, itemId);
+            buffer.putLong(offset + BOOKER, bookerId);
+            buffer.putLong(offset + OWNER, ownerId);
+            buffer.putLong(offset + START, startMillis);
+            buffer.putLong(offset + END, endMillis);
+            //Контрольная сумма пишется последней: запись, оборванная на середине, не пройдёт проверку
+            buffer.putInt(offset + CRC, checksum(writerCrc.get(), buffer, offset));
+        } finally {
+            writing.decrementAndGet();
+        }
+    }
+
+    /**
+     * Передаёт обработчику записи, начиная с номера fromSequence, в порядке записи.
+     */
+    public void replay(long fromSequence, Consumer<JournalEntry> handler) {
+        replay(directory, fromSequence, handler);
+    }
+
+    /**
+     * Передаёт обработчику записи, начиная с номера fromSequence, пока он возвращает true.
+     */
+    public void replayWhile(long fromSequence, Predicate<JournalEntry> handler) {
+        replayWhile(directory, fromSequence, handler);
+    }
+
+    /**
+     * Читает журнал из каталога без открытия на запись: так его читает инструмент разбора.
+     */
+    public static void replay(Path directory, long fromSequence, Consumer<JournalEntry> handler) {
+        replayWhile(directory, fromSequence, entry -> {
+            handler.accept(entry);
+            return true;
+        });
+    }
+
+    private static void replayWhile(Path directory, long fromSequence, Predicate<JournalEntry> handler) {
+        CRC32C crc = new CRC32C();
+        JournalEntry entry = new JournalEntry();
+        try {
+            List<Path> segments = segments(directory);
+            for (int i = 0; i < segments.size(); i++) {
+                if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= fromSequence) {
+                    continue;
+                }
+                long expected = firstSequence(segments.get(i));
+                MappedByteBuffer buffer = map(segments.get(i), FileChannel.MapMode.READ_ONLY, 0);
+                try {
+                    //Записи фиксированного размера идут подряд, поэтому чтение начинается сразу с нужной
+                    long skipped = Math.min(Math.max(fromSequence - expected, 0), buffer.capacity() / RECORD_SIZE);
+                    expected += skipped;
+                    for (int offset = (int) skipped * RECORD_SIZE; offset + RECORD_SIZE <= buffer.capacity();
+                         offset += RECORD_SIZE) {
+                        if (!isValid(crc, buffer, offset, expected)) {
+                            return;
+                        }
+                        if (expected >= fromSequence) {
+                            read(buffer, offset, entry);
+                            if (!handler.test(entry)) {
+                                return;
+                            }
+                        }
+                        expected++;
+                    }
+                } finally {
+                    unmap(buffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал бронирований из " + directory, e);
+        }
+    }
+
+    //Сброс страниц на диск: без него записи переживают падение процесса, но не падение ОС
+    @Scheduled(fixedDelayString = "${shareit.journal.force-millis:1000}")
+    public void force() {
+        synchronized (forceLock) {
+            MappedByteBuffer current;
+            MappedByteBuffer[] released;
+            synchronized (this) {
+                current = segment;
+                //Новые места выдаются только под этой блокировкой, поэтому ноль здесь значит, что в сменённые
+                //сегменты уже никто не пишет
+                if (writing.get() > 0) {
+                    released = new MappedByteBuffer[0];
+                } else {
+                    released = retired.toArray(new MappedByteBuffer[0]);
+                    retired.clear();
+                }
+            }
+            for (MappedByteBuffer buffer : released) {
+                buffer.force();
+                unmap(buffer);
+            }
+            current.force();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        force();
+    }
+
+    /**
+     * Номер, который получит следующая запись.
+     */
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    //Последний сегмент дочитывается до первой неверной записи, с неё продолжается запись
+    private void recover() throws IOException {
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            nextSequence = 1;
+            segment = map(segmentPath(nextSequence), FileChannel.MapMode.READ_WRITE, segmentBytes);
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        long expected = firstSequence(last);
+        segment = map(last, FileChannel.MapMode.READ_WRITE, segmentBytes);
+        int offset = 0;
+        while (offset + RECORD_SIZE <= segment.capacity() && isValid(crc, segment, offset, expected)) {
+            offset += RECORD_SIZE;
+            expected++;
+        }
+        position = offset;
+        nextSequence = expected;
+        //Хвост после неверной записи затирается: иначе старые записи за новыми снова сошлись бы по номерам.
+        //Записи идут подряд, поэтому за первым пустым слотом данных уже нет
+        boolean truncated = false;
+        for (; offset + RECORD_SIZE <= segment.capacity() && !isEmpty(segment, offset); offset += RECORD_SIZE) {
+            for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+                segment.putLong(offset + i, 0);
+            }
+            truncated = true;
+        }
+        if (truncated) {
+            log.warn("Журнал бронирований {} повреждён после записи {}, хвост отброшен", last, expected - 1);
+        }
+    }
+
+    private static boolean isEmpty(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+            if (buffer.getLong(offset + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Старый сегмент сбрасывает на диск force: смена сегмента не должна ждать диска под блокировкой журнала
+    private void roll() {
+        MappedByteBuffer next;
+        try {
+            next = map(segmentPath(nextSequence), FileChannel.MapMode.READ_WRITE, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть новый сегмент журнала бронирований", e);
+        }
+        retired.add(segment);
+        segment = next;
+        position = 0;
+    }
+
+    private void appendLogged(BookingEventType type, long bookingId, long itemId, long bookerId, long ownerId,
+                              long startMillis, long endMillis) {
+        try {
+            append(type, bookingId, itemId, bookerId, ownerId, startMillis, endMillis);
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать в журнал событие {} брони id = {}", type, bookingId, e);
+        }
+    }
+
+    //Обращение к буферу после освобождения роняет процесс, поэтому освобождаются только буферы без других ссылок
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Не удалось освободить отображение сегмента журнала", e);
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+    }
+
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode, long minSize) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            long size = Math.max(channel.size(), minSize) / RECORD_SIZE * RECORD_SIZE;
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static boolean isValid(CRC32C crc, ByteBuffer buffer, int offset, long expectedSequence) {
+        return buffer.getLong(offset + SEQUENCE) == expectedSequence
+                && BookingEventType.ofCode(buffer.get(offset + TYPE)) != null
+                && buffer.getInt(offset + CRC) == checksum(crc, buffer, offset);
+    }
+
+    private static int checksum(CRC32C crc, ByteBuffer buffer, int offset) {
+        crc.reset();
+        buffer.limit(offset + RECORD_SIZE).position(offset + TYPE);
+        crc.update(buffer);
+        buffer.clear();
+        return (int) crc.getValue();
+    }
+
+    private static void read(ByteBuffer buffer, int offset, JournalEntry entry) {
+        entry.set(buffer.getLong(offset + SEQUENCE),
+                buffer.getLong(offset + TIMESTAMP),
+                BookingEventType.ofCode(buffer.get(offset + TYPE)),
+                buffer.getLong(offset + BOOKING),
+                buffer.getLong(offset + ITEM),
+                buffer.getLong(offset + BOOKER),
+                buffer.getLong(offset + OWNER),
+                buffer.getLong(offset + START),
+                buffer.getLong(offset + END));
+    }
+
+    //Та же шкала, что у календаря предметов: LocalDateTime без зоны считается временем UTC. Без Instant,
+    //чтобы не выделять память
+    public static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000 + dateTime.getNano() / 1_000_000;
+    }
+
+    /**
+     * Место под одну запись, выданное reserve.
+     */
+    public static final class Reservation {
+        private final MappedByteBuffer buffer;
+        private final int offset;
+        private final long sequence;
+
+        private Reservation(MappedByteBuffer buffer, int offset, long sequence) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.sequence = sequence;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+    }
+
+    /**
+     * События текущей транзакции потока. Регистрируется в транзакции один раз и пишет все её события после
+     * фиксации; массив переиспользуется следующими транзакциями потока. Приостановленная транзакция
+     * забирает объект с собой, вложенная получает новый.
+     */
+    private final class PendingEvents implements TransactionSynchronization {
+        private static final int FIELDS = 7;
+
+        private long[] events = new long[FIELDS * 8];
+        private int size;
+        private boolean registered;
+
+        private void add(BookingEventType type, long bookingId, long itemId, long bookerId, long ownerId,
+                         long startMillis, long endMillis) {
+            if (!registered) {
+                TransactionSynchronizationManager.registerSynchronization(this);
+                registered = true;
+            }
+            if (size + FIELDS > events.length) {
+                events = Arrays.copyOf(events, events.length * 2);
+            }
+            events[size++] = type.ordinal();
+            events[size++] = bookingId;
+            events[size++] = itemId;
+            events[size++] = bookerId;
+            events[size++] = ownerId;
+            events[size++] = startMillis;
+            events[size++] = endMillis;
+        }
+
+        @Override
+        public void suspend() {
+            pending.remove();
+        }
+
+        @Override
+        public void resume() {
+            pending.set(this);
+        }
+
+        @Override
+        public void afterCommit() {
+            for (int i = 0; i < size; i += FIELDS) {
+                appendLogged(BookingEventType.ofCode((int) events[i]), events[i + 1], events[i + 2],
+                        events[i + 3], events[i + 4], events[i + 5], events[i + 6]);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            size = 0;
+            registered = false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.booking.journal;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Разбор журнала бронирований без запуска приложения:
+ * {@code java -cp shareit.jar -Dloader.main=ru.practicum.shareit.booking.journal.BookingJournalTool
+ * org.springframework.boot.loader.PropertiesLauncher <каталог> [id брони]}.
+ * Без id печатает сводку по событиям, с id - историю одной брони.
+ */
+public final class BookingJournalTool {
+    private BookingJournalTool() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Использование: BookingJournalTool <каталог журнала> [id брони]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[0]);
+        BookingReadModel model = new BookingReadModel();
+        BookingJournal.replay(directory, 1, model);
+        if (args.length == 1) {
+            System.out.printf("Записей: %d, броней: %d%n", model.getLastSequence(), model.getBookings().size());
+            for (BookingEventType type : BookingEventType.values()) {
+                System.out.printf("%-8s %d%n", type, model.count(type));
+            }
+            return;
+        }
+        Long bookingId = Long.parseLong(args[1]);
+        BookingReadModel.BookingHistory history = model.get(bookingId);
+        if (history == null) {
+            System.out.println("Бронирование с id = " + bookingId + " в журнале не найдено");
+            return;
+        }
+        System.out.printf("Бронирование %d: предмет %d, владелец %d, арендатор %d, %s - %s, статус %s%n",
+                history.getBookingId(), history.getItemId(), history.getOwnerId(), history.getBookerId(),
+                history.getStart(), history.getEnd(), history.getStatus());
+        history.getEvents().forEach(event ->
+                System.out.printf("  #%d %s %s%n", event.getSequence(), event.getTimestamp(), event.getType()));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.shareit.booking.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Состояние броней, восстановленное из журнала: последний статус и история событий по каждой брони.
+ * Строится проигрыванием журнала и нужен для разборов, а не для обслуживания запросов.
+ */
+public class BookingReadModel implements Consumer<JournalEntry> {
+    private final Map<Long, BookingHistory> bookings = new HashMap<>();
+    private final Map<BookingEventType, Long> counts = new EnumMap<>(BookingEventType.class);
+    private long lastSequence;
+
+    @Override
+    public void accept(JournalEntry entry) {
+        BookingHistory history = bookings.computeIfAbsent(entry.getBookingId(), id ->
+                new BookingHistory(id, entry.getItemId(), entry.getBookerId(), entry.getOwnerId(),
+                        toDateTime(entry.getStartMillis()), toDateTime(entry.getEndMillis()), null,
+                        new ArrayList<>()));
+        history.setStatus(entry.getType());
+        history.getEvents().add(new BookingEvent(entry.getSequence(),
+                Instant.ofEpochMilli(entry.getTimestampMillis()), entry.getType()));
+        counts.merge(entry.getType(), 1L, Long::sum);
+        lastSequence = entry.getSequence();
+    }
+
+    public BookingHistory get(Long bookingId) {
+        return bookings.get(bookingId);
+    }
+
+    public Collection<BookingHistory> getBookings() {
+        return Collections.unmodifiableCollection(bookings.values());
+    }
+
+    public long count(BookingEventType type) {
+        return counts.getOrDefault(type, 0L);
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    //Та же шкала, что у журнала: LocalDateTime без зоны считается временем UTC
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class BookingHistory {
+        private Long bookingId;
+        private Long itemId;
+        private Long bookerId;
+        private Long ownerId;
+        private LocalDateTime start;
+        private LocalDateTime end;
+        private BookingEventType status;
+        private List<BookingEvent> events;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class BookingEvent {
+        private long sequence;
+        private Instant timestamp;
+        private BookingEventType type;
+    }
+}
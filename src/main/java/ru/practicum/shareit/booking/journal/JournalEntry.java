@@ -0,0 +1,33 @@
+package ru.practicum.shareit.booking.journal;
+
+import lombok.Getter;
+
+/**
+ * Запись журнала при чтении. Один экземпляр переиспользуется для всех записей прохода,
+ * поэтому обработчик не должен сохранять ссылку на него.
+ */
+@Getter
+public class JournalEntry {
+    private long sequence;
+    private long timestampMillis;
+    private BookingEventType type;
+    private long bookingId;
+    private long itemId;
+    private long bookerId;
+    private long ownerId;
+    private long startMillis;
+    private long endMillis;
+
+    void set(long sequence, long timestampMillis, BookingEventType type, long bookingId, long itemId,
+             long bookerId, long ownerId, long startMillis, long endMillis) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.type = type;
+        this.bookingId = bookingId;
+        this.itemId = itemId;
+        this.bookerId = bookerId;
+        this.ownerId = ownerId;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+}
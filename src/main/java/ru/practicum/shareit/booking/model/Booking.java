@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
@@ -25,12 +26,26 @@ public class Booking {
     private LocalDateTime start;
     @Column(name = "end_date")
     private LocalDateTime end;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "item_id")
+    @ToString.Exclude
     private Item item;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "booker_id")
+    @ToString.Exclude
     private User booker;
+    //Копия items.owner_id для выборок владельца без соединения; при смене владельца обновляется в БД каскадом
+    @Column(name = "owner_id", updatable = false)
+    private Long ownerId;
     @Enumerated(EnumType.STRING)
     private Status status;
+    @Version
+    private Long version;
+
+    @PrePersist
+    private void copyItemOwner() {
+        if (ownerId == null) {
+            ownerId = item.getOwner().getId();
+        }
+    }
 }
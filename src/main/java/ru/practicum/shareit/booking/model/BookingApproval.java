@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.practicum.shareit.booking.Status;
+
+import java.time.LocalDateTime;
+
+/**
+ * Поля брони, нужные для проверки решения владельца: кто бронирует, чей предмет и текущий статус.
+ */
+@Data
+@AllArgsConstructor
+public class BookingApproval {
+    private Long id;
+    private Long itemId;
+    private Long ownerId;
+    private Long bookerId;
+    private Status status;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Интервал бронирования без связанных сущностей. Класс, а не интерфейс-проекция:
+ * Spring Data собирает его конструктором в запросе, без прокси на каждую строку.
+ */
+@Data
+@AllArgsConstructor
+public class BookingPeriod {
+    private Long id;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.practicum.shareit.booking.Status;
+
+import java.time.LocalDateTime;
+
+/**
+ * Статус и интервал бронирования без связанных сущностей, для счётчиков по состояниям.
+ */
+@Data
+@AllArgsConstructor
+public class BookingStatusPeriod {
+    private Long id;
+    private Status status;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
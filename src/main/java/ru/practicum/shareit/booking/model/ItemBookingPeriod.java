@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class ItemBookingPeriod {
+    private Long itemId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
@@ -0,0 +1,97 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.BookingStatusPeriod;
+import ru.practicum.shareit.booking.model.BookingView;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static ru.practicum.shareit.booking.repository.BookingRepository.AFTER_CURSOR;
+
+/**
+ * Архив закончившихся бронирований любого статуса. В нём нет текущих и будущих броней, а ожидающие
+ * подтверждения к концу брони уже истекли, поэтому сюда обращаются только выборки ALL, PAST и REJECTED,
+ * проверка перед отзывом и поиск последней брони.
+ */
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"item", "booker"})
+    Optional<ArchivedBooking> findById(Long id);
+
+    String ARCHIVED_VIEWS = "select new ru.practicum.shareit.booking.model.BookingView(" +
+            "b.id, b.start, b.end, b.status, i.id, i.name, i.description, i.available, i.itemRequest.id, " +
+            "u.id, u.name, u.email) " +
+            "from ArchivedBooking b join b.item i join b.booker u ";
+
+    //Страницы по смещению склеиваются с основной таблицей в SQL, см. BookingHistoryRepository
+    @Query(ARCHIVED_VIEWS + "where b.booker.id = :userId" + AFTER_CURSOR)
+    List<BookingView> findByBookerIdAfterCursor(@Param("userId") Long bookerId,
+                                                @Param("cursorStart") LocalDateTime cursorStart,
+                                                @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(ARCHIVED_VIEWS + "where b.booker.id = :userId and b.end < :now" + AFTER_CURSOR)
+    List<BookingView> findPastByBookerIdAfterCursor(@Param("userId") Long bookerId, @Param("now") LocalDateTime now,
+                                                    @Param("cursorStart") LocalDateTime cursorStart,
+                                                    @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(ARCHIVED_VIEWS + "where b.ownerId = :userId" + AFTER_CURSOR)
+    List<BookingView> findByItemOwnerIdAfterCursor(@Param("userId") Long ownerId,
+                                                   @Param("cursorStart") LocalDateTime cursorStart,
+                                                   @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(ARCHIVED_VIEWS + "where b.ownerId = :userId and b.end < :now" + AFTER_CURSOR)
+    List<BookingView> findPastByItemOwnerIdAfterCursor(@Param("userId") Long ownerId, @Param("now") LocalDateTime now,
+                                                       @Param("cursorStart") LocalDateTime cursorStart,
+                                                       @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(ARCHIVED_VIEWS + "where b.booker.id = :userId and b.status = :status" + AFTER_CURSOR)
+    List<BookingView> findByBookerIdAndStatusAfterCursor(@Param("userId") Long bookerId, @Param("status") Status status,
+                                                         @Param("cursorStart") LocalDateTime cursorStart,
+                                                         @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(ARCHIVED_VIEWS + "where b.ownerId = :userId and b.status = :status" + AFTER_CURSOR)
+    List<BookingView> findByItemOwnerIdAndStatusAfterCursor(@Param("userId") Long ownerId,
+                                                            @Param("status") Status status,
+                                                            @Param("cursorStart") LocalDateTime cursorStart,
+                                                            @Param("cursorId") Long cursorId, Pageable pageable);
+
+    boolean existsByBookerIdAndItemIdAndEndBefore(Long bookerId, Long itemId, LocalDateTime end);
+
+    //Последняя бронь для предметов, у которых в основной таблице прошедших броней не осталось
+    @Query("select b from ArchivedBooking b " +
+            "where b.item.id in ?1 and b.status = ?2 and b.start < ?3 " +
+            "and b.end = (select max(l.end) from ArchivedBooking l " +
+            "where l.item.id = b.item.id and l.status = ?2 and l.start < ?3)")
+    List<ArchivedBooking> findLastBookingsByItemIds(Collection<Long> itemIds, Status status, LocalDateTime now);
+
+    @Query("select new ru.practicum.shareit.booking.model.BookingStatusPeriod(b.id, b.status, b.start, b.end) " +
+            "from ArchivedBooking b where b.booker.id = ?1")
+    List<BookingStatusPeriod> findStatusPeriodsByBookerId(Long bookerId);
+
+    @Query("select new ru.practicum.shareit.booking.model.BookingStatusPeriod(b.id, b.status, b.start, b.end) " +
+            "from ArchivedBooking b where b.ownerId = ?1")
+    List<BookingStatusPeriod> findStatusPeriodsByItemOwnerId(Long ownerId);
+
+    @Query("select distinct b.booker.id from ArchivedBooking b where b.item.id = ?1")
+    List<Long> findBookerIdsByItemId(Long itemId);
+
+    @Query("select distinct b.ownerId from ArchivedBooking b where b.booker.id = ?1")
+    List<Long> findOwnerIdsByBookerId(Long bookerId);
+
+    //Копирует брони из основной таблицы с теми же id; удаление из bookings - в той же транзакции
+    @Modifying
+    @Query(value = "insert into bookings_archive (id, start_date, end_date, item_id, booker_id, owner_id, status) " +
+            "select id, start_date, end_date, item_id, booker_id, owner_id, status from bookings where id in ?1",
+            nativeQuery = true)
+    int copyFromBookings(Collection<Long> ids);
+}
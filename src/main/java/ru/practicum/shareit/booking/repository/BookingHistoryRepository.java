@@ -0,0 +1,100 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.BookingView;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Страницы списков бронирований, объединяющих основную таблицу с архивом: ALL, PAST и REJECTED.
+ * Обе таблицы склеиваются через UNION ALL, сортировка и отсечение страницы идут в SQL,
+ * поэтому приложение получает только строки запрошенной страницы, а не все предшествующие ей.
+ */
+@Repository
+public class BookingHistoryRepository {
+    private static final String COLUMNS = "select b.id, b.start_date, b.end_date, b.status, " +
+            "i.id as item_id, i.name as item_name, i.description, i.available, i.request_id, " +
+            "u.id as booker_id, u.name as booker_name, u.email ";
+
+    public static final String HOT_BOOKINGS = COLUMNS + "from bookings b " +
+            "join items i on i.id = b.item_id join users u on u.id = b.booker_id ";
+
+    public static final String ARCHIVED_BOOKINGS = COLUMNS + "from bookings_archive b " +
+            "join items i on i.id = b.item_id join users u on u.id = b.booker_id ";
+
+    //Сортировка как в списках бронирований: сначала новые, при равном начале — по убыванию id
+    public static final String NEWEST_FIRST = "order by 2 desc, 1 desc";
+
+    private static final String PAGE = " limit ? offset ?";
+
+    private static final String BY_BOOKER = union("b.booker_id = ?");
+    private static final String PAST_BY_BOOKER = union("b.booker_id = ? and b.end_date < ?");
+    private static final String BY_BOOKER_AND_STATUS = union("b.booker_id = ? and b.status = ?");
+    private static final String BY_ITEM_OWNER = union("b.owner_id = ?");
+    private static final String PAST_BY_ITEM_OWNER = union("b.owner_id = ? and b.end_date < ?");
+    private static final String BY_ITEM_OWNER_AND_STATUS = union("b.owner_id = ? and b.status = ?");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookingHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<BookingView> findByBookerId(Long bookerId, int offset, int size) {
+        return jdbcTemplate.query(BY_BOOKER, (rs, rowNum) -> toView(rs), bookerId, bookerId, size, offset);
+    }
+
+    public List<BookingView> findPastByBookerId(Long bookerId, LocalDateTime now, int offset, int size) {
+        return jdbcTemplate.query(PAST_BY_BOOKER, (rs, rowNum) -> toView(rs),
+                bookerId, now, bookerId, now, size, offset);
+    }
+
+    public List<BookingView> findByBookerIdAndStatus(Long bookerId, Status status, int offset, int size) {
+        return jdbcTemplate.query(BY_BOOKER_AND_STATUS, (rs, rowNum) -> toView(rs),
+                bookerId, status.name(), bookerId, status.name(), size, offset);
+    }
+
+    public List<BookingView> findByItemOwnerId(Long ownerId, int offset, int size) {
+        return jdbcTemplate.query(BY_ITEM_OWNER, (rs, rowNum) -> toView(rs), ownerId, ownerId, size, offset);
+    }
+
+    public List<BookingView> findPastByItemOwnerId(Long ownerId, LocalDateTime now, int offset, int size) {
+        return jdbcTemplate.query(PAST_BY_ITEM_OWNER, (rs, rowNum) -> toView(rs),
+                ownerId, now, ownerId, now, size, offset);
+    }
+
+    public List<BookingView> findByItemOwnerIdAndStatus(Long ownerId, Status status, int offset, int size) {
+        return jdbcTemplate.query(BY_ITEM_OWNER_AND_STATUS, (rs, rowNum) -> toView(rs),
+                ownerId, status.name(), ownerId, status.name(), size, offset);
+    }
+
+    /**
+     * Строка выборки с колонками HOT_BOOKINGS или ARCHIVED_BOOKINGS.
+     */
+    public static BookingView toView(ResultSet rs) throws SQLException {
+        return new BookingView(
+                rs.getLong("id"),
+                rs.getObject("start_date", LocalDateTime.class),
+                rs.getObject("end_date", LocalDateTime.class),
+                Status.valueOf(rs.getString("status")),
+                rs.getLong("item_id"),
+                rs.getString("item_name"),
+                rs.getString("description"),
+                rs.getBoolean("available"),
+                rs.getObject("request_id", Long.class),
+                rs.getLong("booker_id"),
+                rs.getString("booker_name"),
+                rs.getString("email"));
+    }
+
+    //Условие с параметрами повторяется для каждой из таблиц, за ними идут размер страницы и смещение
+    private static String union(String condition) {
+        return HOT_BOOKINGS + "where " + condition + " union all " +
+                ARCHIVED_BOOKINGS + "where " + condition + " " + NEWEST_FIRST + PAGE;
+    }
+}
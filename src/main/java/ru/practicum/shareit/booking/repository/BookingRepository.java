@@ -1,47 +1,197 @@
 package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingApproval;
+import ru.practicum.shareit.booking.model.BookingPeriod;
+import ru.practicum.shareit.booking.model.BookingStatusPeriod;
+import ru.practicum.shareit.booking.model.BookingView;
+import ru.practicum.shareit.booking.model.ItemBookingPeriod;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByBookerIdOrderByStartDesc(Long bookerId, PageRequest pageRequest);
+    @Override
+    @EntityGraph(attributePaths = {"item", "booker"})
+    Optional<Booking> findById(Long id);
 
-    List<Booking> findByItemOwnerIdOrderByStartDesc(Long ownerId, PageRequest pageRequest);
+    //Списки бронирований читаются сразу в BookingView, без сущностей и снимков для dirty checking
+    String BOOKING_VIEWS = "select new ru.practicum.shareit.booking.model.BookingView(" +
+            "b.id, b.start, b.end, b.status, i.id, i.name, i.description, i.available, i.itemRequest.id, u.id, u.name, u.email) " +
+            "from Booking b join b.item i join b.booker u ";
 
-    List<Booking> findByBookerIdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime start,
-                                                              PageRequest pageRequest);
+    //Условие по внешнему ключу booker_id, а не по соединённой таблице users: так используется индекс bookings
+    String BY_BOOKER = BOOKING_VIEWS + "where b.booker.id = ?1 ";
 
-    List<Booking> findByBookerIdAndEndBeforeOrderByStartDesc(Long bookerId, LocalDateTime end, PageRequest pageRequest);
+    //Условие по копии owner_id в bookings: фильтр и сортировка идут по индексу bookings, как у бронирующего
+    String BY_ITEM_OWNER = BOOKING_VIEWS + "where b.ownerId = ?1 ";
 
-    List<Booking> findByItemOwnerIdAndStartAfterOrderByStartDesc(Long ownerId, LocalDateTime start,
-                                                                 PageRequest pageRequest);
+    //Брони по id из журнала: дочитывание потока после переподключения
+    @Query(BOOKING_VIEWS + "where b.id in ?1")
+    List<BookingView> findViewsByIdIn(Collection<Long> ids);
 
-    List<Booking> findByItemOwnerIdAndEndBeforeOrderByStartDesc(Long ownerId, LocalDateTime end,
-                                                                PageRequest pageRequest);
+    @Query(BY_BOOKER + "and b.start > ?2 order by b.start desc")
+    List<BookingView> findByBookerIdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime start,
+                                                                  PageRequest pageRequest);
 
-    List<Booking> findByItemOwnerIdAndStatusOrderByStartDesc(Long ownerId, Status status, PageRequest pageRequest);
+    @Query(BY_ITEM_OWNER + "and b.start > ?2 order by b.start desc")
+    List<BookingView> findByItemOwnerIdAndStartAfterOrderByStartDesc(Long ownerId, LocalDateTime start,
+                                                                     PageRequest pageRequest);
 
-    List<Booking> findByBookerIdAndStatusOrderByStartDesc(Long bookerId, Status status, PageRequest pageRequest);
+    @Query(BY_ITEM_OWNER + "and b.status = ?2 order by b.start desc")
+    List<BookingView> findByItemOwnerIdAndStatusOrderByStartDesc(Long ownerId, Status status, PageRequest pageRequest);
 
-    List<Booking> findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                          LocalDateTime start, LocalDateTime end,
-                                                                          PageRequest pageRequest);
+    @Query(BY_BOOKER + "and b.status = ?2 order by b.start desc")
+    List<BookingView> findByBookerIdAndStatusOrderByStartDesc(Long bookerId, Status status, PageRequest pageRequest);
 
-    List<Booking> findByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long ownerId,
-                                                                             LocalDateTime start, LocalDateTime end,
-                                                                             PageRequest pageRequest);
+    @Query(BY_BOOKER + "and b.start < ?2 and b.end > ?3 order by b.start desc")
+    List<BookingView> findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId,
+                                                                              LocalDateTime start, LocalDateTime end,
+                                                                              PageRequest pageRequest);
+
+    @Query(BY_ITEM_OWNER + "and b.start < ?2 and b.end > ?3 order by b.start desc")
+    List<BookingView> findByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long ownerId,
+                                                                                 LocalDateTime start, LocalDateTime end,
+                                                                                 PageRequest pageRequest);
+
+    //Одним запросом собирает всё, что нужно для проверки пакета решений владельца
+    @Query("select new ru.practicum.shareit.booking.model.BookingApproval(" +
+            "b.id, b.item.id, b.ownerId, b.booker.id, b.status, b.start, b.end) " +
+            "from Booking b where b.id in ?1")
+    List<BookingApproval> findApprovalsByIdIn(Collection<Long> ids);
+
+    //Переход статуса срабатывает, только если бронь всё ещё в ожидаемом статусе; возвращает число изменённых строк
+    @Modifying
+    @Query("update Booking b set b.status = ?3, b.version = b.version + 1 where b.id in ?1 and b.status = ?2")
+    int updateStatusByIdIn(Collection<Long> ids, Status expected, Status status);
+
+    //Очередная порция закончившихся броней для переноса в архив, строки блокируются до конца транзакции
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b.id from Booking b where b.end < ?1 order by b.id")
+    List<Long> findIdsEndedBefore(LocalDateTime end, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Booking b where b.id in ?1")
+    int deleteByIdIn(Collection<Long> ids);
 
     List<Booking> findByBookerIdAndItemIdAndEndBeforeOrderByEndDesc(Long bookerId, Long itemId, LocalDateTime end);
 
-    //Для поиска последней брони и следующей брони
-    Booking findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(Long itemId, Status status,
-                                                                   LocalDateTime start);
+    //Постраничная выдача по курсору (start, id): только записи после последней уже отданной
+    String AFTER_CURSOR = " and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId))" +
+            " order by b.start desc, b.id desc";
+
+    @Query(BOOKING_VIEWS + "where b.booker.id = :userId" + AFTER_CURSOR)
+    List<BookingView> findByBookerIdAfterCursor(@Param("userId") Long bookerId,
+                                                @Param("cursorStart") LocalDateTime cursorStart,
+                                                @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.booker.id = :userId and b.start < :now and b.end > :now" + AFTER_CURSOR)
+    List<BookingView> findCurrentByBookerIdAfterCursor(@Param("userId") Long bookerId, @Param("now") LocalDateTime now,
+                                                       @Param("cursorStart") LocalDateTime cursorStart,
+                                                       @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.booker.id = :userId and b.end < :now" + AFTER_CURSOR)
+    List<BookingView> findPastByBookerIdAfterCursor(@Param("userId") Long bookerId, @Param("now") LocalDateTime now,
+                                                    @Param("cursorStart") LocalDateTime cursorStart,
+                                                    @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.booker.id = :userId and b.start > :now" + AFTER_CURSOR)
+    List<BookingView> findFutureByBookerIdAfterCursor(@Param("userId") Long bookerId, @Param("now") LocalDateTime now,
+                                                      @Param("cursorStart") LocalDateTime cursorStart,
+                                                      @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.booker.id = :userId and b.status = :status" + AFTER_CURSOR)
+    List<BookingView> findByBookerIdAndStatusAfterCursor(@Param("userId") Long bookerId, @Param("status") Status status,
+                                                         @Param("cursorStart") LocalDateTime cursorStart,
+                                                         @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.ownerId = :userId" + AFTER_CURSOR)
+    List<BookingView> findByItemOwnerIdAfterCursor(@Param("userId") Long ownerId,
+                                                   @Param("cursorStart") LocalDateTime cursorStart,
+                                                   @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.ownerId = :userId and b.start < :now and b.end > :now" +
+            AFTER_CURSOR)
+    List<BookingView> findCurrentByItemOwnerIdAfterCursor(@Param("userId") Long ownerId,
+                                                          @Param("now") LocalDateTime now,
+                                                          @Param("cursorStart") LocalDateTime cursorStart,
+                                                          @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.ownerId = :userId and b.end < :now" + AFTER_CURSOR)
+    List<BookingView> findPastByItemOwnerIdAfterCursor(@Param("userId") Long ownerId, @Param("now") LocalDateTime now,
+                                                       @Param("cursorStart") LocalDateTime cursorStart,
+                                                       @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.ownerId = :userId and b.start > :now" + AFTER_CURSOR)
+    List<BookingView> findFutureByItemOwnerIdAfterCursor(@Param("userId") Long ownerId, @Param("now") LocalDateTime now,
+                                                         @Param("cursorStart") LocalDateTime cursorStart,
+                                                         @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(BOOKING_VIEWS + "where b.ownerId = :userId and b.status = :status" + AFTER_CURSOR)
+    List<BookingView> findByItemOwnerIdAndStatusAfterCursor(@Param("userId") Long ownerId,
+                                                            @Param("status") Status status,
+                                                            @Param("cursorStart") LocalDateTime cursorStart,
+                                                            @Param("cursorId") Long cursorId, Pageable pageable);
+
+    List<BookingPeriod> findByItemIdAndStatusIn(Long itemId, Collection<Status> statuses);
+
+    //Интервалы всех броней в статусе: при старте по ним заново ставятся таймеры истечения
+    List<BookingPeriod> findByStatus(Status status);
+
+    //Брони из набора, которые всё ещё в статусе и уже начались; строки блокируются до конца транзакции,
+    //чтобы параллельное решение владельца дождалось смены статуса
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b.id from Booking b where b.id in ?1 and b.status = ?2 and b.start <= ?3")
+    List<Long> findIdsStartedBefore(Collection<Long> ids, Status status, LocalDateTime now);
+
+    //Статусы и интервалы всех броней пользователя для счётчиков по состояниям
+    @Query("select new ru.practicum.shareit.booking.model.BookingStatusPeriod(b.id, b.status, b.start, b.end) " +
+            "from Booking b where b.booker.id = ?1")
+    List<BookingStatusPeriod> findStatusPeriodsByBookerId(Long bookerId);
+
+    @Query("select new ru.practicum.shareit.booking.model.BookingStatusPeriod(b.id, b.status, b.start, b.end) " +
+            "from Booking b where b.ownerId = ?1")
+    List<BookingStatusPeriod> findStatusPeriodsByItemOwnerId(Long ownerId);
+
+    //Чьи счётчики по состояниям затронет каскадное удаление броней предмета или пользователя
+    @Query("select distinct b.booker.id from Booking b where b.item.id = ?1")
+    List<Long> findBookerIdsByItemId(Long itemId);
+
+    @Query("select distinct b.ownerId from Booking b where b.booker.id = ?1")
+    List<Long> findOwnerIdsByBookerId(Long bookerId);
+
+    @Query("select new ru.practicum.shareit.booking.model.ItemBookingPeriod(b.item.id, b.start, b.end) " +
+            "from Booking b where b.status = ?1")
+    List<ItemBookingPeriod> findPeriodsByStatus(Status status);
+
+    //Бронирования предмета, пересекающиеся с [from, to), по возрастанию начала
+    List<BookingPeriod> findByItemIdAndStatusInAndStartBeforeAndEndAfterOrderByStart(Long itemId,
+                                                                                     Collection<Status> statuses,
+                                                                                     LocalDateTime to,
+                                                                                     LocalDateTime from);
+
+    //Для поиска последней и следующей брони сразу для набора предметов
+    @Query("select b from Booking b join fetch b.booker " +
+            "where b.item.id in ?1 and b.status = ?2 and b.start < ?3 " +
+            "and b.end = (select max(l.end) from Booking l " +
+            "where l.item.id = b.item.id and l.status = ?2 and l.start < ?3)")
+    List<Booking> findLastBookingsByItemIds(Collection<Long> itemIds, Status status, LocalDateTime now);
 
-    Booking findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(Long itemId, Status status,
-                                                                   LocalDateTime start);
+    @Query("select b from Booking b join fetch b.booker " +
+            "where b.item.id in ?1 and b.status = ?2 and b.start > ?3 " +
+            "and b.start = (select min(n.start) from Booking n " +
+            "where n.item.id = b.item.id and n.status = ?2 and n.start > ?3)")
+    List<Booking> findNextBookingsByItemIds(Collection<Long> itemIds, Status status, LocalDateTime now);
 }
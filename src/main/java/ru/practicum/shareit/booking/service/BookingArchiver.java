@@ -0,0 +1,67 @@
+package ru.practicum.shareit.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Переносит бронирования, закончившиеся больше заданного числа месяцев назад, из bookings в bookings_archive.
+ * Перенос идёт порциями, каждая в своей короткой транзакции, поэтому строки не блокируются надолго.
+ */
+@Component
+public class BookingArchiver {
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int archiveAfterMonths;
+    private final int batchSize;
+
+    public BookingArchiver(BookingRepository bookingRepository,
+                           ArchivedBookingRepository archivedBookingRepository,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${shareit.bookings.archive.after-months:6}") int archiveAfterMonths,
+                           @Value("${shareit.bookings.archive.batch-size:500}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.archivedBookingRepository = archivedBookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${shareit.bookings.archive.cron:0 30 3 * * *}")
+    public void archiveCompletedBookings() {
+        archive(LocalDateTime.now());
+    }
+
+    /**
+     * Переносит в архив все бронирования, закончившиеся раньше now минус заданное число месяцев.
+     * Возвращает число перенесённых бронирований.
+     */
+    public int archive(LocalDateTime now) {
+        LocalDateTime threshold = now.minusMonths(archiveAfterMonths);
+        int moved = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> moveBatch(threshold));
+            moved += batch;
+        } while (batch == batchSize);
+        return moved;
+    }
+
+    private int moveBatch(LocalDateTime threshold) {
+        List<Long> ids = bookingRepository.findIdsEndedBefore(threshold, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedBookingRepository.copyFromBookings(ids);
+        bookingRepository.deleteByIdIn(ids);
+        return ids.size();
+    }
+}
@@ -0,0 +1,150 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.calendar.AfterTransaction;
+import ru.practicum.shareit.booking.calendar.BookingCalendar;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.calendar.TimingWheel;
+import ru.practicum.shareit.booking.journal.BookingEventType;
+import ru.practicum.shareit.booking.journal.BookingJournal;
+import ru.practicum.shareit.booking.model.BookingApproval;
+import ru.practicum.shareit.booking.model.BookingPeriod;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Переводит в EXPIRED бронирования, которые дождались начала без решения владельца.
+ * Срок каждой ожидающей брони хранится в колесе таймеров в памяти, поэтому проверка раз в тик не ходит в БД,
+ * пока ни один срок не наступил. Наступившие сроки закрываются пакетными условными UPDATE.
+ * Колесо не переживает перезапуск и заново строится из ожидающих броней в БД при старте приложения.
+ */
+@Slf4j
+@Component
+public class BookingExpiryScheduler {
+    private final BookingRepository bookingRepository;
+    private final BookingCalendar bookingCalendar;
+    private final BookingSummaryIndex bookingSummaryIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingJournal bookingJournal;
+    private final long tickMillis;
+    private final int batchSize;
+    private TimingWheel wheel;
+
+    public BookingExpiryScheduler(BookingRepository bookingRepository,
+                                  BookingCalendar bookingCalendar,
+                                  BookingSummaryIndex bookingSummaryIndex,
+                                  TransactionTemplate transactionTemplate,
+                                  BookingJournal bookingJournal,
+                                  @Value("${shareit.bookings.expiry.tick-millis:1000}") long tickMillis,
+                                  @Value("${shareit.bookings.expiry.batch-size:500}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.bookingCalendar = bookingCalendar;
+        this.bookingSummaryIndex = bookingSummaryIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.bookingJournal = bookingJournal;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel(tickMillis, toMillis(LocalDateTime.now()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload(LocalDateTime.now());
+    }
+
+    /**
+     * Строит колесо заново по всем броням в статусе WAITING. Блокировка держится на время загрузки,
+     * чтобы бронь, созданная в этот момент, не попала в старое колесо мимо нового.
+     */
+    public synchronized void reload(LocalDateTime now) {
+        TimingWheel loaded = new TimingWheel(tickMillis, toMillis(now));
+        for (BookingPeriod booking : bookingRepository.findByStatus(Status.WAITING)) {
+            loaded.schedule(booking.getId(), toMillis(booking.getStart()));
+        }
+        wheel = loaded;
+        log.info("Загружено {} таймеров истечения бронирований", loaded.size());
+    }
+
+    /**
+     * Ставит таймер истечения брони на её начало после фиксации текущей транзакции.
+     * Таймер не снимается при решении владельца: условный UPDATE пропустит бронь, которая уже не WAITING.
+     */
+    public void schedule(Long bookingId, LocalDateTime start) {
+        long deadline = toMillis(start);
+        AfterTransaction.afterCommit(() -> {
+            synchronized (this) {
+                wheel.schedule(bookingId, deadline);
+            }
+        });
+    }
+
+    @Scheduled(cron = "${shareit.bookings.expiry.cron:* * * * * *}")
+    public void expireStartedBookings() {
+        expire(LocalDateTime.now());
+    }
+
+    /**
+     * Переводит в EXPIRED все ожидающие брони, начавшиеся к now. Возвращает число изменённых броней.
+     */
+    public int expire(LocalDateTime now) {
+        List<Long> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(toMillis(now), due::add);
+        }
+        int expired = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                expired += transactionTemplate.execute(status -> expireBatch(batch, now));
+            } catch (RuntimeException e) {
+                //Таймеры не теряются: порция вернётся в колесо и будет повторена на следующем тике
+                log.warn("Не удалось перевести в EXPIRED {} бронирований, повтор на следующем тике",
+                        batch.size(), e);
+                synchronized (this) {
+                    batch.forEach(id -> wheel.schedule(id, toMillis(now)));
+                }
+            }
+        }
+        return expired;
+    }
+
+    private int expireBatch(List<Long> ids, LocalDateTime now) {
+        List<Long> waiting = bookingRepository.findIdsStartedBefore(ids, Status.WAITING, now);
+        if (waiting.isEmpty()) {
+            return 0;
+        }
+        if (bookingRepository.updateStatusByIdIn(waiting, Status.WAITING, Status.EXPIRED) == 0) {
+            return 0;
+        }
+        int expired = 0;
+        for (BookingApproval booking : bookingRepository.findApprovalsByIdIn(waiting)) {
+            //Решение владельца, зафиксированное до UPDATE, оставляет бронь в своём статусе: её интервал не трогается
+            if (booking.getStatus() != Status.EXPIRED) {
+                continue;
+            }
+            expired++;
+            bookingCalendar.remove(booking.getItemId(), booking.getId(), booking.getStart());
+            bookingSummaryIndex.changeStatus(booking.getBookerId(), booking.getOwnerId(), booking.getId(),
+                    Status.WAITING, Status.EXPIRED);
+            bookingJournal.record(BookingEventType.EXPIRED, booking.getId(), booking.getItemId(),
+                    booking.getBookerId(), booking.getOwnerId(), booking.getStart(), booking.getEnd());
+        }
+        return expired;
+    }
+
+    //Та же шкала, что у календаря предметов: LocalDateTime без зоны считается временем UTC
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.shareit.booking.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static ru.practicum.shareit.booking.repository.BookingHistoryRepository.ARCHIVED_BOOKINGS;
+import static ru.practicum.shareit.booking.repository.BookingHistoryRepository.HOT_BOOKINGS;
+import static ru.practicum.shareit.booking.repository.BookingHistoryRepository.NEWEST_FIRST;
+import static ru.practicum.shareit.booking.repository.BookingHistoryRepository.toView;
+
+/**
+ * Выгрузка всей истории бронирований пользователя в формате NDJSON: по одному объекту BookingDto на строку.
+ * Строки читаются однонаправленным курсором с фиксированным fetch size и сразу пишутся в выходной поток,
+ * поэтому расход памяти не зависит от числа бронирований.
+ */
+@Component
+public class BookingExporter {
+    private static final String BY_BOOKER = HOT_BOOKINGS + "where b.booker_id = ? union all " +
+            ARCHIVED_BOOKINGS + "where b.booker_id = ? " + NEWEST_FIRST;
+
+    private static final String BY_ITEM_OWNER = HOT_BOOKINGS + "where b.owner_id = ? union all " +
+            ARCHIVED_BOOKINGS + "where b.owner_id = ? " + NEWEST_FIRST;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+
+    public BookingExporter(JdbcTemplate jdbcTemplate,
+                           UserRepository userRepository,
+                           ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${shareit.bookings.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        //PostgreSQL читает порциями по fetch size только при выключенном autocommit, то есть внутри транзакции
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Пользователь проверяется сразу, до начала ответа, чтобы на неизвестный id вернуть 404, а не оборванный поток.
+     */
+    public StreamingResponseBody exportByBookerId(Long userId) {
+        checkUserById(userId);
+        return out -> export(BY_BOOKER, userId, out);
+    }
+
+    public StreamingResponseBody exportByItemOwnerId(Long ownerId) {
+        checkUserById(ownerId);
+        return out -> export(BY_ITEM_OWNER, ownerId, out);
+    }
+
+    void export(String sql, Long userId, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            //Поток ответа закрывает контейнер сервлетов
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            //Разделитель между объектами пишется вручную: в NDJSON каждая строка, включая последнюю, кончается \n
+            generator.setRootValueSeparator(null);
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, userId);
+                statement.setLong(2, userId);
+                return statement;
+            }, (ResultSet rs) -> writeRow(generator, rs)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeRow(JsonGenerator generator, ResultSet rs) throws SQLException {
+        try {
+            generator.writeObject(BookingMapper.toBookingDto(toView(rs)));
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            //Клиент оборвал соединение: исключение прерывает чтение курсора и откатывает транзакцию
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkUserById(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("Пользователь c id = " + userId + " не найден");
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+import ru.practicum.shareit.exception.ValidationException;
+
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Очередь приёма бронирований для пиков нагрузки. Запрос проверяется так же, как в addBooking, и ждёт
+ * в ограниченной очереди; один поток записи раз в несколько миллисекунд забирает накопленное и вставляет
+ * одним пакетом JDBC в одной транзакции. Вызывающий получает созданную бронь с id через CompletableFuture,
+ * а при полной очереди - ServiceUnavailableException (503) вместо ожидания соединения из пула.
+ * Синхронный addBooking ждёт записи не дольше заданного времени и тоже отвечает 503.
+ */
+@Slf4j
+@Component
+public class BookingIntake {
+    private static final String INSERT = "insert into bookings " +
+            "(start_date, end_date, item_id, booker_id, owner_id, status, version) values (?, ?, ?, ?, ?, ?, 0)";
+
+    private final BookingServiceImpl bookingService;
+    private final BookingRepository bookingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final BlockingQueue<PendingBooking> queue;
+    private final ScheduledExecutorService writer;
+
+    //Реализация, а не интерфейс сервиса: проверка и регистрация брони - пакетные методы BookingServiceImpl
+    public BookingIntake(BookingServiceImpl bookingService,
+                         BookingRepository bookingRepository,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${shareit.bookings.intake.enabled:false}") boolean enabled,
+                         @Value("${shareit.bookings.intake.capacity:10000}") int capacity,
+                         @Value("${shareit.bookings.intake.batch-size:100}") int batchSize,
+                         @Value("${shareit.bookings.intake.flush-millis:5}") long flushMillis,
+                         @Value("${shareit.bookings.intake.timeout-millis:5000}") long timeoutMillis) {
+        this.bookingService = bookingService;
+        this.bookingRepository = bookingRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        if (enabled) {
+            writer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("booking-intake-"));
+            writer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            writer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Проверяет запрос и ставит бронь в очередь записи. Ошибки проверки бросаются сразу,
+     * занятый интервал и ошибки записи приходят через future.
+     */
+    public CompletableFuture<BookingDto> submit(Long userId, BookingDto bookingDto) {
+        return enqueue(userId, bookingDto).future;
+    }
+
+    /**
+     * Ожидает записи брони и пробрасывает исключение, с которым она не удалась. Если бронь не записана
+     * за отведённое время, бросает ServiceUnavailableException: бронь, ещё стоящая в очереди, из неё убирается.
+     */
+    public BookingDto addBooking(Long userId, BookingDto bookingDto) {
+        PendingBooking pending = enqueue(userId, bookingDto);
+        try {
+            return pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                throw new ServiceUnavailableException("Бронирование не записано за отведённое время, "
+                        + "повторите попытку позже");
+            }
+            //Поток записи уже забрал бронь: она ещё может быть создана
+            throw new ServiceUnavailableException("Бронирование не подтверждено за отведённое время, "
+                    + "проверьте список бронирований перед повтором");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.remove(pending);
+            throw new ServiceUnavailableException("Ожидание записи бронирования прервано");
+        }
+    }
+
+    /**
+     * Записывает очередь порциями, пока она не опустеет. Вызывается потоком записи.
+     */
+    public void flush() {
+        List<PendingBooking> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            //Исключение, вышедшее из задачи, молча отменило бы периодическую запись, а ожидающие - зависли бы
+            try {
+                write(batch);
+            } catch (Throwable e) {
+                log.error("Пакет из {} бронирований не записан", batch.size(), e);
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+            writer.shutdownNow();
+        }
+        List<PendingBooking> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(pending -> pending.future.completeExceptionally(
+                new ServiceUnavailableException("Приложение останавливается, повторите попытку позже")));
+    }
+
+    private PendingBooking enqueue(Long userId, BookingDto bookingDto) {
+        PendingBooking pending = new PendingBooking(bookingService.newBooking(userId, bookingDto));
+        if (!queue.offer(pending)) {
+            throw new ServiceUnavailableException("Слишком много бронирований одновременно, повторите попытку позже");
+        }
+        return pending;
+    }
+
+    private void write(List<PendingBooking> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            //Ошибка одной строки не должна ронять весь пакет: каждая бронь записывается отдельно
+            log.warn("Пакет из {} бронирований не записан, запись по одному: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> write(List.of(pending)));
+            return;
+        }
+        for (PendingBooking pending : batch) {
+            if (pending.rejected != null) {
+                pending.future.completeExceptionally(pending.rejected);
+            } else {
+                pending.future.complete(pending.created);
+            }
+        }
+    }
+
+    private void insert(List<PendingBooking> batch) {
+        long[] ids = jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"})) {
+                for (PendingBooking pending : batch) {
+                    Booking booking = pending.booking;
+                    statement.setTimestamp(1, Timestamp.valueOf(booking.getStart()));
+                    statement.setTimestamp(2, Timestamp.valueOf(booking.getEnd()));
+                    statement.setLong(3, booking.getItem().getId());
+                    statement.setLong(4, booking.getBooker().getId());
+                    statement.setLong(5, booking.getOwnerId());
+                    statement.setString(6, booking.getStatus().name());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                long[] generated = new long[batch.size()];
+                int count = 0;
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (count < generated.length && keys.next()) {
+                        generated[count++] = keys.getLong(1);
+                    }
+                }
+                //Без id каждой строки брони пакета не сопоставить с ключами: пакет откатывается целиком
+                if (count != generated.length) {
+                    throw new IncorrectResultSizeDataAccessException("Драйвер вернул " + count
+                            + " ключей на пакет из " + generated.length + " бронирований", generated.length, count);
+                }
+                return generated;
+            }
+        });
+        List<Long> conflicting = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingBooking pending = batch.get(i);
+            pending.booking.setId(ids[i]);
+            pending.booking.setVersion(0L);
+            pending.created = null;
+            pending.rejected = null;
+            try {
+                pending.created = bookingService.registerNewBooking(pending.booking);
+            } catch (ValidationException e) {
+                //Интервал занят другой бронью, в том числе из этого же пакета
+                pending.rejected = e;
+                conflicting.add(ids[i]);
+            }
+        }
+        if (!conflicting.isEmpty()) {
+            bookingRepository.deleteByIdIn(conflicting);
+        }
+    }
+
+    private static final class PendingBooking {
+        private final Booking booking;
+        private final CompletableFuture<BookingDto> future = new CompletableFuture<>();
+        private BookingDto created;
+        private ValidationException rejected;
+
+        private PendingBooking(Booking booking) {
+            this.booking = booking;
+        }
+    }
+}
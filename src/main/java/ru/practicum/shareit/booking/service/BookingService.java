@@ -1,7 +1,11 @@
 package ru.practicum.shareit.booking.service;
 
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.pagination.Cursor;
 
 import java.util.List;
 
@@ -14,5 +18,15 @@ public interface BookingService {
 
     List<BookingDto> getBookingsByOwnerId(Long ownerId, State state, Integer from, Integer size);
 
+    List<BookingDto> getBookingsByUserIdAfter(Long userId, State state, Cursor cursor, Integer size);
+
+    List<BookingDto> getBookingsByOwnerIdAfter(Long ownerId, State state, Cursor cursor, Integer size);
+
+    BookingSummaryDto getBookingSummaryByUserId(Long userId);
+
+    BookingSummaryDto getBookingSummaryByOwnerId(Long ownerId);
+
     BookingDto approveBooking(Long bookingId, Long ownerId, Boolean approved);
+
+    List<BookingDecisionResultDto> approveBookings(Long ownerId, List<BookingDecisionDto> decisions);
 }
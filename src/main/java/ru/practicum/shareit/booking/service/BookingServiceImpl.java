@@ -2,37 +2,83 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.calendar.BookingCalendar;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.calendar.OccupancyIndex;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.journal.BookingEventType;
+import ru.practicum.shareit.booking.journal.BookingJournal;
+import ru.practicum.shareit.booking.model.BookingApproval;
+import ru.practicum.shareit.booking.model.BookingView;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingHistoryRepository;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.stream.BookingStreamHub;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.NotImplementedException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class BookingServiceImpl implements BookingService {
+    private static final Comparator<BookingView> NEWEST_FIRST = Comparator.comparing(BookingView::getStart)
+            .thenComparing(BookingView::getId)
+            .reversed();
 
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final BookingCalendar bookingCalendar;
+    private final OccupancyIndex occupancyIndex;
+    private final BookingSummaryIndex bookingSummaryIndex;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final BookingHistoryRepository bookingHistoryRepository;
+    private final BookingExpiryScheduler bookingExpiryScheduler;
+    private final BookingStreamHub bookingStreamHub;
+    private final BookingJournal bookingJournal;
 
     @Transactional
     @Override
     public BookingDto addBooking(Long userId, BookingDto bookingDto) {
+        Booking booking = bookingRepository.save(newBooking(userId, bookingDto));
+        return registerNewBooking(booking);
+    }
+
+    /**
+     * Проверяет запрос на бронирование и собирает ещё не сохранённую бронь в статусе WAITING.
+     * Общая проверка для addBooking и очереди приёма бронирований.
+     */
+    Booking newBooking(Long userId, BookingDto bookingDto) {
         User user = checkUserById(userId);
         Item item = checkItemId(bookingDto.getItemId());
         if (userId.equals(item.getOwner().getId())) {
@@ -42,33 +88,59 @@ public class BookingServiceImpl implements BookingService {
         if (!item.getAvailable()) {
             throw new ValidationException("Предмет не доступен для бронирвоания");
         }
+        //Календарь загружается до записи брони: иначе в него попала бы ещё не зафиксированная бронь
+        bookingCalendar.preload(item.getId());
         Booking booking = BookingMapper.toBooking(bookingDto);
         booking.setItem(item);
         booking.setBooker(user);
+        booking.setOwnerId(item.getOwner().getId());
         booking.setStatus(Status.WAITING);
-        return BookingMapper.toBookingDto(bookingRepository.save(booking));
+        return booking;
+    }
+
+    /**
+     * Занимает интервал сохранённой брони в календаре и обновляет индексы после фиксации транзакции.
+     * Если интервал уже занят, бросает ValidationException, а бронь должна быть удалена вызывающим.
+     */
+    BookingDto registerNewBooking(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        if (!bookingCalendar.tryAdd(itemId, booking.getId(), booking.getStart(), booking.getEnd())) {
+            throw new ValidationException("Предмет с id = " + itemId + " уже забронирован на эти даты");
+        }
+        bookingSummaryIndex.add(booking.getBooker().getId(), booking.getOwnerId(), booking.getId(),
+                booking.getStatus(), booking.getStart(), booking.getEnd());
+        bookingExpiryScheduler.schedule(booking.getId(), booking.getStart());
+        BookingDto created = BookingMapper.toBookingDto(booking);
+        //Запись о создании в журнал пишет поток бронирований: её номер служит id события
+        bookingStreamHub.publish(booking.getOwnerId(), created);
+        return created;
     }
 
     @Transactional(readOnly = true)
     @Override
     public BookingDto getBookingById(Long userId, Long bookingId) {
         checkUserById(userId);
-        Booking booking = checkBookingById(bookingId);
-        if (!booking.getBooker().getId().equals(userId) && !booking.getItem().getOwner().getId().equals(userId)) {
-            throw new NotFoundException("Пользователь id = " + userId +
-                    " не имеет прав на предмет с id = " + bookingId);
+        Optional<Booking> booking = bookingRepository.findById(bookingId);
+        if (booking.isPresent()) {
+            checkBookingAccess(userId, bookingId, booking.get().getBooker().getId(),
+                    booking.get().getItem().getOwner().getId());
+            return BookingMapper.toBookingDto(booking.get());
         }
-        return BookingMapper.toBookingDto(booking);
+        ArchivedBooking archived = archivedBookingRepository.findById(bookingId).orElseThrow(() ->
+                new NotFoundException("Бронирование с id = " + bookingId + " не найдена"));
+        checkBookingAccess(userId, bookingId, archived.getBooker().getId(), archived.getItem().getOwner().getId());
+        return BookingMapper.toBookingDto(archived);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<BookingDto> getBookingsByUserId(Long userId, State state, Integer from, Integer size) {
         User user = checkUserById(userId);
-        PageRequest pageRequest = PageRequest.of(from / size, size);
+        PageRequest pageRequest = PageRequest.of(from / size, size, Sort.by(Sort.Direction.DESC, "id"));
+        int offset = from / size * size;
         switch (state) {
             case ALL:
-                return bookingRepository.findByBookerIdOrderByStartDesc(userId, pageRequest).stream()
+                return bookingHistoryRepository.findByBookerId(userId, offset, size).stream()
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case CURRENT:
@@ -77,8 +149,8 @@ public class BookingServiceImpl implements BookingService {
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case PAST:
-                return bookingRepository.findByBookerIdAndEndBeforeOrderByStartDesc(userId,
-                                LocalDateTime.now(), pageRequest).stream()
+                return bookingHistoryRepository.findPastByBookerId(userId, LocalDateTime.now(), offset, size)
+                        .stream()
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case FUTURE:
@@ -92,8 +164,8 @@ public class BookingServiceImpl implements BookingService {
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case REJECTED:
-                return bookingRepository.findByBookerIdAndStatusOrderByStartDesc(userId,
-                                Status.REJECTED, pageRequest).stream()
+                return bookingHistoryRepository.findByBookerIdAndStatus(userId, Status.REJECTED, offset, size)
+                        .stream()
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             default:
@@ -105,10 +177,11 @@ public class BookingServiceImpl implements BookingService {
     @Transactional(readOnly = true)
     public List<BookingDto> getBookingsByOwnerId(Long ownerId, State state, Integer from, Integer size) {
         User owner = checkUserById(ownerId);
-        PageRequest pageRequest = PageRequest.of(from / size, size);
+        PageRequest pageRequest = PageRequest.of(from / size, size, Sort.by(Sort.Direction.DESC, "id"));
+        int offset = from / size * size;
         switch (state) {
             case ALL:
-                return bookingRepository.findByItemOwnerIdOrderByStartDesc(ownerId, pageRequest).stream()
+                return bookingHistoryRepository.findByItemOwnerId(ownerId, offset, size).stream()
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case CURRENT:
@@ -117,8 +190,8 @@ public class BookingServiceImpl implements BookingService {
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case PAST:
-                return bookingRepository.findByItemOwnerIdAndEndBeforeOrderByStartDesc(ownerId,
-                                LocalDateTime.now(), pageRequest).stream()
+                return bookingHistoryRepository.findPastByItemOwnerId(ownerId, LocalDateTime.now(), offset, size)
+                        .stream()
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case FUTURE:
@@ -132,8 +205,8 @@ public class BookingServiceImpl implements BookingService {
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             case REJECTED:
-                return bookingRepository.findByItemOwnerIdAndStatusOrderByStartDesc(ownerId,
-                                Status.REJECTED, pageRequest).stream()
+                return bookingHistoryRepository.findByItemOwnerIdAndStatus(ownerId, Status.REJECTED, offset, size)
+                        .stream()
                         .map(BookingMapper::toBookingDto)
                         .collect(Collectors.toList());
             default:
@@ -141,27 +214,240 @@ public class BookingServiceImpl implements BookingService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingDto> getBookingsByUserIdAfter(Long userId, State state, Cursor cursor, Integer size) {
+        User user = checkUserById(userId);
+        checkCursor(cursor);
+        PageRequest pageRequest = PageRequest.of(0, size);
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingView> bookings;
+        switch (state) {
+            case ALL:
+                return mergeWithArchive(bookingRepository.findByBookerIdAfterCursor(userId, cursor.getStart(),
+                                cursor.getId(), pageRequest),
+                        archivedBookingRepository.findByBookerIdAfterCursor(userId, cursor.getStart(),
+                                cursor.getId(), pageRequest), size);
+            case CURRENT:
+                bookings = bookingRepository.findCurrentByBookerIdAfterCursor(userId, now, cursor.getStart(),
+                        cursor.getId(), pageRequest);
+                break;
+            case PAST:
+                return mergeWithArchive(bookingRepository.findPastByBookerIdAfterCursor(userId, now,
+                                cursor.getStart(), cursor.getId(), pageRequest),
+                        archivedBookingRepository.findPastByBookerIdAfterCursor(userId, now, cursor.getStart(),
+                                cursor.getId(), pageRequest), size);
+            case FUTURE:
+                bookings = bookingRepository.findFutureByBookerIdAfterCursor(userId, now, cursor.getStart(),
+                        cursor.getId(), pageRequest);
+                break;
+            case WAITING:
+                bookings = bookingRepository.findByBookerIdAndStatusAfterCursor(userId, Status.WAITING,
+                        cursor.getStart(), cursor.getId(), pageRequest);
+                break;
+            case REJECTED:
+                return mergeWithArchive(bookingRepository.findByBookerIdAndStatusAfterCursor(userId, Status.REJECTED,
+                                cursor.getStart(), cursor.getId(), pageRequest),
+                        archivedBookingRepository.findByBookerIdAndStatusAfterCursor(userId, Status.REJECTED,
+                                cursor.getStart(), cursor.getId(), pageRequest), size);
+            default:
+                throw new NotImplementedException("Неизвестное значение параметра state = " + state);
+        }
+        return bookings.stream()
+                .map(BookingMapper::toBookingDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingDto> getBookingsByOwnerIdAfter(Long ownerId, State state, Cursor cursor, Integer size) {
+        User owner = checkUserById(ownerId);
+        checkCursor(cursor);
+        PageRequest pageRequest = PageRequest.of(0, size);
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingView> bookings;
+        switch (state) {
+            case ALL:
+                return mergeWithArchive(bookingRepository.findByItemOwnerIdAfterCursor(ownerId, cursor.getStart(),
+                                cursor.getId(), pageRequest),
+                        archivedBookingRepository.findByItemOwnerIdAfterCursor(ownerId, cursor.getStart(),
+                                cursor.getId(), pageRequest), size);
+            case CURRENT:
+                bookings = bookingRepository.findCurrentByItemOwnerIdAfterCursor(ownerId, now, cursor.getStart(),
+                        cursor.getId(), pageRequest);
+                break;
+            case PAST:
+                return mergeWithArchive(bookingRepository.findPastByItemOwnerIdAfterCursor(ownerId, now,
+                                cursor.getStart(), cursor.getId(), pageRequest),
+                        archivedBookingRepository.findPastByItemOwnerIdAfterCursor(ownerId, now, cursor.getStart(),
+                                cursor.getId(), pageRequest), size);
+            case FUTURE:
+                bookings = bookingRepository.findFutureByItemOwnerIdAfterCursor(ownerId, now, cursor.getStart(),
+                        cursor.getId(), pageRequest);
+                break;
+            case WAITING:
+                bookings = bookingRepository.findByItemOwnerIdAndStatusAfterCursor(ownerId, Status.WAITING,
+                        cursor.getStart(), cursor.getId(), pageRequest);
+                break;
+            case REJECTED:
+                return mergeWithArchive(bookingRepository.findByItemOwnerIdAndStatusAfterCursor(ownerId, Status.REJECTED,
+                                cursor.getStart(), cursor.getId(), pageRequest),
+                        archivedBookingRepository.findByItemOwnerIdAndStatusAfterCursor(ownerId, Status.REJECTED,
+                                cursor.getStart(), cursor.getId(), pageRequest), size);
+            default:
+                throw new NotImplementedException("Неизвестное значение параметра state = " + state);
+        }
+        return bookings.stream()
+                .map(BookingMapper::toBookingDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookingSummaryDto getBookingSummaryByUserId(Long userId) {
+        checkUserById(userId);
+        return bookingSummaryIndex.getBookerSummary(userId, LocalDateTime.now());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookingSummaryDto getBookingSummaryByOwnerId(Long ownerId) {
+        checkUserById(ownerId);
+        return bookingSummaryIndex.getOwnerSummary(ownerId, LocalDateTime.now());
+    }
+
     @Transactional
     @Override
     public BookingDto approveBooking(Long bookingId, Long ownerId, Boolean approved) {
         checkUserById(ownerId);
         Booking booking = checkBookingById(bookingId);
-        if (booking.getBooker().getId().equals(ownerId)) {
+        checkApproval(bookingId, ownerId, booking.getBooker().getId(), booking.getItem().getOwner().getId(),
+                booking.getStatus());
+        Status status = applyDecision(booking.getItem().getId(), bookingId, booking.getStart(), booking.getEnd(),
+                approved);
+        //Сущность не меняется: статус переводится условным UPDATE, чтобы параллельное решение не затёрлось
+        if (bookingRepository.updateStatusByIdIn(List.of(bookingId), booking.getStatus(), status) == 0) {
+            throw new ConflictException("Статус бронирования с id = " + bookingId +
+                    " уже изменён другим запросом");
+        }
+        bookingSummaryIndex.changeStatus(booking.getBooker().getId(), ownerId, bookingId, booking.getStatus(),
+                status);
+        bookingJournal.record(toEventType(status), bookingId, booking.getItem().getId(),
+                booking.getBooker().getId(), ownerId, booking.getStart(), booking.getEnd());
+        BookingDto bookingDto = BookingMapper.toBookingDto(booking);
+        bookingDto.setStatus(status);
+        return bookingDto;
+    }
+
+    @Transactional
+    @Override
+    public List<BookingDecisionResultDto> approveBookings(Long ownerId, List<BookingDecisionDto> decisions) {
+        checkUserById(ownerId);
+        if (decisions.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> ids = decisions.stream()
+                .map(BookingDecisionDto::getBookingId)
+                .collect(Collectors.toSet());
+        Map<Long, BookingApproval> approvals = bookingRepository.findApprovalsByIdIn(ids).stream()
+                .collect(Collectors.toMap(BookingApproval::getId, Function.identity()));
+        Set<Long> decided = new HashSet<>();
+        Map<Status, Map<Status, List<Long>>> idsByTransition = new EnumMap<>(Status.class);
+        List<BookingDecisionResultDto> results = new ArrayList<>(decisions.size());
+        for (BookingDecisionDto decision : decisions) {
+            Long bookingId = decision.getBookingId();
+            try {
+                if (!decided.add(bookingId)) {
+                    throw new ValidationException("Решение по бронированию с id = " + bookingId +
+                            " уже передано в этом запросе");
+                }
+                BookingApproval approval = approvals.get(bookingId);
+                if (approval == null) {
+                    throw new NotFoundException("Бронирование с id = " + bookingId + " не найдена");
+                }
+                checkApproval(bookingId, ownerId, approval.getBookerId(), approval.getOwnerId(),
+                        approval.getStatus());
+                Status status = applyDecision(approval.getItemId(), bookingId, approval.getStart(),
+                        approval.getEnd(), decision.getApproved());
+                idsByTransition.computeIfAbsent(approval.getStatus(), s -> new EnumMap<>(Status.class))
+                        .computeIfAbsent(status, s -> new ArrayList<>())
+                        .add(bookingId);
+                bookingSummaryIndex.changeStatus(approval.getBookerId(), ownerId, bookingId, approval.getStatus(),
+                        status);
+                bookingJournal.record(toEventType(status), bookingId, approval.getItemId(), approval.getBookerId(),
+                        ownerId, approval.getStart(), approval.getEnd());
+                results.add(BookingDecisionResultDto.builder().bookingId(bookingId).status(status).build());
+            } catch (NotFoundException | ValidationException e) {
+                results.add(BookingDecisionResultDto.builder().bookingId(bookingId).error(e.getMessage()).build());
+            }
+        }
+        //Один условный UPDATE на каждый переход статуса вместо save по каждой брони
+        idsByTransition.forEach((expected, byStatus) -> byStatus.forEach((status, statusIds) -> {
+            if (bookingRepository.updateStatusByIdIn(statusIds, expected, status) != statusIds.size()) {
+                throw new ConflictException("Часть бронирований пакета уже изменена другим запросом, " +
+                        "повторите пакет");
+            }
+        }));
+        return results;
+    }
+
+    //Правила, по которым владелец может подтвердить или отклонить бронирование
+    private void checkApproval(Long bookingId, Long ownerId, Long bookerId, Long itemOwnerId, Status status) {
+        if (bookerId.equals(ownerId)) {
             throw new NotFoundException("Нельзя изменить статус своей заявки");
         }
-        if (!booking.getItem().getOwner().getId().equals(ownerId)) {
+        if (!itemOwnerId.equals(ownerId)) {
             throw new ValidationException("Ошибка доступа. Только владелец может вносить изменения");
         }
-
-        if (booking.getStatus().equals(Status.APPROVED)) {
+        if (status.equals(Status.APPROVED)) {
             throw new ValidationException("Бронирование с id = " + bookingId + " уже подтверждено");
         }
+        if (status.equals(Status.EXPIRED)) {
+            throw new ValidationException("Бронирование с id = " + bookingId +
+                    " просрочено: владелец не принял решение до его начала");
+        }
+    }
+
+    //Обновляет календарь и индекс занятости предмета и возвращает новый статус брони
+    private Status applyDecision(Long itemId, Long bookingId, LocalDateTime start, LocalDateTime end,
+                                 Boolean approved) {
         if (approved) {
-            booking.setStatus(Status.APPROVED);
-        } else {
-            booking.setStatus(Status.REJECTED);
+            if (!bookingCalendar.tryAdd(itemId, bookingId, start, end)) {
+                throw new ValidationException("Бронирование с id = " + bookingId +
+                        " пересекается с другим бронированием предмета");
+            }
+            occupancyIndex.occupy(itemId, start, end);
+            return Status.APPROVED;
+        }
+        bookingCalendar.remove(itemId, bookingId, start);
+        return Status.REJECTED;
+    }
+
+    private static BookingEventType toEventType(Status status) {
+        return status == Status.APPROVED ? BookingEventType.APPROVED : BookingEventType.REJECTED;
+    }
+
+    //Завершённые брони старше порога лежат в архиве: курсорные ALL, PAST и REJECTED сливают по странице
+    //из каждой таблицы по убыванию начала. Страницы по смещению склеивает в SQL BookingHistoryRepository
+    private List<BookingDto> mergeWithArchive(List<BookingView> bookings, List<BookingView> archived, int size) {
+        return Stream.concat(bookings.stream(), archived.stream())
+                .sorted(NEWEST_FIRST)
+                .limit(size)
+                .map(BookingMapper::toBookingDto)
+                .collect(Collectors.toList());
+    }
+
+    private void checkBookingAccess(Long userId, Long bookingId, Long bookerId, Long ownerId) {
+        if (!bookerId.equals(userId) && !ownerId.equals(userId)) {
+            throw new NotFoundException("Пользователь id = " + userId +
+                    " не имеет прав на предмет с id = " + bookingId);
+        }
+    }
+
+    private void checkCursor(Cursor cursor) {
+        if (cursor.getStart() == null || cursor.getId() == null) {
+            throw new ValidationException("Курсор бронирований должен содержать дату начала и id");
         }
-        return BookingMapper.toBookingDto(bookingRepository.save(booking));
     }
 
     private User checkUserById(Long userId) {
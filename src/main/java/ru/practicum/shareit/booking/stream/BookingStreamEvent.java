@@ -0,0 +1,33 @@
+package ru.practicum.shareit.booking.stream;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import ru.practicum.shareit.booking.dto.BookingDto;
+
+/**
+ * Событие потока. id события - номер записи журнала: для брони - записи о её создании,
+ * для служебных событий - последней записи, до которой подписчик получил всё.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+class BookingStreamEvent {
+    long sequence;
+    //null у служебных событий
+    BookingDto booking;
+    boolean reset;
+
+    static BookingStreamEvent booking(long sequence, BookingDto booking) {
+        return new BookingStreamEvent(sequence, booking, false);
+    }
+
+    //Только сдвигает Last-Event-ID простаивающего подписчика
+    static BookingStreamEvent heartbeat(long sequence) {
+        return new BookingStreamEvent(sequence, null, false);
+    }
+
+    //Пропущенное уже не дочитать из журнала: клиент должен заново загрузить список броней
+    static BookingStreamEvent reset(long sequence) {
+        return new BookingStreamEvent(sequence, null, true);
+    }
+}
@@ -0,0 +1,209 @@
+package ru.practicum.shareit.booking.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.calendar.AfterTransaction;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.journal.BookingEventType;
+import ru.practicum.shareit.booking.journal.BookingJournal;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.BookingView;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Подписки владельцев на новые бронирования их предметов через server-sent events.
+ * После фиксации брони событие о её создании дописывается в журнал бронирований, и номер записи становится
+ * id события. Номера идут в порядке фиксации, а не выдачи id броней, поэтому после переподключения
+ * с Last-Event-ID дочитываются из журнала все брони, зафиксированные позже, в том числе с меньшим id.
+ * Дочитывание ограничено окном последних записей журнала: клиенту с более старым Last-Event-ID приходит
+ * событие reset, после которого он заново загружает список броней. Heartbeat несёт номер последней записи,
+ * поэтому id простаивающего подписчика не отстаёт от журнала и не выпадает из окна.
+ * Запись брони только кладёт событие в ограниченную очередь каждого подписчика, а отправкой занимается
+ * отдельный пул потоков: медленный клиент не задерживает создание броней. Подписчик, чья очередь
+ * переполнилась, отключается и при переподключении дочитывает пропущенное из журнала.
+ */
+@Slf4j
+@Component
+public class BookingStreamHub {
+    static final String EVENT_NAME = "booking";
+    static final String RESET_EVENT_NAME = "reset";
+
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final BookingJournal bookingJournal;
+    private final int bufferSize;
+    private final long replayWindow;
+    private final long timeoutMillis;
+    private final ExecutorService sender;
+    private final ConcurrentMap<Long, Set<BookingSubscriber>> subscribers = new ConcurrentHashMap<>();
+    //Выдача номера в журнале и рассылка идут под одной блокировкой: подписчик получает события в порядке номеров
+    private final Object publishLock = new Object();
+
+    public BookingStreamHub(BookingRepository bookingRepository,
+                            UserRepository userRepository,
+                            BookingJournal bookingJournal,
+                            @Value("${shareit.bookings.stream.buffer-size:100}") int bufferSize,
+                            @Value("${shareit.bookings.stream.replay-window:100000}") long replayWindow,
+                            @Value("${shareit.bookings.stream.timeout-millis:1800000}") long timeoutMillis,
+                            @Value("${shareit.bookings.stream.sender-threads:4}") int senderThreads) {
+        this.bookingRepository = bookingRepository;
+        this.userRepository = userRepository;
+        this.bookingJournal = bookingJournal;
+        this.bufferSize = bufferSize;
+        this.replayWindow = replayWindow;
+        this.timeoutMillis = timeoutMillis;
+        this.sender = Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("booking-stream-"));
+    }
+
+    /**
+     * Подписывает владельца на новые брони. Если передан lastEventId, сначала отправляются брони, созданные
+     * в журнале после этой записи, но не больше размера буфера: при большем отставании поток закрывается
+     * после отправки, и клиент дочитывает остальное следующим переподключением. Если lastEventId старше
+     * окна дочитывания или не из этого журнала, вместо броней отправляется событие reset.
+     */
+    public SseEmitter subscribe(Long ownerId, Long lastEventId) {
+        if (!userRepository.existsById(ownerId)) {
+            throw new NotFoundException("Пользователь c id = " + ownerId + " не найден");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        BookingSubscriber subscriber = new BookingSubscriber(emitter, bufferSize, sender);
+        emitter.onCompletion(() -> unsubscribe(ownerId, subscriber));
+        emitter.onTimeout(() -> unsubscribe(ownerId, subscriber));
+        emitter.onError(e -> unsubscribe(ownerId, subscriber));
+        //Подписка регистрируется до чтения журнала, чтобы не потерять бронь, созданную между ними
+        subscribers.compute(ownerId, (id, owners) -> {
+            Set<BookingSubscriber> result = owners == null ? ConcurrentHashMap.newKeySet() : owners;
+            result.add(subscriber);
+            return result;
+        });
+        try {
+            if (lastEventId == null) {
+                subscriber.replay(new BookingStreamEvent[0], Long.MIN_VALUE, false);
+            } else {
+                replay(ownerId, lastEventId, subscriber);
+            }
+        } catch (RuntimeException e) {
+            unsubscribe(ownerId, subscriber);
+            throw e;
+        }
+        return emitter;
+    }
+
+    /**
+     * После фиксации текущей транзакции пишет в журнал создание брони и рассылает её подписчикам владельца.
+     * Ошибка журнала не отменяет зафиксированную бронь и только логируется, событие при этом не рассылается:
+     * без номера записи клиент не смог бы дочитать поток после него.
+     */
+    public void publish(Long ownerId, BookingDto booking) {
+        AfterTransaction.afterCommit(() -> {
+            long itemId = booking.getItem().getId();
+            long bookerId = booking.getBooker().getId();
+            long startMillis = BookingJournal.toMillis(booking.getStart());
+            long endMillis = BookingJournal.toMillis(booking.getEnd());
+            BookingJournal.Reservation reservation;
+            //Под блокировкой только выдаётся номер и событие встаёт в очереди: запись в журнал, которая может
+            //сменить сегмент, идёт уже без неё
+            synchronized (publishLock) {
+                try {
+                    reservation = bookingJournal.reserve();
+                } catch (RuntimeException e) {
+                    log.error("Не удалось записать в журнал создание брони id = {}", booking.getId(), e);
+                    return;
+                }
+                Set<BookingSubscriber> owners = subscribers.get(ownerId);
+                if (owners != null) {
+                    BookingStreamEvent event = BookingStreamEvent.booking(reservation.getSequence(), booking);
+                    for (BookingSubscriber subscriber : owners) {
+                        if (!subscriber.offer(event)) {
+                            log.info("Подписчик владельца id = {} не успевает читать поток бронирований "
+                                    + "и отключён", ownerId);
+                        }
+                    }
+                }
+            }
+            bookingJournal.write(reservation, BookingEventType.CREATED, booking.getId(), itemId, bookerId, ownerId,
+                    startMillis, endMillis);
+        });
+    }
+
+    //Комментарий раз в интервал не даёт прокси закрыть простаивающее соединение и выявляет отключившихся клиентов
+    @Scheduled(fixedRateString = "${shareit.bookings.stream.heartbeat-millis:15000}")
+    public void heartbeat() {
+        //Под блокировкой рассылки все брони с номером до последней записи уже стоят в очередях подписчиков
+        synchronized (publishLock) {
+            long sequence = bookingJournal.nextSequence() - 1;
+            subscribers.values().forEach(owners -> owners.forEach(subscriber -> subscriber.heartbeat(sequence)));
+        }
+    }
+
+    int subscriberCount(Long ownerId) {
+        Set<BookingSubscriber> owners = subscribers.get(ownerId);
+        return owners == null ? 0 : owners.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(owners -> owners.forEach(BookingSubscriber::complete));
+        sender.shutdownNow();
+    }
+
+    //Брони, удалённые после создания, пропускаются, но их записи считаются просмотренными
+    private void replay(Long ownerId, long lastEventId, BookingSubscriber subscriber) {
+        long last = bookingJournal.nextSequence() - 1;
+        if (lastEventId < last - replayWindow || lastEventId > last) {
+            subscriber.replay(new BookingStreamEvent[]{BookingStreamEvent.reset(last)}, last, false);
+            return;
+        }
+        List<Long> sequences = new ArrayList<>();
+        List<Long> bookingIds = new ArrayList<>();
+        long[] upTo = {lastEventId};
+        bookingJournal.replayWhile(lastEventId + 1, entry -> {
+            upTo[0] = entry.getSequence();
+            if (entry.getType() == BookingEventType.CREATED && entry.getOwnerId() == ownerId) {
+                sequences.add(entry.getSequence());
+                bookingIds.add(entry.getBookingId());
+            }
+            return bookingIds.size() < bufferSize;
+        });
+        Map<Long, BookingView> views = bookingIds.isEmpty() ? Map.of()
+                : bookingRepository.findViewsByIdIn(bookingIds).stream()
+                .collect(Collectors.toMap(BookingView::getId, Function.identity()));
+        List<BookingStreamEvent> missed = new ArrayList<>(bookingIds.size());
+        for (int i = 0; i < bookingIds.size(); i++) {
+            BookingView view = views.get(bookingIds.get(i));
+            if (view != null) {
+                missed.add(BookingStreamEvent.booking(sequences.get(i), BookingMapper.toBookingDto(view)));
+            }
+        }
+        //Чтение останавливается на записи, номер которой уже выдан, но которая ещё не дописана. Такие брони
+        //разосланы до подписки, поэтому поток закрывается и клиент дочитывает их переподключением
+        boolean more = bookingIds.size() == bufferSize || upTo[0] < last;
+        subscriber.replay(missed.toArray(BookingStreamEvent[]::new), upTo[0], more);
+    }
+
+    private void unsubscribe(Long ownerId, BookingSubscriber subscriber) {
+        subscriber.close();
+        subscribers.computeIfPresent(ownerId, (id, owners) -> {
+            owners.remove(subscriber);
+            return owners.isEmpty() ? null : owners;
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.shareit.booking.stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Один SSE-подписчик: очередь событий, ограниченная размером буфера, и не больше одной задачи отправки в пуле.
+ * Блокировка держится только на время работы с очередью, запись в сокет идёт без неё,
+ * поэтому постановка события не ждёт медленного клиента.
+ */
+class BookingSubscriber {
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final Executor sender;
+    private final Deque<BookingStreamEvent> queue = new ArrayDeque<>();
+    //Номер последней записи журнала, просмотренной при переподключении: живые события до него пропускаются
+    private long replayedUpTo = Long.MIN_VALUE;
+    private boolean replaying = true;
+    private boolean draining;
+    private boolean completeWhenDrained;
+    private boolean closed;
+
+    BookingSubscriber(SseEmitter emitter, int capacity, Executor sender) {
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.sender = sender;
+    }
+
+    /**
+     * Ставит бронь в очередь. Если очередь полна, подписчик отправляет уже накопленное и отключается,
+     * а остальное клиент дочитает из журнала по Last-Event-ID. Возвращает false, если подписчик отключается.
+     */
+    synchronized boolean offer(BookingStreamEvent event) {
+        if (closed || completeWhenDrained) {
+            return !closed;
+        }
+        if (event.getSequence() <= replayedUpTo) {
+            return true;
+        }
+        if (queue.size() >= capacity) {
+            completeWhenDrained = true;
+            scheduleDrain();
+            return false;
+        }
+        queue.add(event);
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * Ставит событие только с id, если очередь пуста: все брони подписчика с номером до sequence уже отправлены,
+     * и Last-Event-ID клиента сдвигается к концу журнала. До окончания дочитывания не ставится.
+     */
+    synchronized void heartbeat(long sequence) {
+        if (!closed && !completeWhenDrained && !replaying && queue.isEmpty()) {
+            queue.add(BookingStreamEvent.heartbeat(sequence));
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Ставит пропущенные брони перед живыми событиями, пришедшими за время чтения журнала.
+     * upTo - номер последней просмотренной записи журнала: живые события с номером не больше уже отправлены
+     * при дочитывании. Если пропущенных больше, чем помещается в буфер, живые события отбрасываются:
+     * иначе Last-Event-ID клиента перескочил бы через недочитанные брони.
+     */
+    synchronized void replay(BookingStreamEvent[] missed, long upTo, boolean more) {
+        Deque<BookingStreamEvent> live = new ArrayDeque<>(queue);
+        queue.clear();
+        for (BookingStreamEvent event : missed) {
+            queue.add(event);
+        }
+        if (more) {
+            completeWhenDrained = true;
+        } else {
+            for (BookingStreamEvent event : live) {
+                if (event.getSequence() > upTo) {
+                    queue.add(event);
+                }
+            }
+        }
+        replayedUpTo = upTo;
+        replaying = false;
+        scheduleDrain();
+    }
+
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    void complete() {
+        close();
+        emitter.complete();
+    }
+
+    private void scheduleDrain() {
+        if (draining || replaying || closed) {
+            return;
+        }
+        draining = true;
+        try {
+            sender.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining = false;
+            close();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            BookingStreamEvent event;
+            synchronized (this) {
+                event = queue.poll();
+                if (event == null || closed) {
+                    draining = false;
+                    if (completeWhenDrained && !closed) {
+                        closed = true;
+                        emitter.complete();
+                    }
+                    return;
+                }
+            }
+            try {
+                emitter.send(toEvent(event));
+            } catch (IOException | IllegalStateException e) {
+                //Клиент отключился: контейнер сам завершит запрос и вызовет onError/onCompletion
+                synchronized (this) {
+                    draining = false;
+                    close();
+                }
+                return;
+            }
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder toEvent(BookingStreamEvent event) {
+        SseEmitter.SseEventBuilder builder = SseEmitter.event().id(String.valueOf(event.getSequence()));
+        if (event.isReset()) {
+            return builder.name(BookingStreamHub.RESET_EVENT_NAME).data(event.getSequence());
+        }
+        if (event.getBooking() == null) {
+            //Событие без данных клиент не получает, но id из него запоминает
+            return builder.comment("heartbeat");
+        }
+        return builder.name(BookingStreamHub.EVENT_NAME)
+                .data(event.getBooking(), MediaType.APPLICATION_JSON);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheStats {
+    private long hits;
+    private long misses;
+    //Вытеснены по времени жизни или размеру
+    private long evictions;
+    //Сброшены из-за изменения данных
+    private long invalidations;
+    private int size;
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Кэш с ограниченным временем жизни значений. Одновременные промахи по одному ключу вычисляют значение
+ * один раз, остальные запросы ждут того же вычисления: всплеск одинаковых запросов даёт одно обращение к БД.
+ * Время жизни отсчитывается от окончания вычисления, ошибки не кэшируются.
+ * Значения, вычисляемые в момент сброса, тоже сбрасываются: результат получит только запросивший его поток.
+ */
+public class TtlCache<K, V> {
+    private final long ttlMillis;
+    private final int maxSize;
+    private final LongSupplier clock;
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public TtlCache(long ttlMillis, int maxSize) {
+        this(ttlMillis, maxSize, System::currentTimeMillis);
+    }
+
+    TtlCache(long ttlMillis, int maxSize, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        while (true) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired(clock.getAsLong())) {
+                hits.increment();
+                return entry.join();
+            }
+            Entry<V> loading = new Entry<>();
+            boolean won = entry == null
+                    ? entries.putIfAbsent(key, loading) == null
+                    : entries.replace(key, entry, loading);
+            if (!won) {
+                //Значение уже вычисляет другой поток
+                continue;
+            }
+            misses.increment();
+            if (entry != null) {
+                evictions.increment();
+            }
+            evictIfFull();
+            try {
+                V value = loader.apply(key);
+                loading.complete(value, clock.getAsLong() + ttlMillis);
+                return value;
+            } catch (RuntimeException | Error e) {
+                entries.remove(key, loading);
+                loading.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Сбрасывает значения ключей, подходящих под условие.
+     */
+    public void invalidateIf(Predicate<? super K> condition) {
+        Iterator<K> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (condition.test(iterator.next())) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void clear() {
+        invalidateIf(key -> true);
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size());
+    }
+
+    //Сначала удаляются устаревшие значения, и только если их не хватило - любые готовые
+    private void evictIfFull() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Iterator<Entry<V>> expired = entries.values().iterator();
+        while (expired.hasNext()) {
+            if (expired.next().isExpired(now)) {
+                expired.remove();
+                evictions.increment();
+            }
+        }
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            if (iterator.next().getValue().future.isDone()) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        //Пока значение вычисляется, запись не устаревает
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+
+        private void complete(V value, long expiresAt) {
+            this.expiresAt = expiresAt;
+            future.complete(value);
+        }
+
+        private V join() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
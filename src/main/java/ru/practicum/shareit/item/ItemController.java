@@ -1,14 +1,24 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.cache.CacheStats;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.service.ItemSearchCache;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemStatsCache;
+import ru.practicum.shareit.pagination.Cursor;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -16,6 +26,8 @@ import java.util.List;
 @RequestMapping("/items")
 public class ItemController {
     private final ItemService itemService;
+    private final ItemStatsCache itemStatsCache;
+    private final ItemSearchCache itemSearchCache;
 
     @PostMapping
     public ItemDto addItem(@RequestHeader("X-Sharer-User-Id") Long userId, @Valid @RequestBody ItemDto itemDto) {
@@ -34,17 +46,72 @@ public class ItemController {
     }
 
     @GetMapping
-    public List<ItemDto> getItemsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                           @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-                                           @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return itemService.getItemsByOwnerId(userId, from, size);
+    public ResponseEntity<List<ItemDto>> getItemsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                           @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
+                                                           @RequestParam(defaultValue = "10") @Positive Integer size,
+                                                           @RequestParam(required = false) String cursor) {
+        List<ItemDto> items = cursor == null
+                ? itemService.getItemsByOwnerId(userId, from, size)
+                : itemService.getItemsByOwnerIdAfter(userId, Cursor.decode(cursor), size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (items.size() == size) {
+            ItemDto last = items.get(items.size() - 1);
+            LocalDateTime nextStart = last.getNextBooking() == null ? null : last.getNextBooking().getStart();
+            response.header(Cursor.HEADER, new Cursor(nextStart, last.getId()).encode());
+        }
+        return response.body(items);
     }
 
     @GetMapping("/search")
     public List<ItemDto> getItemsByTextOfQuery(@RequestParam String text,
                                                @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-                                               @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return itemService.getItemsByTextOfQuery(text, from, size);
+                                               @RequestParam(defaultValue = "10") @Positive Integer size,
+                                               @RequestParam(required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                               @RequestParam(required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                               @RequestParam(defaultValue = "false") Boolean fuzzy) {
+        //Нечёткий поиск с опечатками - только без периода свободы предмета
+        if (start == null && end == null) {
+            return fuzzy
+                    ? itemService.getItemsByFuzzyTextOfQuery(text, from, size)
+                    : itemService.getItemsByTextOfQuery(text, from, size);
+        }
+        return itemService.getFreeItemsByTextOfQuery(text, start, end, from, size);
+    }
+
+    @GetMapping("/search/stats")
+    public CacheStats getSearchCacheStats() {
+        return itemSearchCache.getStats();
+    }
+
+    @GetMapping("/suggest")
+    public List<ItemSuggestionDto> getSuggestions(@RequestParam String prefix,
+                                                  @RequestParam(defaultValue = "10") @Positive Integer limit) {
+        return itemService.getSuggestions(prefix, limit);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public List<FreeIntervalDto> getFreeIntervals(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                  @PathVariable Long itemId,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                  LocalDateTime from,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                  LocalDateTime to) {
+        return itemService.getFreeIntervals(userId, itemId, from, to);
+    }
+
+    //По умолчанию отдаётся результат не старше времени жизни кэша, cached=false считает заново
+    @GetMapping("/owner/stats")
+    public List<ItemStatsDto> getItemStats(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                           LocalDateTime from,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                           LocalDateTime to,
+                                           @RequestParam(defaultValue = "true") Boolean cached) {
+        return cached
+                ? itemStatsCache.getItemStats(userId, from, to)
+                : itemService.getItemStats(userId, from, to);
     }
 
     @PatchMapping("/{itemId}")
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ItemStatsDto {
+    private Long itemId;
+    private String name;
+    private Long bookings;
+    private Long approved;
+    private Long rejected;
+    private Double bookedDays;
+    //Доля периода, занятая подтверждёнными бронями, в процентах
+    private Double occupancy;
+    //Доля подтверждённых среди решённых владельцем, null если решений не было
+    private Double approvalRate;
+}
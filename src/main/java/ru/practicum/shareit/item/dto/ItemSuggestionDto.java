@@ -0,0 +1,12 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ItemSuggestionDto {
+    private String text;
+    //Сколько доступных предметов со словом в названии
+    private Integer items;
+}
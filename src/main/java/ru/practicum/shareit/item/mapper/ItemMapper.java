@@ -1,6 +1,8 @@
 package ru.practicum.shareit.item.mapper;
 
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+import ru.practicum.shareit.item.model.ItemBookingStats;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
@@ -24,4 +26,22 @@ public class ItemMapper {
                 .owner(user)
                 .build();
     }
+
+    public static ItemStatsDto toItemStatsDto(ItemBookingStats stats, long periodSeconds) {
+        long decided = stats.getApproved() + stats.getRejected();
+        return ItemStatsDto.builder()
+                .itemId(stats.getId())
+                .name(stats.getName())
+                .bookings(stats.getBookings())
+                .approved(stats.getApproved())
+                .rejected(stats.getRejected())
+                .bookedDays(round(stats.getBookedSeconds() / 86_400))
+                .occupancy(round(stats.getBookedSeconds() * 100 / periodSeconds))
+                .approvalRate(decided == 0 ? null : round((double) stats.getApproved() / decided))
+                .build();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
 }
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.model;
+
+/**
+ * Агрегаты бронирований одного предмета за период. Интерфейс-проекция, потому что нативный запрос
+ * не умеет собирать класс конструктором; строк столько же, сколько предметов у владельца.
+ */
+public interface ItemBookingStats {
+    Long getId();
+
+    String getName();
+
+    Long getBookings();
+
+    Long getApproved();
+
+    Long getRejected();
+
+    //Секунды подтверждённых броней, попавшие в период
+    Double getBookedSeconds();
+}
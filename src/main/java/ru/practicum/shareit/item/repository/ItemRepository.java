@@ -3,19 +3,79 @@ package ru.practicum.shareit.item.repository;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingStats;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
+    //Предметы владельца упорядочены по началу следующей подтверждённой брони, без брони - в конце.
+    //Предметы с будущей бронью выбираются от будущих броней владельца по индексу bookings (owner_id, status,
+    //start_date), поэтому сортируются только они, а не все предметы владельца
+    String ITEMS_WITH_NEXT_START = "select i.*, n.next_start from items i join " +
+            "(select b.item_id, min(b.start_date) as next_start from bookings b " +
+            "where b.owner_id = ?1 and b.status = 'APPROVED' and b.start_date > ?2 group by b.item_id) n " +
+            "on n.item_id = i.id ";
+    String ORDER_BY_NEXT_START = "order by n.next_start, i.id ";
 
-    List<Item> getItemsByOwnerId(Long userId, Pageable pageable);
+    //Предметы без будущей брони идут по индексу items (owner_id, id), и чтение останавливается на размере страницы
+    String ITEMS_WITHOUT_NEXT_START = "select i.* from items i where i.owner_id = ?1 and not exists " +
+            "(select 1 from bookings b where b.item_id = i.id and b.status = 'APPROVED' and b.start_date > ?2) ";
 
-    @Query(" select i from Item i " +
-            "where upper(i.name) like upper(concat('%', ?1, '%')) " +
-            " or upper(i.description) like upper(concat('%', ?1, '%'))" +
-            " and i.available = true")
+    @Query(value = ITEMS_WITH_NEXT_START + ORDER_BY_NEXT_START + "limit ?3 offset ?4", nativeQuery = true)
+    List<Item> getItemsWithNextBookingByOwnerId(Long userId, LocalDateTime now, int limit, long offset);
+
+    @Query(value = ITEMS_WITH_NEXT_START +
+            "where n.next_start > ?3 or (n.next_start = ?3 and i.id > ?4) " +
+            ORDER_BY_NEXT_START + "limit ?5", nativeQuery = true)
+    List<Item> getItemsWithNextBookingByOwnerIdAfter(Long userId, LocalDateTime now, LocalDateTime nextStart,
+                                                     Long itemId, int limit);
+
+    @Query(value = "select count(distinct b.item_id) from bookings b " +
+            "where b.owner_id = ?1 and b.status = 'APPROVED' and b.start_date > ?2", nativeQuery = true)
+    long countItemsWithNextBookingByOwnerId(Long userId, LocalDateTime now);
+
+    @Query(value = ITEMS_WITHOUT_NEXT_START + "and i.id > ?3 order by i.id limit ?4 offset ?5", nativeQuery = true)
+    List<Item> getItemsWithoutNextBookingByOwnerIdAfter(Long userId, LocalDateTime now, Long itemId, int limit,
+                                                        long offset);
+
+    //Запасной путь поиска, пока не построен индекс поиска предметов
+    @Query("select i from Item i " +
+            "where i.available = true " +
+            "and (upper(i.name) like upper(concat('%', ?1, '%')) " +
+            "or upper(i.description) like upper(concat('%', ?1, '%'))) " +
+            "order by i.id")
     List<Item> getItemsByTextOfQuery(String textOfQuery, Pageable pageable);
 
+    //Порция id после afterId: поиск свободных предметов читает их, пока не наберёт страницу
+    @Query("select i.id from Item i " +
+            "where i.available = true and i.id > ?2 " +
+            "and (upper(i.name) like upper(concat('%', ?1, '%')) " +
+            "or upper(i.description) like upper(concat('%', ?1, '%'))) " +
+            "order by i.id")
+    List<Long> getAvailableItemIdsByTextOfQuery(String textOfQuery, long afterId, Pageable pageable);
+
+    //Связь с запросом необязательна, поэтому условие по внешнему ключу без соединения с requests
+    @Query("select i from Item i where i.itemRequest.id = ?1")
     List<Item> getItemsByItemRequestId(Long requestId);
+
+    //Все агрегаты одним проходом: брони из основной таблицы и архива, пересекающие период, группируются по предмету
+    @Query(value = "select i.id as id, i.name as name, count(b.id) as bookings, " +
+            "coalesce(sum(case when b.status = 'APPROVED' then 1 else 0 end), 0) as approved, " +
+            "coalesce(sum(case when b.status = 'REJECTED' then 1 else 0 end), 0) as rejected, " +
+            "coalesce(sum(case when b.status = 'APPROVED' then " +
+            "extract(epoch from least(b.end_date, :to)) - extract(epoch from greatest(b.start_date, :from)) " +
+            "else 0 end), 0) as bookedSeconds " +
+            "from items i " +
+            "left join (select id, item_id, status, start_date, end_date from bookings " +
+            "union all select id, item_id, status, start_date, end_date from bookings_archive) b " +
+            "on b.item_id = i.id and b.start_date < :to and b.end_date > :from " +
+            "where i.owner_id = :ownerId " +
+            "group by i.id, i.name " +
+            "order by i.id", nativeQuery = true)
+    List<ItemBookingStats> getItemStatsByOwnerId(@Param("ownerId") Long ownerId,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to);
 }
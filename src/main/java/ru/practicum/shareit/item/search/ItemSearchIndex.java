@@ -0,0 +1,538 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.calendar.AfterTransaction;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Обратный индекс названия и описания предметов: для каждого слова и каждой триграммы отсортированный массив
+ * id предметов. Поиск подстроки пересекает списки всех триграмм запроса, начиная с самого короткого, и
+ * останавливается, набрав нужное число; списки слов служат нечёткому поиску. Доступность предметов хранится
+ * отдельной битовой картой, чтобы её смена не трогала списки.
+ * Индекс строится из БД при старте и дальше обновляется записями ItemServiceImpl после фиксации транзакции.
+ */
+@Slf4j
+@Component
+public class ItemSearchIndex {
+    //Порядок id: списки растут добавлением в конец, а не вставкой в середину
+    private static final String ALL_ITEMS = "select id, name, description, available from items order by id";
+    //Сколько ближайших слов словаря берётся на одно слово запроса
+    private static final int MAX_FUZZY_TERMS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> wordPostings = new HashMap<>();
+    private final Map<Long, PostingList> trigramPostings = new HashMap<>();
+    //Словарь для нечёткого поиска: все слова, когда-либо бывшие в индексе, живые определяет wordPostings
+    private TermTrie dictionary = new TermTrie();
+    //Подсказки по словам названий доступных предметов
+    private SuggestTrie suggestions = new SuggestTrie();
+    private final BitSet available = new BitSet();
+    //Предметы, изменённые во время перестроения: их строки из читаемого снимка уже устарели
+    private Set<Integer> changedWhileLoading;
+    private volatile boolean ready;
+    //Встретился id больше Integer.MAX_VALUE: индекс неполон, и поиск навсегда уходит в обход него
+    private volatile boolean overflowed;
+
+    public ItemSearchIndex(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${shareit.items.search.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        //PostgreSQL читает порциями по fetch size только при выключенном autocommit, то есть внутри транзакции
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            wordPostings.clear();
+            trigramPostings.clear();
+            dictionary = new TermTrie();
+            suggestions = new SuggestTrie();
+            available.clear();
+            changedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ALL_ITEMS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (ResultSet rs) -> {
+            long id = rs.getLong("id");
+            if (fits(id)) {
+                load((int) id, rs.getString("name"), rs.getString("description"), rs.getBoolean("available"));
+            }
+        }));
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = null;
+            ready = true;
+            log.info("Индекс поиска предметов построен: {} слов, {} триграмм", wordPostings.size(),
+                    trigramPostings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Пока индекс строится или если в нём нет места под id предмета, поиск должен идти в обход него.
+     */
+    public boolean isReady() {
+        return ready && !overflowed;
+    }
+
+    public void add(Item item) {
+        if (!fits(item.getId())) {
+            return;
+        }
+        int id = (int) (long) item.getId();
+        ItemTerms terms = ItemTerms.of(item.getName(), item.getDescription());
+        boolean isAvailable = Boolean.TRUE.equals(item.getAvailable());
+        AfterTransaction.afterCommit(() -> apply(id, ItemTerms.EMPTY, terms, isAvailable));
+    }
+
+    /**
+     * Переиндексирует предмет: старые название и описание нужны, чтобы убрать его из списков исчезнувших слов.
+     */
+    public void update(String oldName, String oldDescription, Item item) {
+        if (!fits(item.getId())) {
+            return;
+        }
+        int id = (int) (long) item.getId();
+        ItemTerms oldTerms = ItemTerms.of(oldName, oldDescription);
+        ItemTerms terms = ItemTerms.of(item.getName(), item.getDescription());
+        boolean isAvailable = Boolean.TRUE.equals(item.getAvailable());
+        AfterTransaction.afterCommit(() -> apply(id, oldTerms, terms, isAvailable));
+    }
+
+    public void remove(Item item) {
+        if (!fits(item.getId())) {
+            return;
+        }
+        int id = (int) (long) item.getId();
+        ItemTerms oldTerms = ItemTerms.of(item.getName(), item.getDescription());
+        AfterTransaction.afterCommit(() -> apply(id, oldTerms, ItemTerms.EMPTY, false));
+    }
+
+    /**
+     * Кандидаты на вхождение запроса подстрокой: id доступных предметов больше afterId, в тексте которых есть
+     * все триграммы запроса, по возрастанию id. Триграммы могут стоять не подряд, поэтому кандидата нужно
+     * проверить по тексту. Запрос короче триграммы индекс не обслуживает.
+     */
+    public List<Long> searchSubstring(String text, long afterId, int limit) {
+        long[] trigrams = ItemTokenizer.trigrams(text);
+        if (trigrams.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[trigrams.length];
+            for (int i = 0; i < trigrams.length; i++) {
+                lists[i] = trigramPostings.get(trigrams[i]);
+                if (lists[i] == null) {
+                    return List.of();
+                }
+            }
+            //Предметов с id за пределами int в индексе нет
+            if (afterId >= Integer.MAX_VALUE) {
+                return List.of();
+            }
+            return intersect(lists, (int) Math.max(afterId + 1, 0), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Нечёткий поиск по словам: каждому слову запроса подбираются слова словаря на расстоянии Левенштейна
+     * до 1 у коротких слов и до 2 у длинных, у слов из одной-двух букв - только точное совпадение. Предмет
+     * должен содержать подходящее слово для каждого слова запроса. Предметы упорядочены по сумме расстояний,
+     * затем по частоте подобранных слов - числу предметов, где они встречаются, затем по id.
+     * Кандидаты берутся из списков слова запроса с самыми короткими списками, слово за словом в порядке их
+     * вклада, и отбираются в ограниченную кучу лучших; перебор останавливается, как только оставшиеся
+     * кандидаты заведомо не попадают в страницу.
+     */
+    public List<Long> searchFuzzy(String text, int offset, int limit) {
+        Set<String> words = ItemTokenizer.tokenize(text);
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            FuzzyScore[][] matches = new FuzzyScore[words.size()][];
+            int driver = 0;
+            long driverPostings = Long.MAX_VALUE;
+            int w = 0;
+            for (String word : words) {
+                matches[w] = matchTerms(word);
+                if (matches[w].length == 0) {
+                    return List.of();
+                }
+                long postings = 0;
+                for (FuzzyScore match : matches[w]) {
+                    postings += match.postings.size();
+                }
+                if (postings < driverPostings) {
+                    driver = w;
+                    driverPostings = postings;
+                }
+                w++;
+            }
+            //Лучший возможный вклад остальных слов запроса - их первые подобранные слова
+            int restDistance = 0;
+            long restFrequency = 0;
+            for (int k = 0; k < matches.length; k++) {
+                if (k != driver) {
+                    restDistance += matches[k][0].distance;
+                    restFrequency += matches[k][0].frequency;
+                }
+            }
+            FuzzyTop top = new FuzzyTop((int) Math.min((long) offset + limit, driverPostings));
+            FuzzyScore[] terms = matches[driver];
+            for (int t = 0; t < terms.length; t++) {
+                int boundDistance = terms[t].distance + restDistance;
+                long boundFrequency = terms[t].frequency + restFrequency;
+                if (!top.canAccept(boundDistance, boundFrequency, -1)) {
+                    break;
+                }
+                PostingList postings = terms[t].postings;
+                candidates:
+                for (int i = 0; i < postings.size(); i++) {
+                    int id = postings.get(i);
+                    //Id в списке растут: если этот кандидат не проходит даже с лучшим вкладом, не пройдут и следующие
+                    if (!top.canAccept(boundDistance, boundFrequency, id)) {
+                        break;
+                    }
+                    if (!available.get(id) || containsBefore(terms, t, id)) {
+                        continue;
+                    }
+                    int distance = terms[t].distance;
+                    long frequency = terms[t].frequency;
+                    for (int k = 0; k < matches.length; k++) {
+                        if (k == driver) {
+                            continue;
+                        }
+                        FuzzyScore best = bestContaining(matches[k], id);
+                        if (best == null) {
+                            continue candidates;
+                        }
+                        distance += best.distance;
+                        frequency += best.frequency;
+                    }
+                    top.offer(id, distance, frequency);
+                }
+            }
+            return top.page(offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * До limit (не больше {@value SuggestTrie#MAX_SUGGESTIONS}) слов названий, начинающихся с префикса, по убыванию
+     * числа доступных предметов с ними.
+     */
+    public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return suggestions.suggest(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static int maxFuzzyDistance(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+
+    //До MAX_FUZZY_TERMS подходящих слов словаря в порядке вклада: ближайшие к слову запроса, затем самые частые
+    private FuzzyScore[] matchTerms(String word) {
+        List<FuzzyScore> matches = new ArrayList<>();
+        dictionary.find(word, maxFuzzyDistance(word), (term, distance) -> {
+            PostingList list = wordPostings.get(term);
+            if (list != null) {
+                matches.add(new FuzzyScore(distance, list.size(), list));
+            }
+        });
+        matches.sort(Comparator.naturalOrder());
+        return matches.subList(0, Math.min(matches.size(), MAX_FUZZY_TERMS)).toArray(new FuzzyScore[0]);
+    }
+
+    //Лучшее для предмета подходящее слово - первое в порядке вклада, которое в нём встречается
+    private static FuzzyScore bestContaining(FuzzyScore[] matches, int id) {
+        for (FuzzyScore match : matches) {
+            if (match.postings.contains(id)) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsBefore(FuzzyScore[] matches, int end, int id) {
+        for (int i = 0; i < end; i++) {
+            if (matches[i].postings.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Long> intersect(PostingList[] lists, int fromId, int limit) {
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        List<Long> result = new ArrayList<>(Math.min(limit, lists[0].size()));
+        int[] cursors = new int[lists.length];
+        candidates:
+        for (int i = lists[0].lowerBound(fromId, 0); i < lists[0].size(); i++) {
+            int id = lists[0].get(i);
+            if (!available.get(id)) {
+                continue;
+            }
+            for (int k = 1; k < lists.length; k++) {
+                cursors[k] = lists[k].lowerBound(id, cursors[k]);
+                if (cursors[k] == lists[k].size()) {
+                    break candidates;
+                }
+                if (lists[k].get(cursors[k]) != id) {
+                    continue candidates;
+                }
+            }
+            result.add((long) id);
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void load(int id, String name, String description, boolean isAvailable) {
+        ItemTerms terms = ItemTerms.of(name, description);
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading == null || !changedWhileLoading.contains(id)) {
+                index(id, ItemTerms.EMPTY, terms, isAvailable);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(int id, ItemTerms oldTerms, ItemTerms terms, boolean isAvailable) {
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(id);
+            }
+            index(id, oldTerms, terms, isAvailable);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(int id, ItemTerms oldTerms, ItemTerms terms, boolean isAvailable) {
+        //Вес подсказки - число доступных предметов со словом в названии: старый вклад снимается, новый добавляется
+        boolean wasAvailable = available.get(id);
+        for (String word : oldTerms.getNameWords()) {
+            if (wasAvailable && !(isAvailable && terms.getNameWords().contains(word))) {
+                suggestions.addWeight(word, -1);
+            }
+        }
+        for (String word : terms.getNameWords()) {
+            if (isAvailable && !(wasAvailable && oldTerms.getNameWords().contains(word))) {
+                suggestions.addWeight(word, 1);
+            }
+        }
+        for (String word : oldTerms.getWords()) {
+            if (!terms.getWords().contains(word)) {
+                removePosting(wordPostings, word, id);
+            }
+        }
+        for (long trigram : oldTerms.getTrigrams()) {
+            if (!terms.hasTrigram(trigram)) {
+                removePosting(trigramPostings, trigram, id);
+            }
+        }
+        //Добавление идемпотентно и для общих слов: предмета могло не быть в индексе, если он изменён до загрузки
+        for (String word : terms.getWords()) {
+            wordPostings.computeIfAbsent(word, w -> {
+                dictionary.add(w);
+                return new PostingList();
+            }).add(id);
+        }
+        for (long trigram : terms.getTrigrams()) {
+            trigramPostings.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+        }
+        available.set(id, isAvailable);
+    }
+
+    private static <K> void removePosting(Map<K, PostingList> postings, K key, int id) {
+        PostingList list = postings.get(key);
+        if (list != null) {
+            list.remove(id);
+            if (list.size() == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    //Списки хранят id как int: так они вдвое компактнее. Предмет с id больше Integer.MAX_VALUE не ломает запись,
+    //а выключает индекс, и поиск идёт по БД
+    private boolean fits(long id) {
+        if (id <= Integer.MAX_VALUE) {
+            return true;
+        }
+        if (!overflowed) {
+            overflowed = true;
+            log.warn("Id предмета {} не помещается в индекс поиска, поиск переключён на БД", id);
+        }
+        return false;
+    }
+
+    /**
+     * Вклад подобранного слова в порядок нечёткой выдачи: меньшее расстояние, затем большая частота.
+     */
+    private static final class FuzzyScore implements Comparable<FuzzyScore> {
+        private final int distance;
+        private final long frequency;
+        private final PostingList postings;
+
+        private FuzzyScore(int distance, long frequency, PostingList postings) {
+            this.distance = distance;
+            this.frequency = frequency;
+            this.postings = postings;
+        }
+
+        @Override
+        public int compareTo(FuzzyScore other) {
+            int byDistance = Integer.compare(distance, other.distance);
+            return byDistance != 0 ? byDistance : Long.compare(other.frequency, frequency);
+        }
+    }
+
+    /**
+     * Лучшие предметы нечёткой выдачи: куча с худшим в корне в параллельных массивах примитивов, без
+     * упаковки id и оценок в объекты.
+     */
+    private static final class FuzzyTop {
+        private final int[] ids;
+        private final int[] distances;
+        private final long[] frequencies;
+        private int size;
+
+        private FuzzyTop(int capacity) {
+            ids = new int[capacity];
+            distances = new int[capacity];
+            frequencies = new long[capacity];
+        }
+
+        //Может ли предмет с такой оценкой и id попасть в кучу
+        private boolean canAccept(int distance, long frequency, int id) {
+            return size < ids.length || compare(distance, frequency, id, 0) < 0;
+        }
+
+        private void offer(int id, int distance, long frequency) {
+            if (size < ids.length) {
+                set(size, id, distance, frequency);
+                siftUp(size++);
+            } else if (compare(distance, frequency, id, 0) < 0) {
+                set(0, id, distance, frequency);
+                siftDown(0, size);
+            }
+        }
+
+        //Сортирует кучу на месте: худший из оставшихся переставляется в конец
+        private List<Long> page(int offset, int limit) {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            List<Long> result = new ArrayList<>(Math.max(Math.min(limit, size - offset), 0));
+            for (int i = offset; i < size && result.size() < limit; i++) {
+                result.add((long) ids[i]);
+            }
+            return result;
+        }
+
+        private int compare(int distance, long frequency, int id, int index) {
+            if (distance != distances[index]) {
+                return Integer.compare(distance, distances[index]);
+            }
+            if (frequency != frequencies[index]) {
+                return Long.compare(frequencies[index], frequency);
+            }
+            return Integer.compare(id, ids[index]);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (compare(distances[index], frequencies[index], ids[index], parent) <= 0) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index, int end) {
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < end; child++) {
+                    if (compare(distances[child], frequencies[child], ids[child], worst) > 0) {
+                        worst = child;
+                    }
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void set(int index, int id, int distance, long frequency) {
+            ids[index] = id;
+            distances[index] = distance;
+            frequencies[index] = frequency;
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            int distance = distances[i];
+            long frequency = frequencies[i];
+            set(i, ids[j], distances[j], frequencies[j]);
+            set(j, id, distance, frequency);
+        }
+    }
+}
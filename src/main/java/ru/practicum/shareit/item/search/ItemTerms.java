@@ -0,0 +1,42 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Слова и триграммы одного предмета: всё, под чем он лежит в индексе поиска.
+ */
+final class ItemTerms {
+    static final ItemTerms EMPTY = new ItemTerms(Set.of(), Set.of(), new long[0]);
+
+    private final Set<String> words;
+    private final Set<String> nameWords;
+    private final long[] trigrams;
+
+    private ItemTerms(Set<String> words, Set<String> nameWords, long[] trigrams) {
+        this.words = words;
+        this.nameWords = nameWords;
+        this.trigrams = trigrams;
+    }
+
+    static ItemTerms of(String name, String description) {
+        return new ItemTerms(ItemTokenizer.tokenize(name, description), ItemTokenizer.tokenize(name),
+                ItemTokenizer.trigrams(name, description));
+    }
+
+    Set<String> getWords() {
+        return words;
+    }
+
+    Set<String> getNameWords() {
+        return nameWords;
+    }
+
+    long[] getTrigrams() {
+        return trigrams;
+    }
+
+    boolean hasTrigram(long trigram) {
+        return Arrays.binarySearch(trigrams, trigram) >= 0;
+    }
+}
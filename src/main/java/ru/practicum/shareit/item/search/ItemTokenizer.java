@@ -0,0 +1,77 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает текст предмета и поисковый запрос одинаково: на слова - непрерывные последовательности букв и цифр,
+ * и на триграммы - тройки подряд идущих символов. Регистр не учитывается.
+ */
+public final class ItemTokenizer {
+    public static final int TRIGRAM_LENGTH = 3;
+
+    private ItemTokenizer() {
+    }
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    public static Set<String> tokenize(String... texts) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if (letter && start < 0) {
+                    start = i;
+                } else if (!letter && start >= 0) {
+                    tokens.add(normalize(text.substring(start, i)));
+                    start = -1;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Различные триграммы текстов по возрастанию. Триграмма упакована в long по 16 бит на символ; тексты
+     * не склеиваются, чтобы на стыке названия и описания не появлялись лишние триграммы.
+     */
+    public static long[] trigrams(String... texts) {
+        //Длина считается по приведённому тексту: у некоторых символов нижний регистр длиннее
+        String[] normalized = new String[texts.length];
+        int count = 0;
+        for (int t = 0; t < texts.length; t++) {
+            if (texts[t] != null) {
+                normalized[t] = normalize(texts[t]);
+                count += Math.max(normalized[t].length() - TRIGRAM_LENGTH + 1, 0);
+            }
+        }
+        long[] trigrams = new long[count];
+        int n = 0;
+        for (String text : normalized) {
+            if (text == null) {
+                continue;
+            }
+            for (int i = 0; i + TRIGRAM_LENGTH <= text.length(); i++) {
+                trigrams[n++] = (long) text.charAt(i) << 32
+                        | (long) text.charAt(i + 1) << 16
+                        | text.charAt(i + 2);
+            }
+        }
+        Arrays.sort(trigrams, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return distinct == trigrams.length ? trigrams : Arrays.copyOf(trigrams, distinct);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.Arrays;
+
+/**
+ * Отсортированный по возрастанию список id предметов, в тексте которых встречается слово.
+ * Новые предметы получают большие id, поэтому добавление почти всегда идёт в конец массива.
+ */
+final class PostingList {
+    private int[] ids = new int[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return ids[index];
+    }
+
+    void add(int id) {
+        if (size == 0 || id > ids[size - 1]) {
+            ensureCapacity();
+            ids[size++] = id;
+            return;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        ensureCapacity();
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+    }
+
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * Позиция первого id не меньше заданного, начиная с from. Поиск галопом: при пересечении с коротким списком
+     * курсор длинного списка прыгает далеко вперёд за логарифм шагов.
+     */
+    int lowerBound(int id, int from) {
+        if (from >= size) {
+            return size;
+        }
+        int bound = 1;
+        int low = from;
+        while (low + bound < size && ids[low + bound] < id) {
+            low += bound;
+            bound <<= 1;
+        }
+        int index = Arrays.binarySearch(ids, low, Math.min(low + bound + 1, size), id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+    }
+}
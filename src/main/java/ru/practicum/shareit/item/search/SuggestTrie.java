@@ -0,0 +1,163 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Префиксное дерево слов из названий предметов с весом - числом доступных предметов, где слово встречается.
+ * Каждый узел хранит готовый топ слов своего поддерева, поэтому подсказка - это спуск по префиксу и копирование
+ * топа в ответ, без обхода поддерева и без выделений памяти кроме ответа. При смене веса слова топы
+ * пересчитываются только на пути от корня до слова.
+ */
+final class SuggestTrie {
+    static final int MAX_SUGGESTIONS = 10;
+
+    private final Node root = new Node();
+
+    /**
+     * Меняет вес слова на delta. Слово с нулевым весом в подсказки не попадает.
+     */
+    void addWeight(String term, int delta) {
+        Node[] path = new Node[term.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < term.length(); i++) {
+            path[i + 1] = path[i].childOrAdd(term.charAt(i));
+        }
+        Node node = path[term.length()];
+        node.term = term;
+        int oldWeight = node.weight;
+        node.weight = Math.max(oldWeight + delta, 0);
+        if (node.weight == oldWeight) {
+            return;
+        }
+        //Снизу вверх: топ узла собирается из уже обновлённых топов потомков
+        for (int depth = term.length(); depth >= 0; depth--) {
+            path[depth].update(node, node.weight < oldWeight);
+        }
+    }
+
+    int weight(String term) {
+        Node node = find(term);
+        return node == null || node.term == null ? 0 : node.weight;
+    }
+
+    List<ItemSuggestionDto> suggest(CharSequence prefix, int limit) {
+        Node node = find(prefix);
+        if (node == null || node.topCount == 0 || limit <= 0) {
+            return List.of();
+        }
+        int count = Math.min(Math.min(limit, MAX_SUGGESTIONS), node.topCount);
+        List<ItemSuggestionDto> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            suggestions.add(new ItemSuggestionDto(node.top[i].term, node.top[i].weight));
+        }
+        return suggestions;
+    }
+
+    //Регистр приводится посимвольно, чтобы не создавать строку на каждый запрос
+    private Node find(CharSequence prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(prefix.charAt(i)));
+        }
+        return node;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private String term;
+        private int weight;
+        //Слова поддерева по убыванию веса, при равенстве - по алфавиту
+        private final Node[] top = new Node[MAX_SUGGESTIONS];
+        private int topCount;
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node childOrAdd(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            if (childCount == keys.length) {
+                keys = Arrays.copyOf(keys, childCount + 2);
+                children = Arrays.copyOf(children, childCount + 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            Node child = new Node();
+            keys[index] = key;
+            children[index] = child;
+            childCount++;
+            return child;
+        }
+
+        private void update(Node word, boolean decreased) {
+            int index = indexOf(word);
+            //Вес упал у слова из полного топа: его место может занять слово, которого в топе не было
+            if (decreased && index >= 0 && topCount == MAX_SUGGESTIONS) {
+                rebuildTop();
+                return;
+            }
+            if (index >= 0) {
+                removeAt(index);
+            }
+            if (word.weight > 0) {
+                insert(word);
+            }
+        }
+
+        private void rebuildTop() {
+            topCount = 0;
+            if (term != null && weight > 0) {
+                insert(this);
+            }
+            for (int c = 0; c < childCount; c++) {
+                Node child = children[c];
+                for (int i = 0; i < child.topCount; i++) {
+                    insert(child.top[i]);
+                }
+            }
+        }
+
+        private void insert(Node word) {
+            int position = topCount;
+            while (position > 0 && isBefore(word, top[position - 1])) {
+                position--;
+            }
+            if (position == MAX_SUGGESTIONS) {
+                return;
+            }
+            int moved = Math.min(topCount, MAX_SUGGESTIONS - 1) - position;
+            System.arraycopy(top, position, top, position + 1, moved);
+            top[position] = word;
+            topCount = Math.min(topCount + 1, MAX_SUGGESTIONS);
+        }
+
+        private void removeAt(int index) {
+            System.arraycopy(top, index + 1, top, index, topCount - index - 1);
+            top[--topCount] = null;
+        }
+
+        private int indexOf(Node word) {
+            for (int i = 0; i < topCount; i++) {
+                if (top[i] == word) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isBefore(Node a, Node b) {
+            return a.weight != b.weight ? a.weight > b.weight : a.term.compareTo(b.term) < 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Префиксное дерево слов для нечёткого поиска. Обход в глубину ведёт строку матрицы расстояний Левенштейна
+ * от запроса до префикса узла - это то же, что пройти дерево автоматом Левенштейна: ветвь отсекается, как
+ * только минимум строки превысил допустимое расстояние. Общие префиксы слов считаются один раз.
+ * Удаления нет: исчезнувшие слова отсеивает вызывающий, дерево пересоздаётся при перестроении индекса.
+ */
+final class TermTrie {
+    private final Node root = new Node();
+    private int size;
+    private int maxLength;
+
+    int size() {
+        return size;
+    }
+
+    void add(String term) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.childOrAdd(term.charAt(i));
+        }
+        if (node.term == null) {
+            node.term = term;
+            size++;
+            maxLength = Math.max(maxLength, term.length());
+        }
+    }
+
+    /**
+     * Передаёт обработчику все слова на расстоянии не больше maxDistance от запроса вместе с расстоянием.
+     */
+    void find(String query, int maxDistance, ObjIntConsumer<String> consumer) {
+        //Строка матрицы на каждую глубину выделяется один раз на поиск
+        int[][] rows = new int[Math.min(maxLength, query.length() + maxDistance) + 1][query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) {
+            rows[0][j] = j;
+        }
+        find(root, 0, query, maxDistance, rows, consumer);
+    }
+
+    private static void find(Node node, int depth, String query, int maxDistance, int[][] rows,
+                             ObjIntConsumer<String> consumer) {
+        int[] row = rows[depth];
+        if (node.term != null && row[query.length()] <= maxDistance) {
+            consumer.accept(node.term, row[query.length()]);
+        }
+        if (depth + 1 == rows.length) {
+            return;
+        }
+        int[] next = rows[depth + 1];
+        for (int c = 0; c < node.childCount; c++) {
+            char key = node.keys[c];
+            next[0] = depth + 1;
+            int rowMin = next[0];
+            for (int j = 1; j <= query.length(); j++) {
+                int replace = row[j - 1] + (query.charAt(j - 1) == key ? 0 : 1);
+                next[j] = Math.min(replace, Math.min(row[j], next[j - 1]) + 1);
+                rowMin = Math.min(rowMin, next[j]);
+            }
+            if (rowMin <= maxDistance) {
+                find(node.children[c], depth + 1, query, maxDistance, rows, consumer);
+            }
+        }
+    }
+
+    //Потомки в массивах, отсортированных по символу: в узле их обычно единицы
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private String term;
+
+        private Node childOrAdd(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            if (childCount == keys.length) {
+                keys = Arrays.copyOf(keys, childCount + 2);
+                children = Arrays.copyOf(children, childCount + 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            Node child = new Node();
+            keys[index] = key;
+            children[index] = child;
+            childCount++;
+            return child;
+        }
+    }
+}
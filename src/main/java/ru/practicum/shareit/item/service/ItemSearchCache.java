@@ -0,0 +1,68 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.calendar.AfterTransaction;
+import ru.practicum.shareit.cache.CacheStats;
+import ru.practicum.shareit.cache.TtlCache;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.search.ItemTokenizer;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Страницы результатов поиска по тексту. Изменение предмета сбрасывает только запросы, которые встречаются
+ * подстрокой в его старых или новых названии и описании, - остальные страницы от него не зависят.
+ * Время жизни ограничивает устаревание при изменениях в обход ItemServiceImpl.
+ */
+@Component
+public class ItemSearchCache {
+    private final TtlCache<SearchKey, List<ItemDto>> cache;
+
+    public ItemSearchCache(@Value("${shareit.items.search.cache-ttl-millis:60000}") long ttlMillis,
+                           @Value("${shareit.items.search.cache-size:1000}") int maxSize) {
+        this.cache = new TtlCache<>(ttlMillis, maxSize);
+    }
+
+    public List<ItemDto> get(String textOfQuery, int from, int size, Supplier<List<ItemDto>> loader) {
+        return cache.get(new SearchKey(ItemTokenizer.normalize(textOfQuery), from, size),
+                key -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Сбрасывает после фиксации транзакции запросы, найденные в одном из текстов предмета.
+     */
+    public void invalidate(String... texts) {
+        String[] normalized = new String[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            normalized[i] = texts[i] == null ? "" : ItemTokenizer.normalize(texts[i]);
+        }
+        AfterTransaction.afterCommit(() -> cache.invalidateIf(key -> {
+            for (String text : normalized) {
+                if (text.contains(key.getText())) {
+                    return true;
+                }
+            }
+            return false;
+        }));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class SearchKey {
+        private final String text;
+        private final int from;
+        private final int size;
+    }
+}
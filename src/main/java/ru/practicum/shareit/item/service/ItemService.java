@@ -1,8 +1,13 @@
 package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.pagination.Cursor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
@@ -14,8 +19,21 @@ public interface ItemService {
 
     List<ItemDto> getItemsByOwnerId(Long userId, Integer from, Integer size);
 
+    List<ItemDto> getItemsByOwnerIdAfter(Long userId, Cursor cursor, Integer size);
+
     List<ItemDto> getItemsByTextOfQuery(String textOfQuery, Integer from, Integer size);
 
+    List<ItemDto> getItemsByFuzzyTextOfQuery(String textOfQuery, Integer from, Integer size);
+
+    List<ItemSuggestionDto> getSuggestions(String prefix, Integer limit);
+
+    List<ItemDto> getFreeItemsByTextOfQuery(String textOfQuery, LocalDateTime start, LocalDateTime end,
+                                            Integer from, Integer size);
+
+    List<FreeIntervalDto> getFreeIntervals(Long userId, Long itemId, LocalDateTime from, LocalDateTime to);
+
+    List<ItemStatsDto> getItemStats(Long userId, LocalDateTime from, LocalDateTime to);
+
     ItemDto updateItem(Long itemId, ItemDto itemDto, Long userId);
 
     CommentDto addComment(Long userId, Long itemId, CommentDto commentDto);
@@ -5,40 +5,63 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.calendar.OccupancyIndex;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPeriod;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.ErrorAccess;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemTokenizer;
+import ru.practicum.shareit.pagination.Cursor;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+    private static final List<Status> BLOCKING_STATUSES = List.of(Status.WAITING, Status.APPROVED);
+    private static final int SEARCH_BATCH_SIZE = 100;
 
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final OccupancyIndex occupancyIndex;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSearchCache itemSearchCache;
+    private final BookingSummaryIndex bookingSummaryIndex;
 
     @Transactional
     @Override
@@ -51,7 +74,10 @@ public class ItemServiceImpl implements ItemService {
                     .orElseThrow(() -> new NotFoundException("Запрос с id = " + itemDto.getRequestId() + " не найден"));
             item.setItemRequest(itemRequest);
         }
-        return ItemMapper.toItemDto(itemRepository.save(item));
+        Item saved = itemRepository.save(item);
+        itemSearchIndex.add(saved);
+        itemSearchCache.invalidate(saved.getName(), saved.getDescription());
+        return ItemMapper.toItemDto(saved);
     }
 
     @Transactional(readOnly = true)
@@ -64,7 +90,7 @@ public class ItemServiceImpl implements ItemService {
                 .map(CommentMapper::toCommentDto)
                 .collect(Collectors.toList()));
         if (item.getOwner().getId().equals(userId)) {
-            getTwoBooking(itemDto);
+            setLastAndNextBookings(List.of(itemDto), LocalDateTime.now());
         }
         return itemDto;
     }
@@ -72,6 +98,12 @@ public class ItemServiceImpl implements ItemService {
     @Transactional
     @Override
     public void deleteItem(Long itemId) {
+        //Текст предмета нужен, чтобы убрать его из индекса и кэша поиска; deleteById всё равно загружает сущность
+        itemRepository.findById(itemId).ifPresent(item -> {
+            itemSearchIndex.remove(item);
+            itemSearchCache.invalidate(item.getName(), item.getDescription());
+            bookingSummaryIndex.invalidateItem(itemId, item.getOwner().getId());
+        });
         itemRepository.deleteById(itemId);
     }
 
@@ -79,38 +111,195 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public List<ItemDto> getItemsByOwnerId(Long userId, Integer from, Integer size) {
         User owner = checkUserById(userId);
-        PageRequest pageRequest = PageRequest.of(from / size, size);
-        List<ItemDto> itemsForUser = itemRepository.getItemsByOwnerId(userId, pageRequest).stream()
+        LocalDateTime now = LocalDateTime.now();
+        int offset = from / size * size;
+        List<Item> items = new ArrayList<>(itemRepository.getItemsWithNextBookingByOwnerId(userId, now, size, offset));
+        if (items.size() < size) {
+            //Страница заходит в предметы без брони: смещение в них - остаток после всех предметов с бронью
+            long withNext = items.isEmpty()
+                    ? itemRepository.countItemsWithNextBookingByOwnerId(userId, now)
+                    : offset + items.size();
+            items.addAll(itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(userId, now, 0L,
+                    size - items.size(), Math.max(offset - withNext, 0)));
+        }
+        return toItemsDtoWithBookings(items, now);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ItemDto> getItemsByOwnerIdAfter(Long userId, Cursor cursor, Integer size) {
+        User owner = checkUserById(userId);
+        LocalDateTime now = LocalDateTime.now();
+        if (cursor.getStart() == null) {
+            return toItemsDtoWithBookings(itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(userId, now,
+                    cursor.getId(), size, 0), now);
+        }
+        List<Item> items = new ArrayList<>(itemRepository.getItemsWithNextBookingByOwnerIdAfter(userId, now,
+                cursor.getStart(), cursor.getId(), size));
+        if (items.size() < size) {
+            items.addAll(itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(userId, now, 0L,
+                    size - items.size(), 0));
+        }
+        return toItemsDtoWithBookings(items, now);
+    }
+
+    //Без общей транзакции: попадание в кэш не занимает соединение, промах читает одним-двумя запросами репозитория
+    @Override
+    public List<ItemDto> getItemsByTextOfQuery(String textOfQuery, Integer from, Integer size) {
+        if (textOfQuery.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int offset = from / size * size;
+        return itemSearchCache.get(textOfQuery, offset, size, () -> searchItems(textOfQuery, offset, size));
+    }
+
+    private List<ItemDto> searchItems(String textOfQuery, int offset, int size) {
+        //Запрос короче триграммы индекс не обслуживает, как и всё до его построения
+        if (!itemSearchIndex.isReady()
+                || ItemTokenizer.normalize(textOfQuery).length() < ItemTokenizer.TRIGRAM_LENGTH) {
+            PageRequest pageRequest = PageRequest.of(offset / size, size);
+            return itemRepository.getItemsByTextOfQuery(textOfQuery, pageRequest)
+                    .stream()
+                    .map(ItemMapper::toItemDto)
+                    .collect(Collectors.toList());
+        }
+        return getItemsBySubstring(textOfQuery, offset, size);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ItemDto> getItemsByFuzzyTextOfQuery(String textOfQuery, Integer from, Integer size) {
+        if (textOfQuery.isEmpty()) {
+            return Collections.emptyList();
+        }
+        //Словарь для нечёткого поиска есть только в индексе, до его построения поиск обычный
+        if (!itemSearchIndex.isReady()) {
+            return getItemsByTextOfQuery(textOfQuery, from, size);
+        }
+        List<Long> pageIds = itemSearchIndex.searchFuzzy(textOfQuery, from / size * size, size);
+        if (pageIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        //Порядок выдачи задаёт индекс: ближе к запросу - выше
+        Map<Long, Item> items = itemRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return pageIds.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
                 .map(ItemMapper::toItemDto)
                 .collect(Collectors.toList());
-        for (ItemDto itemDto : itemsForUser) {
-            getTwoBooking(itemDto);
+    }
+
+    @Override
+    public List<ItemSuggestionDto> getSuggestions(String prefix, Integer limit) {
+        //Подсказки живут только в индексе, до его построения их нет
+        if (prefix.isBlank() || !itemSearchIndex.isReady()) {
+            return Collections.emptyList();
         }
-        itemsForUser = itemsForUser.stream().sorted((o1, o2) -> {
-            if (o1.getNextBooking() == null) {
-                return 1;
-            }
-            if (o2.getNextBooking() == null) {
-                return -1;
-            }
-            return o1.getNextBooking().getStart().compareTo(o2.getNextBooking().getStart());
-        }).collect(Collectors.toList());
-        return itemsForUser;
+        return itemSearchIndex.suggest(prefix.strip(), limit);
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<ItemDto> getItemsByTextOfQuery(String textOfQuery, Integer from, Integer size) {
+    public List<ItemDto> getFreeItemsByTextOfQuery(String textOfQuery, LocalDateTime start, LocalDateTime end,
+                                                   Integer from, Integer size) {
+        if (start == null || end == null) {
+            throw new ValidationException("Для поиска свободных предметов укажите и start, и end");
+        }
+        if (!start.isBefore(end)) {
+            throw new ValidationException("Дата начала периода должна быть раньше даты окончания");
+        }
         if (textOfQuery.isEmpty()) {
             return Collections.emptyList();
         }
-        PageRequest pageRequest = PageRequest.of(from / size, size);
-        return itemRepository.getItemsByTextOfQuery(textOfQuery, pageRequest)
-                .stream()
+        int offset = from / size * size;
+        String substring = ItemTokenizer.normalize(textOfQuery);
+        boolean indexed = itemSearchIndex.isReady() && substring.length() >= ItemTokenizer.TRIGRAM_LENGTH;
+        int batchSize = Math.max(size, SEARCH_BATCH_SIZE);
+        //Кандидаты читаются порциями по возрастанию id, пока не наберётся страница свободных предметов
+        List<Long> pageIds = new ArrayList<>(size);
+        int skipped = 0;
+        long afterId = 0;
+        while (pageIds.size() < size) {
+            List<Long> candidates = indexed
+                    ? itemSearchIndex.searchSubstring(textOfQuery, afterId, batchSize)
+                    : itemRepository.getAvailableItemIdsByTextOfQuery(textOfQuery, afterId,
+                    PageRequest.of(0, batchSize));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            afterId = candidates.get(candidates.size() - 1);
+            List<Long> free = occupancyIndex.filterFree(candidates, start, end);
+            //Кандидаты индекса проверяются по тексту, выборка из БД уже отфильтрована LIKE
+            if (indexed && !free.isEmpty()) {
+                free = itemRepository.findAllById(free).stream()
+                        .filter(item -> containsSubstring(item, substring))
+                        .map(Item::getId)
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (Long itemId : free) {
+                if (skipped < offset) {
+                    skipped++;
+                } else if (pageIds.size() < size) {
+                    pageIds.add(itemId);
+                }
+            }
+            if (candidates.size() < batchSize) {
+                break;
+            }
+        }
+        if (pageIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return itemRepository.findAllById(pageIds).stream()
+                .sorted(Comparator.comparing(Item::getId))
                 .map(ItemMapper::toItemDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<FreeIntervalDto> getFreeIntervals(Long userId, Long itemId, LocalDateTime from, LocalDateTime to) {
+        User user = checkUserById(userId);
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Дата начала периода должна быть раньше даты окончания");
+        }
+        if (!itemRepository.existsById(itemId)) {
+            throw new NotFoundException("Предмет с id = " + itemId + " не найден");
+        }
+        List<BookingPeriod> busy = bookingRepository
+                .findByItemIdAndStatusInAndStartBeforeAndEndAfterOrderByStart(itemId, BLOCKING_STATUSES, to, from);
+        List<FreeIntervalDto> free = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+        for (BookingPeriod period : busy) {
+            if (period.getStart().isAfter(freeFrom)) {
+                free.add(FreeIntervalDto.builder().start(freeFrom).end(period.getStart()).build());
+            }
+            if (period.getEnd().isAfter(freeFrom)) {
+                freeFrom = period.getEnd();
+            }
+        }
+        if (freeFrom.isBefore(to)) {
+            free.add(FreeIntervalDto.builder().start(freeFrom).end(to).build());
+        }
+        return free;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ItemStatsDto> getItemStats(Long userId, LocalDateTime from, LocalDateTime to) {
+        checkUserById(userId);
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Дата начала периода должна быть раньше даты окончания");
+        }
+        long periodSeconds = Duration.between(from, to).toSeconds();
+        //Результат может разделяться между запросами через кэш, поэтому список неизменяемый
+        return itemRepository.getItemStatsByOwnerId(userId, from, to).stream()
+                .map(stats -> ItemMapper.toItemStatsDto(stats, Math.max(periodSeconds, 1)))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
     @Transactional
     @Override
     public ItemDto updateItem(Long itemId, ItemDto itemDto, Long userId) {
@@ -119,6 +308,8 @@ public class ItemServiceImpl implements ItemService {
         if (!updateItem.getOwner().getId().equals(user.getId())) {
             throw new ErrorAccess("Ошибка доступа. Только владелец может вносить изменения");
         }
+        String oldName = updateItem.getName();
+        String oldDescription = updateItem.getDescription();
         if (itemDto.getName() != null && !itemDto.getName().isBlank()) {
             updateItem.setName(itemDto.getName());
         }
@@ -128,7 +319,10 @@ public class ItemServiceImpl implements ItemService {
         if (itemDto.getAvailable() != null) {
             updateItem.setAvailable(itemDto.getAvailable());
         }
-        return ItemMapper.toItemDto(itemRepository.save(updateItem));
+        Item saved = itemRepository.save(updateItem);
+        itemSearchIndex.update(oldName, oldDescription, saved);
+        itemSearchCache.invalidate(oldName, oldDescription, saved.getName(), saved.getDescription());
+        return ItemMapper.toItemDto(saved);
     }
 
     @Override
@@ -139,7 +333,8 @@ public class ItemServiceImpl implements ItemService {
         LocalDateTime time = LocalDateTime.now();
         List<Booking> bookings = bookingRepository.findByBookerIdAndItemIdAndEndBeforeOrderByEndDesc(userId,
                 itemId, time);
-        if (bookings == null || bookings.size() == 0) {
+        if ((bookings == null || bookings.size() == 0)
+                && !archivedBookingRepository.existsByBookerIdAndItemIdAndEndBefore(userId, itemId, time)) {
             throw new ValidationException("Пользователь с id = " + userId +
                     " не бронировал предмет с id = " + itemId);
         }
@@ -158,22 +353,75 @@ public class ItemServiceImpl implements ItemService {
                 new NotFoundException("Предмет с id = " + itemId + " не найден"));
     }
 
-    private void getTwoBooking(ItemDto itemDto) {
-        BookingDto lastBooking = null;
-        Booking pastBookings = bookingRepository
-                .findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(itemDto.getId(), Status.APPROVED,
-                        LocalDateTime.now());
-        if (pastBookings != null) {
-            lastBooking = BookingMapper.toBookingByItemDto(pastBookings);
+    private List<ItemDto> toItemsDtoWithBookings(List<Item> items, LocalDateTime now) {
+        List<ItemDto> itemsDto = items.stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
+        setLastAndNextBookings(itemsDto, now);
+        return itemsDto;
+    }
+
+    private void setLastAndNextBookings(List<ItemDto> itemsDto, LocalDateTime now) {
+        if (itemsDto.isEmpty()) {
+            return;
+        }
+        List<Long> itemIds = itemsDto.stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList());
+        Map<Long, BookingDto> lastBookings = bookingRepository
+                .findLastBookingsByItemIds(itemIds, Status.APPROVED, now).stream()
+                .collect(Collectors.toMap(booking -> booking.getItem().getId(), BookingMapper::toBookingByItemDto,
+                        (first, second) -> first));
+        //Если все прошедшие брони предмета уже в архиве, последняя берётся оттуда
+        List<Long> withoutLast = itemIds.stream()
+                .filter(itemId -> !lastBookings.containsKey(itemId))
+                .collect(Collectors.toList());
+        if (!withoutLast.isEmpty()) {
+            archivedBookingRepository.findLastBookingsByItemIds(withoutLast, Status.APPROVED, now)
+                    .forEach(booking -> lastBookings.putIfAbsent(booking.getItem().getId(),
+                            BookingMapper.toBookingByItemDto(booking)));
         }
-        itemDto.setLastBooking(lastBooking);
-        BookingDto nextBooking = null;
-        Booking futureBooking = bookingRepository
-                .findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(itemDto.getId(), Status.APPROVED,
-                        LocalDateTime.now());
-        if (futureBooking != null) {
-            nextBooking = BookingMapper.toBookingByItemDto(futureBooking);
+        Map<Long, BookingDto> nextBookings = bookingRepository
+                .findNextBookingsByItemIds(itemIds, Status.APPROVED, now).stream()
+                .collect(Collectors.toMap(booking -> booking.getItem().getId(), BookingMapper::toBookingByItemDto,
+                        (first, second) -> first));
+        for (ItemDto itemDto : itemsDto) {
+            itemDto.setLastBooking(lastBookings.get(itemDto.getId()));
+            itemDto.setNextBooking(nextBookings.get(itemDto.getId()));
         }
-        itemDto.setNextBooking(nextBooking);
+    }
+
+    //Кандидаты из триграммного индекса проверяются по тексту из БД порциями, пока не наберётся страница
+    private List<ItemDto> getItemsBySubstring(String textOfQuery, int offset, int size) {
+        String substring = ItemTokenizer.normalize(textOfQuery);
+        int batchSize = Math.max(size, SEARCH_BATCH_SIZE);
+        List<ItemDto> page = new ArrayList<>(size);
+        int skipped = 0;
+        long afterId = 0;
+        while (page.size() < size) {
+            List<Long> candidates = itemSearchIndex.searchSubstring(textOfQuery, afterId, batchSize);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            afterId = candidates.get(candidates.size() - 1);
+            List<Item> items = itemRepository.findAllById(candidates).stream()
+                    .sorted(Comparator.comparing(Item::getId))
+                    .filter(item -> containsSubstring(item, substring))
+                    .collect(Collectors.toList());
+            for (Item item : items) {
+                if (skipped < offset) {
+                    skipped++;
+                } else if (page.size() < size) {
+                    page.add(ItemMapper.toItemDto(item));
+                }
+            }
+        }
+        return page;
+    }
+
+    private static boolean containsSubstring(Item item, String substring) {
+        return Boolean.TRUE.equals(item.getAvailable())
+                && (ItemTokenizer.normalize(item.getName()).contains(substring)
+                || ItemTokenizer.normalize(item.getDescription()).contains(substring));
     }
 }
@@ -0,0 +1,40 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.cache.TtlCache;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Статистика владельца с коротким временем жизни: панели, обновляемые одновременно из многих вкладок,
+ * получают один результат агрегации вместо запроса к БД на каждое обновление.
+ */
+@Component
+public class ItemStatsCache {
+    private final ItemService itemService;
+    private final TtlCache<StatsKey, List<ItemStatsDto>> cache;
+
+    public ItemStatsCache(ItemService itemService,
+                          @Value("${shareit.items.stats.cache-ttl-millis:5000}") long ttlMillis,
+                          @Value("${shareit.items.stats.cache-size:1000}") int maxSize) {
+        this.itemService = itemService;
+        this.cache = new TtlCache<>(ttlMillis, maxSize);
+    }
+
+    public List<ItemStatsDto> getItemStats(Long userId, LocalDateTime from, LocalDateTime to) {
+        return cache.get(new StatsKey(userId, from, to), key -> itemService.getItemStats(userId, from, to));
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class StatsKey {
+        private final Long userId;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
 import ru.practicum.shareit.exception.EmailBusyException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
@@ -19,6 +20,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final BookingSummaryIndex bookingSummaryIndex;
 
     @Transactional
     @Override
@@ -50,6 +52,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteUser(Long id) {
         checkUserById(id);
+        bookingSummaryIndex.invalidateUser(id);
         userRepository.deleteById(id);
     }
 
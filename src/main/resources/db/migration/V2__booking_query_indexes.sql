@@ -0,0 +1,14 @@
+-- Бронирования пользователя: фильтр по booker_id (и статусу), сортировка по start_date
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (booker_id, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_status_start ON bookings (booker_id, status, start_date DESC, id DESC);
+-- Проверка перед отзывом: бронировал ли пользователь предмет
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_item_end ON bookings (booker_id, item_id, end_date);
+-- Бронирования предмета по статусу и датам: последняя/следующая бронь, календарь, свободные интервалы
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_start ON bookings (item_id, status, start_date, end_date);
+-- Бронирования владельца: предметы владельца, затем их бронирования по item_id
+CREATE INDEX IF NOT EXISTS idx_items_owner ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS idx_items_request ON items (request_id);
+CREATE INDEX IF NOT EXISTS idx_comments_item ON comments (item_id);
+-- Свои запросы по requester_id и чужие запросы по дате создания
+CREATE INDEX IF NOT EXISTS idx_requests_requester_created ON requests (requester_id, create_date DESC);
+CREATE INDEX IF NOT EXISTS idx_requests_created ON requests (create_date DESC);
@@ -0,0 +1,3 @@
+-- Версии строк для оптимистической блокировки: обновление сравнивает и увеличивает version
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
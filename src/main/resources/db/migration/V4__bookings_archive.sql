@@ -0,0 +1,23 @@
+-- Архив бронирований, закончившихся давно: те же столбцы, id сохраняются при переносе
+CREATE TABLE IF NOT EXISTS bookings_archive (
+    id BIGINT NOT NULL,
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    item_id BIGINT NOT NULL,
+    booker_id BIGINT NOT NULL,
+    status VARCHAR(24),
+    CONSTRAINT pk_booking_archive PRIMARY KEY (id),
+    CONSTRAINT FK_BOOKING_ARCHIVE_ON_BOOKER FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE,
+    CONSTRAINT FK_BOOKING_ARCHIVE_ON_ITEM FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE
+);
+
+-- Архивные бронирования пользователя и владельца (через item_id) по убыванию начала
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_booker_start
+    ON bookings_archive (booker_id, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_item_status_start
+    ON bookings_archive (item_id, status, start_date, end_date);
+-- Проверка перед отзывом по архиву
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_booker_item_end
+    ON bookings_archive (booker_id, item_id, end_date);
+-- Отбор закончившихся бронирований для переноса в архив
+CREATE INDEX IF NOT EXISTS idx_bookings_end ON bookings (end_date, id);
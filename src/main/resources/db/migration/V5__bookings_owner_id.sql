@@ -0,0 +1,19 @@
+-- Владелец предмета копируется в бронирования, чтобы выборки владельца не соединялись с items
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS owner_id BIGINT;
+ALTER TABLE bookings_archive ADD COLUMN IF NOT EXISTS owner_id BIGINT;
+UPDATE bookings b SET owner_id = (SELECT i.owner_id FROM items i WHERE i.id = b.item_id);
+UPDATE bookings_archive b SET owner_id = (SELECT i.owner_id FROM items i WHERE i.id = b.item_id);
+ALTER TABLE bookings ALTER COLUMN owner_id SET NOT NULL;
+ALTER TABLE bookings_archive ALTER COLUMN owner_id SET NOT NULL;
+
+-- Пара (item_id, owner_id) ссылается на items: при смене владельца предмета копии обновляются каскадом
+ALTER TABLE items ADD CONSTRAINT uq_item_owner UNIQUE (id, owner_id);
+ALTER TABLE bookings ADD CONSTRAINT FK_BOOKING_ON_ITEM_OWNER FOREIGN KEY (item_id, owner_id)
+    REFERENCES items (id, owner_id) ON UPDATE CASCADE ON DELETE CASCADE;
+ALTER TABLE bookings_archive ADD CONSTRAINT FK_BOOKING_ARCHIVE_ON_ITEM_OWNER FOREIGN KEY (item_id, owner_id)
+    REFERENCES items (id, owner_id) ON UPDATE CASCADE ON DELETE CASCADE;
+
+-- Бронирования владельца: те же индексы, что и для бронирующего
+CREATE INDEX IF NOT EXISTS idx_bookings_owner_start ON bookings (owner_id, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_owner_status_start ON bookings (owner_id, status, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_owner_start ON bookings_archive (owner_id, start_date DESC, id DESC);
@@ -0,0 +1,183 @@
+package ru.practicum.shareit;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingHistoryRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет по EXPLAIN в H2, что запросы репозиториев идут по индексам, а не полным просмотром таблиц.
+ * SQL перехватывается через StatementInspector Hibernate и разбирается с пустыми параметрами.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "ru.practicum.shareit.QueryPlanTest$SqlCaptor")
+class QueryPlanTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final PageRequest page = PageRequest.of(0, 10);
+
+    public static class SqlCaptor implements StatementInspector {
+        private static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public synchronized String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+
+        static synchronized List<String> take() {
+            List<String> statements = new ArrayList<>(STATEMENTS);
+            STATEMENTS.clear();
+            return statements;
+        }
+    }
+
+    @Test
+    void bookerQueriesUseIndexes() {
+        assertUsesIndexes(() -> bookingRepository.findByBookerIdAndStartAfterOrderByStartDesc(1L, now, page));
+        assertUsesIndexes(() -> bookingRepository.findByBookerIdAndStatusOrderByStartDesc(1L, Status.WAITING, page));
+        assertUsesIndexes(() -> bookingRepository.findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(1L, now,
+                now, page));
+        assertUsesIndexes(() -> bookingRepository.findByBookerIdAndItemIdAndEndBeforeOrderByEndDesc(1L, 1L, now));
+        assertUsesIndexes(() -> bookingRepository.findByBookerIdAfterCursor(1L, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findCurrentByBookerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findPastByBookerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findFutureByBookerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findByBookerIdAndStatusAfterCursor(1L, Status.WAITING, now, 1L,
+                page));
+    }
+
+    @Test
+    void ownerQueriesUseIndexes() {
+        assertUsesIndexes(() -> bookingRepository.findByItemOwnerIdAndStartAfterOrderByStartDesc(1L, now, page));
+        assertUsesIndexes(() -> bookingRepository.findByItemOwnerIdAndStatusOrderByStartDesc(1L, Status.WAITING,
+                page));
+        assertUsesIndexes(() -> bookingRepository.findByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(1L,
+                now, now, page));
+        assertUsesIndexes(() -> bookingRepository.findByItemOwnerIdAfterCursor(1L, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findCurrentByItemOwnerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findPastByItemOwnerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findFutureByItemOwnerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> bookingRepository.findByItemOwnerIdAndStatusAfterCursor(1L, Status.WAITING, now, 1L,
+                page));
+    }
+
+    @Test
+    void itemBookingQueriesUseIndexes() {
+        List<Status> statuses = List.of(Status.WAITING, Status.APPROVED);
+        assertUsesIndexes(() -> bookingRepository.findByItemIdAndStatusIn(1L, statuses));
+        assertUsesIndexes(() -> bookingRepository.findApprovalsByIdIn(List.of(1L, 2L)));
+        assertUsesIndexes(() -> bookingRepository.findStatusPeriodsByBookerId(1L));
+        assertUsesIndexes(() -> bookingRepository.findStatusPeriodsByItemOwnerId(1L));
+        assertUsesIndexes(() -> bookingRepository.findByItemIdAndStatusInAndStartBeforeAndEndAfterOrderByStart(1L,
+                statuses, now, now));
+        assertUsesIndexes(() -> bookingRepository.findLastBookingsByItemIds(List.of(1L, 2L), Status.APPROVED, now));
+        assertUsesIndexes(() -> bookingRepository.findNextBookingsByItemIds(List.of(1L, 2L), Status.APPROVED, now));
+    }
+
+    @Test
+    void archiveQueriesUseIndexes() {
+        assertUsesIndexes(() -> archivedBookingRepository.findById(1L));
+        assertUsesIndexes(() -> archivedBookingRepository.findByBookerIdAfterCursor(1L, now, 1L, page));
+        assertUsesIndexes(() -> archivedBookingRepository.findPastByBookerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> archivedBookingRepository.findByItemOwnerIdAfterCursor(1L, now, 1L, page));
+        assertUsesIndexes(() -> archivedBookingRepository.findPastByItemOwnerIdAfterCursor(1L, now, now, 1L, page));
+        assertUsesIndexes(() -> archivedBookingRepository.findByBookerIdAndStatusAfterCursor(1L, Status.REJECTED,
+                now, 1L, page));
+        assertUsesIndexes(() -> archivedBookingRepository.findByItemOwnerIdAndStatusAfterCursor(1L, Status.REJECTED,
+                now, 1L, page));
+        assertUsesIndexes(() -> archivedBookingRepository.existsByBookerIdAndItemIdAndEndBefore(1L, 1L, now));
+        assertUsesIndexes(() -> archivedBookingRepository.findLastBookingsByItemIds(List.of(1L, 2L),
+                Status.APPROVED, now));
+        assertUsesIndexes(() -> archivedBookingRepository.findStatusPeriodsByBookerId(1L));
+        assertUsesIndexes(() -> archivedBookingRepository.findStatusPeriodsByItemOwnerId(1L));
+        //Выборка для переноса блокирует строки и выполняется только в транзакции
+        assertUsesIndexes(() -> transactionTemplate.executeWithoutResult(status ->
+                bookingRepository.findIdsEndedBefore(now, page)));
+    }
+
+    @Test
+    void historyQueriesUseIndexes() {
+        //Обе части UNION ALL должны идти по индексам своих таблиц
+        //Выборки истории идут через JdbcTemplate мимо Hibernate, поэтому SQL перехватывается здесь
+        JdbcTemplate capturing = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                new SqlCaptor().inspect(sql);
+                return super.query(sql, rowMapper, args);
+            }
+        };
+        BookingHistoryRepository history = new BookingHistoryRepository(capturing);
+        assertUsesIndexes(() -> history.findByBookerId(1L, 0, 10));
+        assertUsesIndexes(() -> history.findPastByBookerId(1L, now, 0, 10));
+        assertUsesIndexes(() -> history.findByBookerIdAndStatus(1L, Status.REJECTED, 0, 10));
+        assertUsesIndexes(() -> history.findByItemOwnerId(1L, 0, 10));
+        assertUsesIndexes(() -> history.findPastByItemOwnerId(1L, now, 0, 10));
+        assertUsesIndexes(() -> history.findByItemOwnerIdAndStatus(1L, Status.REJECTED, 0, 10));
+    }
+
+    @Test
+    void itemAndRequestQueriesUseIndexes() {
+        assertUsesIndexes(() -> itemRepository.getItemsWithNextBookingByOwnerId(1L, now, 10, 0));
+        assertUsesIndexes(() -> itemRepository.getItemsWithNextBookingByOwnerIdAfter(1L, now, now, 1L, 10));
+        assertUsesIndexes(() -> itemRepository.countItemsWithNextBookingByOwnerId(1L, now));
+        assertUsesIndexes(() -> itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(1L, now, 1L, 10, 0));
+        assertUsesIndexes(() -> itemRepository.getItemsByItemRequestId(1L));
+        assertUsesIndexes(() -> commentRepository.findAllByItemId(1L));
+        assertUsesIndexes(() -> itemRequestRepository.findByRequesterIdOrderByCreatedDesc(1L));
+        assertUsesIndexes(() -> itemRequestRepository.findByRequesterIdNotOrderByCreatedDesc(1L, page));
+    }
+
+    private void assertUsesIndexes(Runnable query) {
+        SqlCaptor.take();
+        query.run();
+        List<String> statements = SqlCaptor.take();
+        assertFalse(statements.isEmpty(), "Запрос не выполнил ни одного SQL-выражения");
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertTrue(plan.contains("/* PUBLIC."), "Нет плана выполнения для " + sql);
+            assertFalse(plan.contains("tableScan"), "Полный просмотр таблицы:\n" + plan);
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.query("explain " + sql, statement -> {
+            int count = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= count; i++) {
+                statement.setObject(i, null);
+            }
+        }, resultSet -> resultSet.next() ? resultSet.getString(1) : "");
+    }
+}
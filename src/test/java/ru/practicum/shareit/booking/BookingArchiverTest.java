@@ -0,0 +1,172 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingArchiver;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Перенос давно закончившихся бронирований в архив порциями и чтение, объединяющее основную таблицу с архивом.
+ */
+@SpringBootTest(properties = "shareit.bookings.archive.batch-size=2")
+class BookingArchiverTest {
+    @Autowired
+    private BookingArchiver bookingArchiver;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private BookingSummaryIndex bookingSummaryIndex;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private User owner;
+    private User booker;
+    private Item item;
+    //Все брони по убыванию начала, как их возвращают списки
+    private final List<Long> newestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@archive.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@archive.ru").build());
+        item = itemRepository.save(Item.builder()
+                .name("Палатка")
+                .description("Четырёхместная палатка")
+                .available(true)
+                .owner(owner)
+                .build());
+        newestFirst.add(saveBooking(now.plusDays(3), now.plusDays(4), Status.WAITING));
+        newestFirst.add(saveBooking(now.minusDays(1), now.plusDays(1), Status.WAITING));
+        for (int month = 12; month <= 16; month++) {
+            newestFirst.add(saveBooking(now.minusMonths(month), now.minusMonths(month).plusDays(2),
+                    Status.APPROVED));
+        }
+        bookingSummaryIndex.rebuildAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll();
+        archivedBookingRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void archiveTestMovesOnlyLongFinishedBookings() {
+        assertThat(bookingArchiver.archive(now), equalTo(5));
+        assertThat(bookingRepository.count(), equalTo(2L));
+        assertThat(archivedBookingRepository.count(), equalTo(5L));
+        assertThat(bookingArchiver.archive(now), equalTo(0));
+    }
+
+    @Test
+    void getBookingsTestMergesArchiveInStartOrder() {
+        bookingArchiver.archive(now);
+        assertThat(ids(bookingService.getBookingsByUserId(booker.getId(), State.ALL, 0, 10)), equalTo(newestFirst));
+        assertThat(ids(bookingService.getBookingsByOwnerId(owner.getId(), State.ALL, 2, 2)),
+                equalTo(newestFirst.subList(2, 4)));
+        assertThat(ids(bookingService.getBookingsByUserId(booker.getId(), State.PAST, 4, 2)),
+                equalTo(newestFirst.subList(6, 7)));
+        assertThat(ids(bookingService.getBookingsByUserId(booker.getId(), State.WAITING, 0, 10)),
+                equalTo(newestFirst.subList(0, 2)));
+
+        BookingDto second = bookingService.getBookingById(booker.getId(), newestFirst.get(1));
+        List<BookingDto> afterSecond = bookingService.getBookingsByOwnerIdAfter(owner.getId(), State.ALL,
+                new Cursor(second.getStart(), second.getId()), 3);
+        assertThat(ids(afterSecond), equalTo(newestFirst.subList(2, 5)));
+    }
+
+    @Test
+    void getBookingsTestListsArchivedRejectedBookings() {
+        Long rejected = saveBooking(now.minusMonths(20), now.minusMonths(20).plusDays(1), Status.REJECTED);
+        Long recentRejected = saveBooking(now.minusDays(5), now.minusDays(4), Status.REJECTED);
+        assertThat(bookingArchiver.archive(now), equalTo(6));
+        assertThat(archivedBookingRepository.existsById(rejected), equalTo(true));
+
+        assertThat(ids(bookingService.getBookingsByUserId(booker.getId(), State.REJECTED, 0, 10)),
+                equalTo(List.of(recentRejected, rejected)));
+        assertThat(ids(bookingService.getBookingsByOwnerId(owner.getId(), State.REJECTED, 1, 1)),
+                equalTo(List.of(rejected)));
+
+        BookingDto recent = bookingService.getBookingById(booker.getId(), recentRejected);
+        Cursor afterRecent = new Cursor(recent.getStart(), recent.getId());
+        assertThat(ids(bookingService.getBookingsByUserIdAfter(booker.getId(), State.REJECTED, afterRecent, 10)),
+                equalTo(List.of(rejected)));
+        assertThat(ids(bookingService.getBookingsByOwnerIdAfter(owner.getId(), State.REJECTED, afterRecent, 10)),
+                equalTo(List.of(rejected)));
+    }
+
+    @Test
+    void archivedBookingsStayVisible() {
+        bookingArchiver.archive(now);
+        BookingDto archived = bookingService.getBookingById(owner.getId(), newestFirst.get(2));
+        assertThat(archived.getStatus(), equalTo(Status.APPROVED));
+        assertThat(archived.getItem().getId(), equalTo(item.getId()));
+
+        assertThat(bookingService.getBookingSummaryByUserId(booker.getId()).getAll(), equalTo(7));
+        assertThat(bookingService.getBookingSummaryByOwnerId(owner.getId()).getPast(), equalTo(5));
+
+        ItemDto itemDto = itemService.getItemById(owner.getId(), item.getId());
+        assertThat(itemDto.getLastBooking().getId(), equalTo(newestFirst.get(2)));
+
+        CommentDto comment = itemService.addComment(booker.getId(), item.getId(),
+                CommentDto.builder().text("Не протекает").build());
+        assertThat(comment.getId(), notNullValue());
+    }
+
+    private Long saveBooking(LocalDateTime start, LocalDateTime end, Status status) {
+        return bookingRepository.save(Booking.builder()
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .start(start)
+                .end(end)
+                .build()).getId();
+    }
+
+    private static List<Long> ids(List<BookingDto> bookings) {
+        return bookings.stream()
+                .map(BookingDto::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,145 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.calendar.BookingCalendar;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Параллельные решения владельца по одним и тем же бронированиям: ни одно подтверждение не теряется,
+ * проигравшие запросы получают конфликт, а не перезаписывают чужой статус.
+ */
+@SpringBootTest
+class BookingConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int BOOKINGS = 40;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingCalendar bookingCalendar;
+
+    private User owner;
+    private final List<Long> bookingIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@race.ru").build());
+        User booker = userRepository.save(User.builder().name("Booker").email("booker@race.ru").build());
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < BOOKINGS; i++) {
+            Item item = itemRepository.save(Item.builder()
+                    .name("Пила " + i)
+                    .description("Циркулярная пила")
+                    .available(true)
+                    .owner(owner)
+                    .build());
+            bookingIds.add(bookingRepository.save(Booking.builder()
+                    .item(item)
+                    .booker(booker)
+                    .status(Status.WAITING)
+                    .start(start)
+                    .end(start.plusDays(1))
+                    .build()).getId());
+        }
+        bookingCalendar.rebuildAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentDecisionsDoNotOverwriteEachOther() throws Exception {
+        Map<Long, AtomicInteger> approvals = new ConcurrentHashMap<>();
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger alreadyApproved = new AtomicInteger();
+        CountDownLatch startLine = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(t);
+            List<Long> order = new ArrayList<>(bookingIds);
+            Collections.shuffle(order, random);
+            futures.add(executor.submit(() -> {
+                startLine.await();
+                for (Long bookingId : order) {
+                    boolean approved = random.nextBoolean();
+                    try {
+                        bookingService.approveBooking(bookingId, owner.getId(), approved);
+                        applied.incrementAndGet();
+                        if (approved) {
+                            approvals.computeIfAbsent(bookingId, id -> new AtomicInteger()).incrementAndGet();
+                        }
+                    } catch (ConflictException e) {
+                        conflicts.incrementAndGet();
+                    } catch (ValidationException e) {
+                        //Бронь уже подтверждена другим потоком
+                        alreadyApproved.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        startLine.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(applied.get(), greaterThan(0));
+        //Каждое решение либо применено, либо явно отвергнуто: молча потерянных нет
+        assertThat(applied.get() + conflicts.get() + alreadyApproved.get(), equalTo(THREADS * BOOKINGS));
+        for (Long bookingId : bookingIds) {
+            Status status = bookingRepository.findById(bookingId).orElseThrow().getStatus();
+            AtomicInteger approved = approvals.get(bookingId);
+            //Подтверждение окончательно: успешным может быть только одно, и его не перезаписывает отклонение
+            if (approved != null) {
+                assertThat(approved.get(), lessThanOrEqualTo(1));
+                assertThat(status, equalTo(Status.APPROVED));
+            } else {
+                assertThat(status == Status.APPROVED, equalTo(false));
+            }
+        }
+    }
+}
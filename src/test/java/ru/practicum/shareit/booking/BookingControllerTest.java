@@ -7,20 +7,40 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.booking.service.BookingExporter;
+import ru.practicum.shareit.booking.service.BookingIntake;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.stream.BookingStreamHub;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.pagination.Cursor;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = BookingController.class)
@@ -33,6 +53,15 @@ public class BookingControllerTest {
 
     @MockBean
     private BookingService bookingService;
+
+    @MockBean
+    private BookingExporter bookingExporter;
+
+    @MockBean
+    private BookingStreamHub bookingStreamHub;
+
+    @MockBean
+    private BookingIntake bookingIntake;
     Long userId = 1L;
     private final BookingDto bookingDto = BookingDto.builder()
             .id(1L)
@@ -71,6 +100,37 @@ public class BookingControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void addBookingTestThroughIntakeQueue() throws Exception {
+        when(bookingIntake.isEnabled()).thenReturn(true);
+        when(bookingIntake.addBooking(anyLong(), any())).thenReturn(bookingDto);
+
+        mvc.perform(post("/bookings")
+                        .header("X-Sharer-User-Id", userId)
+                        .content(mapper.writeValueAsString(bookingDto))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(bookingDto.getId()), Long.class));
+        verify(bookingService, never()).addBooking(anyLong(), any());
+    }
+
+    @Test
+    void addBookingTestWhenIntakeQueueIsFull() throws Exception {
+        when(bookingIntake.isEnabled()).thenReturn(true);
+        when(bookingIntake.addBooking(anyLong(), any()))
+                .thenThrow(new ServiceUnavailableException("Слишком много бронирований одновременно"));
+
+        mvc.perform(post("/bookings")
+                        .header("X-Sharer-User-Id", userId)
+                        .content(mapper.writeValueAsString(bookingDto))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     void getBookingByIdTestCorrect() throws Exception {
         when(bookingService.getBookingById(anyLong(), anyLong())).thenReturn(bookingDto);
@@ -118,6 +178,44 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[0].status", is(bookingDto.getStatus().toString())));
     }
 
+    @Test
+    void getBookingsByUserIdWithCursorTest() throws Exception {
+        Cursor cursor = new Cursor(LocalDateTime.of(2030, 1, 1, 10, 0), 7L);
+        when(bookingService.getBookingsByUserIdAfter(anyLong(), any(), any(), anyInt()))
+                .thenReturn(List.of(bookingDto));
+
+        mvc.perform(get("/bookings")
+                        .header("X-Sharer-User-Id", userId)
+                        .param("state", "PAST")
+                        .param("cursor", cursor.encode())
+                        .param("size", "1")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string(Cursor.HEADER,
+                        new Cursor(bookingDto.getStart(), bookingDto.getId()).encode()));
+        verify(bookingService, times(1)).getBookingsByUserIdAfter(userId, State.PAST, cursor, 1);
+        verify(bookingService, never()).getBookingsByUserId(anyLong(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getBookingsByOwnerIdWithCursorTest() throws Exception {
+        Cursor cursor = new Cursor(LocalDateTime.of(2030, 1, 1, 10, 0), 7L);
+        when(bookingService.getBookingsByOwnerIdAfter(anyLong(), any(), any(), anyInt()))
+                .thenReturn(List.of(bookingDto));
+
+        mvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", userId)
+                        .param("cursor", cursor.encode())
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().doesNotExist(Cursor.HEADER));
+        verify(bookingService, times(1)).getBookingsByOwnerIdAfter(userId, State.ALL, cursor, 10);
+    }
+
     @Test
     void approveTest() throws Exception {
         when(bookingService.approveBooking(anyLong(), anyLong(), anyBoolean())).thenReturn(bookingDto);
@@ -131,4 +229,128 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.id").value(bookingDto.getId()))
                 .andExpect(jsonPath("$.status").value(bookingDto.getStatus().toString()));
     }
+
+    @Test
+    void getBookingSummaryByOwnerIdTest() throws Exception {
+        when(bookingService.getBookingSummaryByOwnerId(anyLong())).thenReturn(BookingSummaryDto.builder()
+                .all(4).current(1).past(2).future(1).waiting(1).rejected(0).build());
+
+        mvc.perform(get("/bookings/owner/summary")
+                        .header("X-Sharer-User-Id", userId)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.all", is(4)))
+                .andExpect(jsonPath("$.past", is(2)))
+                .andExpect(jsonPath("$.rejected", is(0)));
+        verify(bookingService, times(1)).getBookingSummaryByOwnerId(userId);
+    }
+
+    @Test
+    void exportBookingsByOwnerIdTest() throws Exception {
+        when(bookingExporter.exportByItemOwnerId(anyLong()))
+                .thenReturn(out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", userId))
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+        verify(bookingExporter, times(1)).exportByItemOwnerId(userId);
+    }
+
+    @Test
+    void exportBookingsByUserIdTestWhenUserNotFound() throws Exception {
+        when(bookingExporter.exportByBookerId(anyLong()))
+                .thenThrow(new NotFoundException("Пользователь c id = 1 не найден"));
+
+        mvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", userId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void streamBookingsByOwnerIdTestPassesLastEventId() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(bookingStreamHub.subscribe(anyLong(), any())).thenReturn(emitter);
+
+        MvcResult result = mvc.perform(get("/bookings/owner/stream")
+                        .header("X-Sharer-User-Id", userId)
+                        .header("Last-Event-ID", "7")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().id("8").name("booking").data(bookingDto, MediaType.APPLICATION_JSON));
+        emitter.complete();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM));
+        assertThat(result.getResponse().getContentAsString(), containsString("id:8\nevent:booking\n"));
+        verify(bookingStreamHub, times(1)).subscribe(userId, 7L);
+    }
+
+    @Test
+    void approveBookingTestWhenConflict() throws Exception {
+        when(bookingService.approveBooking(anyLong(), anyLong(), anyBoolean()))
+                .thenThrow(new ConflictException("Статус бронирования с id = 1 уже изменён другим запросом"));
+
+        mvc.perform(patch("/bookings/1")
+                        .header("X-Sharer-User-Id", userId)
+                        .param("approved", "true")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error", is("Статус бронирования с id = 1 уже изменён другим запросом")));
+    }
+
+    @Test
+    void approveBookingsTest() throws Exception {
+        List<BookingDecisionDto> decisions = List.of(new BookingDecisionDto(1L, true),
+                new BookingDecisionDto(2L, false));
+        when(bookingService.approveBookings(anyLong(), anyList())).thenReturn(List.of(
+                BookingDecisionResultDto.builder().bookingId(1L).status(Status.APPROVED).build(),
+                BookingDecisionResultDto.builder().bookingId(2L).error("Бронирование с id = 2 не найдена").build()));
+
+        mvc.perform(patch("/bookings/batch")
+                        .header("X-Sharer-User-Id", userId)
+                        .content(mapper.writeValueAsString(decisions))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status", is("APPROVED")))
+                .andExpect(jsonPath("$[1].error", is("Бронирование с id = 2 не найдена")));
+        verify(bookingService, times(1)).approveBookings(userId, decisions);
+    }
+
+    @Test
+    void approveBookingsTestWhenDecisionIsIncomplete() throws Exception {
+        mvc.perform(patch("/bookings/batch")
+                        .header("X-Sharer-User-Id", userId)
+                        .content("[{\"bookingId\": 1}]")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(bookingService);
+    }
+
+    @Test
+    void approveBookingsTestWhenTooManyDecisions() throws Exception {
+        List<BookingDecisionDto> decisions = LongStream.rangeClosed(1, 101)
+                .mapToObj(id -> new BookingDecisionDto(id, true))
+                .collect(Collectors.toList());
+
+        mvc.perform(patch("/bookings/batch")
+                        .header("X-Sharer-User-Id", userId)
+                        .content(mapper.writeValueAsString(decisions))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(bookingService);
+    }
 }
@@ -0,0 +1,180 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.calendar.BookingCalendar;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.journal.BookingJournal;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingExpiryScheduler;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Истечение ожидающих бронирований по колесу таймеров, восстановленному из БД, и по таймерам новых броней.
+ */
+@SpringBootTest
+class BookingExpirySchedulerTest {
+    @Autowired
+    private BookingExpiryScheduler bookingExpiryScheduler;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingCalendar bookingCalendar;
+    @Autowired
+    private BookingSummaryIndex bookingSummaryIndex;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private BookingJournal bookingJournal;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private User owner;
+    private User booker;
+    private Item item;
+    private Long started;
+    private Long future;
+    private Long approved;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@expiry.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@expiry.ru").build());
+        item = itemRepository.save(Item.builder()
+                .name("Велосипед")
+                .description("Горный велосипед")
+                .available(true)
+                .owner(owner)
+                .build());
+        started = saveBooking(now.minusHours(1), now.plusDays(1), Status.WAITING);
+        future = saveBooking(now.plusDays(2), now.plusDays(3), Status.WAITING);
+        approved = saveBooking(now.minusDays(3), now.minusDays(2), Status.APPROVED);
+        bookingCalendar.rebuildAll();
+        bookingCalendar.rebuild(item.getId());
+        bookingSummaryIndex.rebuildAll();
+        //Как после перезапуска: таймеры восстанавливаются из ожидающих броней в БД
+        bookingExpiryScheduler.reload(now);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+        bookingExpiryScheduler.reload(LocalDateTime.now());
+    }
+
+    @Test
+    void expireTestExpiresOnlyStartedWaitingBookings() {
+        assertThat(bookingExpiryScheduler.expire(now), equalTo(1));
+        assertThat(status(started), equalTo(Status.EXPIRED));
+        assertThat(status(future), equalTo(Status.WAITING));
+        assertThat(status(approved), equalTo(Status.APPROVED));
+        assertThat(bookingExpiryScheduler.expire(now.plusSeconds(1)), equalTo(0));
+
+        //Срок округляется вверх до тика колеса, поэтому бронь истекает не позже чем через тик после начала
+        assertThat(bookingExpiryScheduler.expire(now.plusDays(2).plusSeconds(1)), equalTo(1));
+        assertThat(status(future), equalTo(Status.EXPIRED));
+    }
+
+    @Test
+    void expireTestFreesCalendarAndUpdatesSummary() {
+        User other = userRepository.save(User.builder().name("Other").email("other@expiry.ru").build());
+        BookingDto overlapping = BookingDto.builder()
+                .itemId(item.getId())
+                .start(now.plusHours(2))
+                .end(now.plusHours(3))
+                .build();
+        bookingService.getBookingSummaryByUserId(booker.getId());
+        assertThrows(ValidationException.class, () -> bookingService.addBooking(other.getId(), overlapping));
+
+        assertThat(bookingExpiryScheduler.expire(now), equalTo(1));
+        assertThat(bookingService.addBooking(other.getId(), overlapping).getStatus(), equalTo(Status.WAITING));
+        assertThat(bookingService.getBookingSummaryByUserId(booker.getId()).getExpired(), equalTo(1));
+        assertThat(bookingService.getBookingSummaryByUserId(booker.getId()).getWaiting(), equalTo(1));
+        assertThrows(ValidationException.class, () -> bookingService.approveBooking(started, owner.getId(), true));
+    }
+
+    @Test
+    void expireTestExpiresBookingsAddedThroughService() {
+        BookingDto added = bookingService.addBooking(booker.getId(), BookingDto.builder()
+                .itemId(item.getId())
+                .start(now.plusDays(5))
+                .end(now.plusDays(6))
+                .build());
+        assertThat(bookingExpiryScheduler.expire(now.plusDays(4)), equalTo(2));
+        assertThat(status(added.getId()), equalTo(Status.WAITING));
+        assertThat(bookingExpiryScheduler.expire(now.plusDays(5).plusSeconds(1)), equalTo(1));
+        assertThat(status(added.getId()), equalTo(Status.EXPIRED));
+    }
+
+    @Test
+    void expireTestKeepsBookingApprovedBeforeUpdate() {
+        User other = userRepository.save(User.builder().name("Other").email("other@expiry.ru").build());
+        //Решение владельца фиксируется между выборкой ожидающих броней и условным UPDATE
+        BookingRepository racing = mock(BookingRepository.class, delegatesTo(bookingRepository));
+        doAnswer(invocation -> {
+            List<Long> waiting = bookingRepository.findIdsStartedBefore(invocation.getArgument(0),
+                    invocation.getArgument(1), invocation.getArgument(2));
+            jdbcTemplate.update("update bookings set status = 'APPROVED' where id = ?", started);
+            return waiting;
+        }).when(racing).findIdsStartedBefore(any(), any(), any());
+        BookingExpiryScheduler scheduler = new BookingExpiryScheduler(racing, bookingCalendar, bookingSummaryIndex,
+                transactionTemplate, bookingJournal, 1000, 500);
+        scheduler.reload(now);
+
+        assertThat(scheduler.expire(now), equalTo(0));
+        assertThat(status(started), equalTo(Status.APPROVED));
+        BookingDto overlapping = BookingDto.builder()
+                .itemId(item.getId())
+                .start(now.plusHours(2))
+                .end(now.plusHours(3))
+                .build();
+        assertThrows(ValidationException.class, () -> bookingService.addBooking(other.getId(), overlapping));
+        assertThat(bookingService.getBookingSummaryByUserId(booker.getId()).getExpired(), equalTo(0));
+    }
+
+    private Status status(Long bookingId) {
+        return bookingRepository.findById(bookingId).orElseThrow().getStatus();
+    }
+
+    private Long saveBooking(LocalDateTime start, LocalDateTime end, Status status) {
+        return bookingRepository.save(Booking.builder()
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .start(start)
+                .end(end)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,131 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingArchiver;
+import ru.practicum.shareit.booking.service.BookingExporter;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Выгрузка истории бронирований в NDJSON из основной таблицы и архива; fetch size меньше числа строк,
+ * чтобы курсор дочитывал результат несколькими порциями.
+ */
+@SpringBootTest(properties = "shareit.bookings.export.fetch-size=2")
+class BookingExporterTest {
+    @Autowired
+    private BookingExporter bookingExporter;
+    @Autowired
+    private BookingArchiver bookingArchiver;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private User owner;
+    private User booker;
+    private Item item;
+    //Все брони по убыванию начала, как их возвращают списки
+    private final List<Long> newestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@export.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@export.ru").build());
+        item = itemRepository.save(Item.builder()
+                .name("Байдарка")
+                .description("Двухместная байдарка")
+                .available(true)
+                .owner(owner)
+                .build());
+        newestFirst.add(saveBooking(now.plusDays(3), now.plusDays(4), Status.WAITING));
+        newestFirst.add(saveBooking(now.minusDays(1), now.plusDays(1), Status.APPROVED));
+        for (int month = 12; month <= 14; month++) {
+            newestFirst.add(saveBooking(now.minusMonths(month), now.minusMonths(month).plusDays(2),
+                    Status.APPROVED));
+        }
+        bookingArchiver.archive(now);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archivedBookingRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void exportByItemOwnerIdTestStreamsHotAndArchivedBookings() throws Exception {
+        String ndjson = export(bookingExporter.exportByItemOwnerId(owner.getId()));
+        assertThat(ndjson, endsWith("\n"));
+
+        String[] lines = ndjson.split("\n");
+        List<Long> ids = new ArrayList<>();
+        for (String line : lines) {
+            ids.add(objectMapper.readValue(line, BookingDto.class).getId());
+        }
+        assertThat(ids, equalTo(newestFirst));
+
+        BookingDto archived = objectMapper.readValue(lines[4], BookingDto.class);
+        assertThat(archived.getStatus(), equalTo(Status.APPROVED));
+        assertThat(archived.getItem().getName(), equalTo("Байдарка"));
+        assertThat(archived.getBooker().getEmail(), equalTo("booker@export.ru"));
+    }
+
+    @Test
+    void exportByBookerIdTestWhenNoBookings() throws Exception {
+        assertThat(export(bookingExporter.exportByBookerId(owner.getId())), equalTo(""));
+    }
+
+    @Test
+    void exportByBookerIdTestWhenUserNotFound() {
+        assertThrows(NotFoundException.class, () -> bookingExporter.exportByBookerId(-1L));
+    }
+
+    private String export(StreamingResponseBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Long saveBooking(LocalDateTime start, LocalDateTime end, Status status) {
+        return bookingRepository.save(Booking.builder()
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .start(start)
+                .end(end)
+                .build()).getId();
+    }
+}
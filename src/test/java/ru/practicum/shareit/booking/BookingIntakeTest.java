@@ -0,0 +1,187 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.calendar.BookingCalendar;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingIntake;
+import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Очередь приёма бронирований. Поток записи в контексте выключен, и очередь записывается вызовом flush,
+ * поэтому состав пакета известен тесту; отдельный тест проверяет запись фоновым потоком.
+ */
+@SpringBootTest(properties = "shareit.bookings.intake.capacity=3")
+class BookingIntakeTest {
+    @Autowired
+    private BookingIntake bookingIntake;
+    @Autowired
+    private BookingServiceImpl bookingService;
+    @Autowired
+    private BookingCalendar bookingCalendar;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@intake.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@intake.ru").build());
+        item = itemRepository.save(Item.builder()
+                .name("Лодка")
+                .description("Надувная лодка")
+                .available(true)
+                .owner(owner)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingIntake.flush();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void flushTestWritesQueuedBookingsInOneBatch() throws Exception {
+        CompletableFuture<BookingDto> first = bookingIntake.submit(booker.getId(), putBooking(1, 2));
+        CompletableFuture<BookingDto> second = bookingIntake.submit(booker.getId(), putBooking(3, 4));
+        assertThat(first.isDone(), equalTo(false));
+
+        bookingIntake.flush();
+
+        BookingDto created = first.get(5, TimeUnit.SECONDS);
+        assertThat(created.getId(), notNullValue());
+        assertThat(created.getStatus(), equalTo(Status.WAITING));
+        assertThat(created.getItem().getName(), equalTo("Лодка"));
+        assertThat(created.getBooker().getEmail(), equalTo("booker@intake.ru"));
+        assertThat(second.get(5, TimeUnit.SECONDS).getId(), equalTo(created.getId() + 1));
+        Booking saved = bookingRepository.findById(created.getId()).orElseThrow();
+        assertThat(saved.getOwnerId(), equalTo(owner.getId()));
+        assertThat(saved.getStart(), equalTo(now.plusDays(1)));
+    }
+
+    @Test
+    void flushTestRejectsOverlappingBookingFromSameBatch() throws Exception {
+        CompletableFuture<BookingDto> first = bookingIntake.submit(booker.getId(), putBooking(1, 3));
+        CompletableFuture<BookingDto> overlapping = bookingIntake.submit(booker.getId(), putBooking(2, 4));
+
+        bookingIntake.flush();
+
+        Long id = first.get(5, TimeUnit.SECONDS).getId();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> overlapping.get(5, TimeUnit.SECONDS));
+        assertThat(e.getCause(), instanceOf(ValidationException.class));
+        assertThat(bookingRepository.count(), equalTo(1L));
+        assertThat(bookingRepository.findAll().get(0).getId(), equalTo(id));
+        //Отклонённая бронь не осталась в календаре: её интервал можно занять снова после отмены первой
+        assertThat(bookingCalendar.tryAdd(item.getId(), -1L, now.plusDays(3), now.plusDays(4)), equalTo(true));
+    }
+
+    @Test
+    void submitTestWhenQueueIsFull() {
+        for (int day = 1; day <= 3; day++) {
+            bookingIntake.submit(booker.getId(), putBooking(day * 2, day * 2 + 1));
+        }
+        assertThrows(ServiceUnavailableException.class,
+                () -> bookingIntake.submit(booker.getId(), putBooking(10, 11)));
+    }
+
+    @Test
+    void submitTestValidatesBeforeQueueing() {
+        assertThrows(NotFoundException.class, () -> bookingIntake.submit(owner.getId(), putBooking(1, 2)));
+        assertThrows(NotFoundException.class, () -> bookingIntake.submit(-1L, putBooking(1, 2)));
+    }
+
+    @Test
+    void addBookingTestWaitsForBackgroundWriter() throws Exception {
+        BookingIntake enabled = new BookingIntake(bookingService, bookingRepository, jdbcTemplate,
+                transactionManager, true, 10, 10, 1, 5_000L);
+        try {
+            BookingDto created = enabled.addBooking(booker.getId(), putBooking(1, 2));
+            assertThat(bookingRepository.existsById(created.getId()), equalTo(true));
+            assertThrows(ValidationException.class, () -> enabled.addBooking(booker.getId(), putBooking(1, 2)));
+        } finally {
+            enabled.shutdown();
+        }
+    }
+
+    @Test
+    void addBookingTestGivesUpAfterTimeout() {
+        //Без потока записи бронь не дождётся записи и снимается с очереди
+        BookingIntake stalled = new BookingIntake(bookingService, bookingRepository, jdbcTemplate,
+                transactionManager, false, 10, 10, 1, 50L);
+        assertThrows(ServiceUnavailableException.class, () -> stalled.addBooking(booker.getId(), putBooking(1, 2)));
+        stalled.flush();
+        assertThat(bookingRepository.count(), equalTo(0L));
+    }
+
+    @Test
+    void flushTestFailsBatchAndKeepsWritingAfterError() throws Exception {
+        JdbcTemplate failing = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> T execute(ConnectionCallback<T> action) {
+                throw new AssertionError("Сбой записи");
+            }
+        };
+        BookingIntake enabled = new BookingIntake(bookingService, bookingRepository, failing,
+                transactionManager, true, 10, 10, 1, 5_000L);
+        try {
+            //Вторая бронь дожидается ответа только если периодическая запись пережила ошибку первой
+            for (int day = 1; day <= 3; day += 2) {
+                CompletableFuture<BookingDto> future = enabled.submit(booker.getId(), putBooking(day, day + 1));
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertThat(e.getCause(), instanceOf(AssertionError.class));
+            }
+        } finally {
+            enabled.shutdown();
+        }
+    }
+
+    private BookingDto putBooking(int startDay, int endDay) {
+        return BookingDto.builder()
+                .itemId(item.getId())
+                .start(now.plusDays(startDay))
+                .end(now.plusDays(endDay))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingView;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingHistoryRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingArchiver;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Копия владельца предмета в бронированиях: заполняется при создании брони, переносится в архив
+ * и следует за сменой владельца предмета.
+ */
+@SpringBootTest
+class BookingOwnerCopyTest {
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingArchiver bookingArchiver;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+    @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@copy.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@copy.ru").build());
+        item = itemRepository.save(Item.builder()
+                .name("Велосипед")
+                .description("Горный велосипед")
+                .available(true)
+                .owner(owner)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        archivedBookingRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void addBookingTestCopiesItemOwner() {
+        BookingDto booking = bookingService.addBooking(booker.getId(), BookingDto.builder()
+                .itemId(item.getId())
+                .start(now.plusDays(1))
+                .end(now.plusDays(2))
+                .build());
+        assertThat(ownerIdOf("bookings", booking.getId()), equalTo(owner.getId()));
+        assertThat(ids(bookingHistoryRepository.findByItemOwnerId(owner.getId(), 0, 10)),
+                equalTo(List.of(booking.getId())));
+    }
+
+    @Test
+    void itemOwnerChangeTestCascadesToHotAndArchivedBookings() {
+        Long archivedId = saveBooking(now.minusYears(1), now.minusYears(1).plusDays(1));
+        bookingArchiver.archive(now);
+        Long hotId = saveBooking(now.plusDays(1), now.plusDays(2));
+        User newOwner = userRepository.save(User.builder().name("New owner").email("new@copy.ru").build());
+
+        jdbcTemplate.update("update items set owner_id = ? where id = ?", newOwner.getId(), item.getId());
+
+        assertThat(ownerIdOf("bookings", hotId), equalTo(newOwner.getId()));
+        assertThat(ownerIdOf("bookings_archive", archivedId), equalTo(newOwner.getId()));
+        assertThat(ids(bookingHistoryRepository.findByItemOwnerId(newOwner.getId(), 0, 10)),
+                equalTo(List.of(hotId, archivedId)));
+        assertThat(bookingHistoryRepository.findByItemOwnerId(owner.getId(), 0, 10).size(), equalTo(0));
+    }
+
+    private Long saveBooking(LocalDateTime start, LocalDateTime end) {
+        return bookingRepository.save(Booking.builder()
+                .item(item)
+                .booker(booker)
+                .status(Status.APPROVED)
+                .start(start)
+                .end(end)
+                .build()).getId();
+    }
+
+    private Long ownerIdOf(String table, Long bookingId) {
+        return jdbcTemplate.queryForObject("select owner_id from " + table + " where id = ?", Long.class, bookingId);
+    }
+
+    private List<Long> ids(List<BookingView> views) {
+        return views.stream().map(BookingView::getId).collect(Collectors.toList());
+    }
+}
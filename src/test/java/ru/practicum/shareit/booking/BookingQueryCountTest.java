@@ -0,0 +1,220 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.shareit.booking.calendar.BookingCalendar;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Количество SQL-выражений на запрос к эндпоинтам бронирований не должно зависеть от числа бронирований.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class BookingQueryCountTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper mapper;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingCalendar bookingCalendar;
+    @Autowired
+    private BookingSummaryIndex bookingSummaryIndex;
+
+    private User owner;
+    private User booker;
+    private Item item;
+    private Booking booking;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@count.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@count.ru").build());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            item = itemRepository.save(Item.builder()
+                    .name("Дрель " + i)
+                    .description("Ударная дрель")
+                    .available(true)
+                    .owner(owner)
+                    .build());
+            for (int k = 0; k < 3; k++) {
+                booking = bookingRepository.save(Booking.builder()
+                        .item(item)
+                        .booker(booker)
+                        .status(Status.APPROVED)
+                        .start(now.plusDays(k * 2 - 2))
+                        .end(now.plusDays(k * 2 - 1))
+                        .build());
+            }
+        }
+        bookingCalendar.rebuildAll();
+        bookingSummaryIndex.rebuildAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getBookingsByUserIdTest() throws Exception {
+        //ALL, PAST и REJECTED читают страницу основной таблицы с архивом одним UNION ALL через JdbcTemplate,
+        //которого статистика Hibernate не видит: в ней остаётся только проверка пользователя
+        for (String state : new String[]{"ALL", "PAST", "REJECTED"}) {
+            assertThat(state, countStatements(get("/bookings")
+                    .header("X-Sharer-User-Id", booker.getId())
+                    .param("state", state)), equalTo(1L));
+        }
+        for (String state : new String[]{"CURRENT", "FUTURE", "WAITING"}) {
+            assertThat(state, countStatements(get("/bookings")
+                    .header("X-Sharer-User-Id", booker.getId())
+                    .param("state", state)), equalTo(2L));
+        }
+    }
+
+    @Test
+    void getBookingsByOwnerIdTest() throws Exception {
+        //ALL, PAST и REJECTED читают страницу основной таблицы с архивом одним UNION ALL через JdbcTemplate,
+        //которого статистика Hibernate не видит: в ней остаётся только проверка пользователя
+        for (String state : new String[]{"ALL", "PAST", "REJECTED"}) {
+            assertThat(state, countStatements(get("/bookings/owner")
+                    .header("X-Sharer-User-Id", owner.getId())
+                    .param("state", state)), equalTo(1L));
+        }
+        for (String state : new String[]{"CURRENT", "FUTURE", "WAITING"}) {
+            assertThat(state, countStatements(get("/bookings/owner")
+                    .header("X-Sharer-User-Id", owner.getId())
+                    .param("state", state)), equalTo(2L));
+        }
+    }
+
+    @Test
+    void getBookingsWithCursorTest() throws Exception {
+        String cursor = new Cursor(LocalDateTime.now().plusYears(1), 1L).encode();
+        assertThat(countStatements(get("/bookings")
+                .header("X-Sharer-User-Id", booker.getId())
+                .param("cursor", cursor)), equalTo(3L));
+        assertThat(countStatements(get("/bookings/owner")
+                .header("X-Sharer-User-Id", owner.getId())
+                .param("cursor", cursor)), equalTo(3L));
+        assertThat(countStatements(get("/bookings")
+                .header("X-Sharer-User-Id", booker.getId())
+                .param("state", "FUTURE")
+                .param("cursor", cursor)), equalTo(2L));
+    }
+
+    @Test
+    void getBookingByIdTest() throws Exception {
+        assertThat(countStatements(get("/bookings/{bookingId}", booking.getId())
+                .header("X-Sharer-User-Id", owner.getId())), equalTo(2L));
+    }
+
+    @Test
+    void getBookingSummaryTest() throws Exception {
+        //Первая сводка загружает брони пользователя из основной таблицы и архива, следующие читают только пользователя
+        assertThat(countStatements(get("/bookings/summary")
+                .header("X-Sharer-User-Id", booker.getId())), equalTo(3L));
+        assertThat(countStatements(get("/bookings/summary")
+                .header("X-Sharer-User-Id", booker.getId())), equalTo(1L));
+        assertThat(countStatements(get("/bookings/owner/summary")
+                .header("X-Sharer-User-Id", owner.getId())), equalTo(3L));
+        assertThat(countStatements(get("/bookings/owner/summary")
+                .header("X-Sharer-User-Id", owner.getId())), equalTo(1L));
+    }
+
+    @Test
+    void addAndApproveBookingTest() throws Exception {
+        BookingDto bookingDto = BookingDto.builder()
+                .itemId(item.getId())
+                .start(LocalDateTime.now().plusDays(10))
+                .end(LocalDateTime.now().plusDays(11))
+                .build();
+        //Предмет, пользователь, вставка брони и загрузка календаря предмета
+        assertThat(countStatements(post("/bookings")
+                .header("X-Sharer-User-Id", booker.getId())
+                .content(mapper.writeValueAsString(bookingDto))
+                .characterEncoding(StandardCharsets.UTF_8)
+                .contentType(MediaType.APPLICATION_JSON)), equalTo(4L));
+        Long bookingId = bookingRepository.findAll().stream()
+                .filter(saved -> saved.getStatus() == Status.WAITING)
+                .findFirst()
+                .orElseThrow()
+                .getId();
+        //Пользователь, бронь с предметом и автором, обновление статуса
+        assertThat(countStatements(patch("/bookings/{bookingId}", bookingId)
+                .header("X-Sharer-User-Id", owner.getId())
+                .param("approved", "true")), equalTo(3L));
+    }
+
+    @Test
+    void approveBookingsBatchTest() throws Exception {
+        List<BookingDecisionDto> decisions = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Booking waiting = bookingRepository.save(Booking.builder()
+                    .item(item)
+                    .booker(booker)
+                    .status(Status.WAITING)
+                    .start(LocalDateTime.now().plusDays(20 + i * 2))
+                    .end(LocalDateTime.now().plusDays(21 + i * 2))
+                    .build());
+            decisions.add(new BookingDecisionDto(waiting.getId(), i % 2 == 0));
+        }
+        //Пользователь, все брони пакета одним запросом, загрузка календаря предмета и по UPDATE на каждый статус
+        assertThat(countStatements(patch("/bookings/batch")
+                .header("X-Sharer-User-Id", owner.getId())
+                .content(mapper.writeValueAsString(decisions))
+                .characterEncoding(StandardCharsets.UTF_8)
+                .contentType(MediaType.APPLICATION_JSON)), equalTo(5L));
+        for (BookingDecisionDto decision : decisions) {
+            assertThat(bookingRepository.findById(decision.getBookingId()).orElseThrow().getStatus(),
+                    equalTo(decision.getApproved() ? Status.APPROVED : Status.REJECTED));
+        }
+    }
+
+    private long countStatements(RequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
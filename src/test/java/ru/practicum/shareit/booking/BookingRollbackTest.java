@@ -0,0 +1,76 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Откат транзакции с новой бронью освобождает её интервал в календаре предмета.
+ */
+@SpringBootTest
+class BookingRollbackTest {
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(User.builder().name("Owner").email("owner@rollback.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@rollback.ru").build());
+        item = itemRepository.save(Item.builder()
+                .name("Шуруповёрт")
+                .description("Аккумуляторный шуруповёрт")
+                .available(true)
+                .owner(owner)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void addBookingTestFreesIntervalOnRollback() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        BookingDto bookingDto = BookingDto.builder()
+                .itemId(item.getId())
+                .start(start)
+                .end(start.plusDays(1))
+                .build();
+        //Календарь предмета ещё не загружен: первая бронь загружает его внутри откатываемой транзакции
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookingService.addBooking(booker.getId(), bookingDto);
+            status.setRollbackOnly();
+        });
+        assertThat(bookingService.addBooking(booker.getId(), bookingDto).getId(), notNullValue());
+    }
+}
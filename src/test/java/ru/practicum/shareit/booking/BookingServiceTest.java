@@ -7,15 +7,31 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import ru.practicum.shareit.booking.calendar.BookingCalendar;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.calendar.OccupancyIndex;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.journal.BookingEventType;
+import ru.practicum.shareit.booking.journal.BookingJournal;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingApproval;
+import ru.practicum.shareit.booking.model.BookingView;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingHistoryRepository;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingExpiryScheduler;
 import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.booking.stream.BookingStreamHub;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
@@ -23,6 +39,7 @@ import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -46,6 +63,30 @@ public class BookingServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private BookingCalendar bookingCalendar;
+
+    @Mock
+    private OccupancyIndex occupancyIndex;
+
+    @Mock
+    private BookingSummaryIndex bookingSummaryIndex;
+
+    @Mock
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    @Mock
+    private BookingHistoryRepository bookingHistoryRepository;
+
+    @Mock
+    private BookingExpiryScheduler bookingExpiryScheduler;
+
+    @Mock
+    private BookingStreamHub bookingStreamHub;
+
+    @Mock
+    private BookingJournal bookingJournal;
+
     private User putUser(Long id) {
         return User.builder()
                 .id(id)
@@ -72,6 +113,14 @@ public class BookingServiceTest {
                 .build();
     }
 
+    private BookingView putView(Booking booking) {
+        Item item = booking.getItem();
+        User booker = booking.getBooker();
+        return new BookingView(booking.getId(), booking.getStart(), booking.getEnd(), booking.getStatus(),
+                item.getId(), item.getName(), item.getDescription(), item.getAvailable(), null,
+                booker.getId(), booker.getName(), booker.getEmail());
+    }
+
     private final LocalDateTime time = LocalDateTime
             .of(2023, Month.AUGUST, 5, 5, 5, 5);
 
@@ -84,6 +133,7 @@ public class BookingServiceTest {
         LocalDateTime end = time.plusHours(10);
         User booker = putUser(2L);
         Booking booking = putBooking(3L, booker, item);
+        booking.setOwnerId(user.getId());
         BookingDto bookingDto = BookingDto.builder()
                 .start(start)
                 .end(end)
@@ -92,6 +142,7 @@ public class BookingServiceTest {
         when(itemRepository.findById(bookingDto.getItemId())).thenReturn(Optional.of(item));
         when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
         when(bookingRepository.save(any())).thenReturn(booking);
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(true);
         BookingDto actualBookingDto = bookingService.addBooking(booker.getId(), bookingDto);
         assertThat(actualBookingDto.getId(), equalTo(booking.getId()));
         assertThat(actualBookingDto.getStatus(), equalTo(booking.getStatus()));
@@ -101,6 +152,12 @@ public class BookingServiceTest {
         verify(itemRepository, times(1)).findById(bookingDto.getItemId());
         verify(userRepository, times(1)).findById(booker.getId());
         verify(bookingRepository, times(1)).save(any());
+        verify(bookingSummaryIndex, times(1)).add(booker.getId(), user.getId(), booking.getId(), Status.WAITING,
+                booking.getStart(), booking.getEnd());
+        verify(bookingExpiryScheduler, times(1)).schedule(booking.getId(), booking.getStart());
+        verify(bookingStreamHub, times(1)).publish(user.getId(), actualBookingDto);
+        //Создание пишет в журнал поток бронирований, чтобы номер записи стал id события
+        verifyNoInteractions(bookingJournal);
     }
 
     @Test
@@ -168,6 +225,26 @@ public class BookingServiceTest {
         verify(bookingRepository, never()).save(any());
     }
 
+    @Test
+    void addBookingTestWhenDatesOverlap() {
+        User user = putUser(1L);
+        Item item = putItem(2L);
+        item.setOwner(user);
+        User booker = putUser(2L);
+        Booking booking = putBooking(3L, booker, item);
+        BookingDto bookingDto = BookingDto.builder()
+                .start(time)
+                .end(time.plusHours(10))
+                .itemId(item.getId())
+                .build();
+        when(itemRepository.findById(bookingDto.getItemId())).thenReturn(Optional.of(item));
+        when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
+        when(bookingRepository.save(any())).thenReturn(booking);
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(false);
+        assertThrows(ValidationException.class, () -> bookingService.addBooking(booker.getId(), bookingDto));
+        verify(bookingCalendar, times(1)).tryAdd(eq(item.getId()), eq(booking.getId()), any(), any());
+    }
+
     @Test
     void getBookingByIdTestCorrect() {
         User user = putUser(1L);
@@ -220,14 +297,14 @@ public class BookingServiceTest {
         State state = State.ALL;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
-        when(bookingRepository
-                .findByBookerIdOrderByStartDesc(anyLong(), any())).thenReturn(bookings);
+        when(bookingHistoryRepository
+                .findByBookerId(anyLong(), anyInt(), anyInt())).thenReturn(bookings);
         List<BookingDto> bookingsDto = bookingService.getBookingsByUserId(booker.getId(), state, 0, 10);
         assertThat(booker.getId(), equalTo(bookingsDto.get(0).getBooker().getId()));
         verify(userRepository, times(1)).findById(booker.getId());
-        verify(bookingRepository, times(1)).findByBookerIdOrderByStartDesc(anyLong(), any());
+        verify(bookingHistoryRepository, times(1)).findByBookerId(anyLong(), anyInt(), anyInt());
     }
 
     @Test
@@ -238,7 +315,7 @@ public class BookingServiceTest {
         State state = State.CURRENT;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
         when(bookingRepository
                 .findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(anyLong(), any(), any(), any()))
@@ -259,16 +336,16 @@ public class BookingServiceTest {
         State state = State.PAST;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
-        when(bookingRepository
-                .findByBookerIdAndEndBeforeOrderByStartDesc(anyLong(), any(), any()))
+        when(bookingHistoryRepository
+                .findPastByBookerId(anyLong(), any(), anyInt(), anyInt()))
                 .thenReturn(bookings);
         List<BookingDto> bookingsDto = bookingService.getBookingsByUserId(booker.getId(), state, 0, 10);
         assertThat(booker.getId(), equalTo(bookingsDto.get(0).getBooker().getId()));
         verify(userRepository, times(1)).findById(booker.getId());
-        verify(bookingRepository, times(1))
-                .findByBookerIdAndEndBeforeOrderByStartDesc(anyLong(), any(), any());
+        verify(bookingHistoryRepository, times(1))
+                .findPastByBookerId(anyLong(), any(), anyInt(), anyInt());
     }
 
     @Test
@@ -279,7 +356,7 @@ public class BookingServiceTest {
         State state = State.FUTURE;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
         when(bookingRepository
                 .findByBookerIdAndStartAfterOrderByStartDesc(anyLong(), any(), any()))
@@ -299,7 +376,7 @@ public class BookingServiceTest {
         State state = State.WAITING;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
         when(bookingRepository
                 .findByBookerIdAndStatusOrderByStartDesc(anyLong(), any(), any()))
@@ -319,16 +396,16 @@ public class BookingServiceTest {
         State state = State.REJECTED;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
-        when(bookingRepository
-                .findByBookerIdAndStatusOrderByStartDesc(anyLong(), any(), any()))
+        when(bookingHistoryRepository
+                .findByBookerIdAndStatus(anyLong(), eq(Status.REJECTED), anyInt(), anyInt()))
                 .thenReturn(bookings);
         List<BookingDto> bookingsDto = bookingService.getBookingsByUserId(booker.getId(), state, 0, 10);
         assertThat(booker.getId(), equalTo(bookingsDto.get(0).getBooker().getId()));
         verify(userRepository, times(1)).findById(booker.getId());
-        verify(bookingRepository, times(1))
-                .findByBookerIdAndStatusOrderByStartDesc(anyLong(), any(), any());
+        verify(bookingHistoryRepository, times(1))
+                .findByBookerIdAndStatus(anyLong(), eq(Status.REJECTED), anyInt(), anyInt());
     }
 
     @Test
@@ -353,16 +430,16 @@ public class BookingServiceTest {
         State state = State.ALL;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
-        when(bookingRepository
-                .findByItemOwnerIdOrderByStartDesc(anyLong(), any()))
+        when(bookingHistoryRepository
+                .findByItemOwnerId(anyLong(), anyInt(), anyInt()))
                 .thenReturn(bookings);
         List<BookingDto> bookingsDto = bookingService.getBookingsByOwnerId(owner.getId(), state, 0, 10);
         assertThat(item.getId(), equalTo(bookingsDto.get(0).getItem().getId()));
         verify(userRepository, times(1)).findById(owner.getId());
-        verify(bookingRepository, times(1))
-                .findByItemOwnerIdOrderByStartDesc(anyLong(), any());
+        verify(bookingHistoryRepository, times(1))
+                .findByItemOwnerId(anyLong(), anyInt(), anyInt());
     }
 
     @Test
@@ -373,7 +450,7 @@ public class BookingServiceTest {
         State state = State.CURRENT;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
         when(bookingRepository
                 .findByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(anyLong(), any(), any(), any()))
@@ -393,16 +470,16 @@ public class BookingServiceTest {
         State state = State.PAST;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
-        when(bookingRepository
-                .findByItemOwnerIdAndEndBeforeOrderByStartDesc(anyLong(), any(), any()))
+        when(bookingHistoryRepository
+                .findPastByItemOwnerId(anyLong(), any(), anyInt(), anyInt()))
                 .thenReturn(bookings);
         List<BookingDto> bookingsDto = bookingService.getBookingsByOwnerId(owner.getId(), state, 0, 10);
         assertThat(item.getId(), equalTo(bookingsDto.get(0).getItem().getId()));
         verify(userRepository, times(1)).findById(owner.getId());
-        verify(bookingRepository, times(1))
-                .findByItemOwnerIdAndEndBeforeOrderByStartDesc(anyLong(), any(), any());
+        verify(bookingHistoryRepository, times(1))
+                .findPastByItemOwnerId(anyLong(), any(), anyInt(), anyInt());
     }
 
     @Test
@@ -413,7 +490,7 @@ public class BookingServiceTest {
         State state = State.FUTURE;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
         when(bookingRepository
                 .findByItemOwnerIdAndStartAfterOrderByStartDesc(anyLong(), any(), any()))
@@ -433,7 +510,7 @@ public class BookingServiceTest {
         State state = State.WAITING;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
         when(bookingRepository
                 .findByItemOwnerIdAndStatusOrderByStartDesc(anyLong(), any(), any()))
@@ -453,16 +530,16 @@ public class BookingServiceTest {
         State state = State.REJECTED;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
-        when(bookingRepository
-                .findByItemOwnerIdAndStatusOrderByStartDesc(anyLong(), any(), any()))
+        when(bookingHistoryRepository
+                .findByItemOwnerIdAndStatus(anyLong(), eq(Status.REJECTED), anyInt(), anyInt()))
                 .thenReturn(bookings);
         List<BookingDto> bookingsDto = bookingService.getBookingsByOwnerId(owner.getId(), state, 0, 10);
         assertThat(item.getId(), equalTo(bookingsDto.get(0).getItem().getId()));
         verify(userRepository, times(1)).findById(owner.getId());
-        verify(bookingRepository, times(1))
-                .findByItemOwnerIdAndStatusOrderByStartDesc(anyLong(), any(), any());
+        verify(bookingHistoryRepository, times(1))
+                .findByItemOwnerIdAndStatus(anyLong(), eq(Status.REJECTED), anyInt(), anyInt());
     }
 
     @Test
@@ -473,7 +550,7 @@ public class BookingServiceTest {
         State state = State.ALL;
         User booker = putUser(5L);
         Booking booking = putBooking(1L, booker, item);
-        List<Booking> bookings = List.of(booking);
+        List<BookingView> bookings = List.of(putView(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () ->
                 bookingService.getBookingsByOwnerId(owner.getId(), state, 0, 10));
@@ -481,6 +558,79 @@ public class BookingServiceTest {
         verifyNoMoreInteractions(bookingRepository);
     }
 
+    @Test
+    void getBookingsByUserIdAfterTestWhenStateIsPast() {
+        User owner = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(owner);
+        User booker = putUser(5L);
+        Booking booking = putBooking(1L, booker, item);
+        Cursor cursor = new Cursor(time, 10L);
+        when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
+        when(bookingRepository.findPastByBookerIdAfterCursor(eq(booker.getId()), any(), eq(time), eq(10L), any()))
+                .thenReturn(List.of(putView(booking)));
+        List<BookingDto> bookingsDto = bookingService.getBookingsByUserIdAfter(booker.getId(), State.PAST, cursor, 10);
+        assertThat(bookingsDto.get(0).getId(), equalTo(booking.getId()));
+        verify(bookingRepository, times(1))
+                .findPastByBookerIdAfterCursor(eq(booker.getId()), any(), eq(time), eq(10L), any());
+    }
+
+    @Test
+    void getBookingsByUserIdAfterTestWhenStateIsWaiting() {
+        User booker = putUser(5L);
+        Cursor cursor = new Cursor(time, 10L);
+        when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
+        when(bookingRepository.findByBookerIdAndStatusAfterCursor(anyLong(), any(), any(), anyLong(), any()))
+                .thenReturn(List.of());
+        List<BookingDto> bookingsDto = bookingService
+                .getBookingsByUserIdAfter(booker.getId(), State.WAITING, cursor, 10);
+        assertTrue(bookingsDto.isEmpty());
+        verify(bookingRepository, times(1))
+                .findByBookerIdAndStatusAfterCursor(eq(booker.getId()), eq(Status.WAITING), eq(time), eq(10L), any());
+    }
+
+    @Test
+    void getBookingsByUserIdAfterTestWhenCursorHasNoStart() {
+        User booker = putUser(5L);
+        when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
+        assertThrows(ValidationException.class, () ->
+                bookingService.getBookingsByUserIdAfter(booker.getId(), State.ALL, new Cursor(null, 1L), 10));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void getBookingsByOwnerIdAfterTestWhenStateIsCurrent() {
+        User owner = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(owner);
+        User booker = putUser(5L);
+        Booking booking = putBooking(1L, booker, item);
+        Cursor cursor = new Cursor(time, 10L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingRepository
+                .findCurrentByItemOwnerIdAfterCursor(eq(owner.getId()), any(), eq(time), eq(10L), any()))
+                .thenReturn(List.of(putView(booking)));
+        List<BookingDto> bookingsDto = bookingService
+                .getBookingsByOwnerIdAfter(owner.getId(), State.CURRENT, cursor, 10);
+        assertThat(bookingsDto.get(0).getItem().getId(), equalTo(item.getId()));
+        verify(bookingRepository, times(1))
+                .findCurrentByItemOwnerIdAfterCursor(eq(owner.getId()), any(), eq(time), eq(10L), any());
+    }
+
+    @Test
+    void getBookingsByOwnerIdAfterTestWhenStateIsRejected() {
+        User owner = putUser(1L);
+        Cursor cursor = new Cursor(time, 10L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingRepository.findByItemOwnerIdAndStatusAfterCursor(anyLong(), any(), any(), anyLong(), any()))
+                .thenReturn(List.of());
+        List<BookingDto> bookingsDto = bookingService
+                .getBookingsByOwnerIdAfter(owner.getId(), State.REJECTED, cursor, 10);
+        assertTrue(bookingsDto.isEmpty());
+        verify(bookingRepository, times(1)).findByItemOwnerIdAndStatusAfterCursor(eq(owner.getId()),
+                eq(Status.REJECTED), eq(time), eq(10L), any());
+    }
+
     @Test
     void approveBookingTestCorrect() {
         User owner = putUser(1L);
@@ -492,16 +642,41 @@ public class BookingServiceTest {
         booking.setStatus(status);
         when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
-        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+        when(bookingRepository.updateStatusByIdIn(List.of(booking.getId()), Status.WAITING, Status.APPROVED))
+                .thenReturn(1);
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(true);
         BookingDto bookingDto = bookingService.approveBooking(booking.getId(), owner.getId(), true);
         assertThat(bookingDto.getId(), equalTo(booking.getId()));
-        assertThat(bookingDto.getStatus(), equalTo(booking.getStatus()));
+        assertThat(bookingDto.getStatus(), equalTo(Status.APPROVED));
         assertThat(bookingDto.getBooker().getId(), equalTo(booker.getId()));
         assertThat(bookingDto.getItem().getId(), equalTo(item.getId()));
         assertThat(bookingDto.getItem().getName(), equalTo(item.getName()));
         verify(bookingRepository, times(1)).findById(anyLong());
         verify(userRepository, times(1)).findById(anyLong());
-        verify(bookingRepository, times(1)).save(any(Booking.class));
+        verify(bookingRepository, times(1))
+                .updateStatusByIdIn(List.of(booking.getId()), Status.WAITING, Status.APPROVED);
+        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(occupancyIndex, times(1)).occupy(item.getId(), booking.getStart(), booking.getEnd());
+        verify(bookingSummaryIndex, times(1))
+                .changeStatus(booker.getId(), owner.getId(), booking.getId(), Status.WAITING, Status.APPROVED);
+        verify(bookingJournal, times(1)).record(BookingEventType.APPROVED, booking.getId(), item.getId(),
+                booker.getId(), owner.getId(), booking.getStart(), booking.getEnd());
+    }
+
+    @Test
+    void approveBookingTestWhenStatusChangedConcurrently() {
+        User owner = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(owner);
+        Booking booking = putBooking(1L, putUser(5L), item);
+        when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(true);
+        when(bookingRepository.updateStatusByIdIn(any(), any(), any())).thenReturn(0);
+        assertThrows(ConflictException.class, () -> bookingService
+                .approveBooking(booking.getId(), owner.getId(), true));
+        verify(bookingRepository, times(1))
+                .updateStatusByIdIn(List.of(booking.getId()), Status.WAITING, Status.APPROVED);
     }
 
     @Test
@@ -567,6 +742,21 @@ public class BookingServiceTest {
         verify(bookingRepository, never()).save(any());
     }
 
+    @Test
+    void approveBookingTestWhenStatusIsExpired() {
+        User owner = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(owner);
+        User booker = putUser(5L);
+        Booking booking = putBooking(1L, booker, item);
+        booking.setStatus(Status.EXPIRED);
+        when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        assertThrows(ValidationException.class, () -> bookingService
+                .approveBooking(booking.getId(), owner.getId(), true));
+        verify(bookingRepository, never()).updateStatusByIdIn(any(), any(), any());
+    }
+
     @Test
     void approveBookingTestWhenStatusIsApproved() {
         User owner = putUser(1L);
@@ -582,4 +772,123 @@ public class BookingServiceTest {
                 .approveBooking(booking.getId(), owner.getId(), true));
         verify(bookingRepository, never()).save(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void approveBookingTestWhenDatesOverlap() {
+        User owner = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(owner);
+        User booker = putUser(5L);
+        Booking booking = putBooking(1L, booker, item);
+        when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(false);
+        assertThrows(ValidationException.class, () -> bookingService
+                .approveBooking(booking.getId(), owner.getId(), true));
+        verify(bookingRepository, never()).save(any());
+    }
+
+    @Test
+    void approveBookingTestWhenRejected() {
+        User owner = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(owner);
+        User booker = putUser(5L);
+        Booking booking = putBooking(1L, booker, item);
+        booking.setStart(time);
+        when(bookingRepository.findById(booking.getId())).thenReturn(Optional.of(booking));
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingRepository.updateStatusByIdIn(any(), any(), any())).thenReturn(1);
+        BookingDto bookingDto = bookingService.approveBooking(booking.getId(), owner.getId(), false);
+        assertThat(bookingDto.getStatus(), equalTo(Status.REJECTED));
+        verify(bookingCalendar, times(1)).remove(item.getId(), booking.getId(), time);
+        verify(bookingCalendar, never()).tryAdd(any(), any(), any(), any());
+        verify(occupancyIndex, never()).occupy(any(), any(), any());
+    }
+
+    @Test
+    void approveBookingsTestAppliesValidDecisionsAndReportsOthers() {
+        User owner = putUser(1L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingRepository.findApprovalsByIdIn(any())).thenReturn(List.of(
+                new BookingApproval(1L, 10L, 1L, 5L, Status.WAITING, time, time.plusDays(1)),
+                new BookingApproval(2L, 11L, 1L, 5L, Status.WAITING, time, time.plusDays(1)),
+                new BookingApproval(3L, 12L, 7L, 5L, Status.WAITING, time, time.plusDays(1)),
+                new BookingApproval(4L, 13L, 1L, 5L, Status.APPROVED, time, time.plusDays(1))));
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(true);
+        when(bookingRepository.updateStatusByIdIn(any(), any(), any())).thenReturn(1);
+        List<BookingDecisionResultDto> results = bookingService.approveBookings(owner.getId(), List.of(
+                new BookingDecisionDto(1L, true),
+                new BookingDecisionDto(2L, false),
+                new BookingDecisionDto(3L, true),
+                new BookingDecisionDto(4L, true),
+                new BookingDecisionDto(9L, true),
+                new BookingDecisionDto(1L, false)));
+        assertThat(results.size(), equalTo(6));
+        assertThat(results.get(0).getStatus(), equalTo(Status.APPROVED));
+        assertThat(results.get(1).getStatus(), equalTo(Status.REJECTED));
+        assertThat(results.get(2).getError(), equalTo("Ошибка доступа. Только владелец может вносить изменения"));
+        assertThat(results.get(3).getError(), equalTo("Бронирование с id = 4 уже подтверждено"));
+        assertThat(results.get(4).getError(), equalTo("Бронирование с id = 9 не найдена"));
+        assertNotNull(results.get(5).getError());
+        verify(bookingRepository, times(1)).findApprovalsByIdIn(Set.of(1L, 2L, 3L, 4L, 9L));
+        verify(bookingRepository, times(1)).updateStatusByIdIn(List.of(1L), Status.WAITING, Status.APPROVED);
+        verify(bookingRepository, times(1)).updateStatusByIdIn(List.of(2L), Status.WAITING, Status.REJECTED);
+        verify(occupancyIndex, times(1)).occupy(10L, time, time.plusDays(1));
+        verify(bookingCalendar, times(1)).remove(11L, 2L, time);
+        verify(bookingRepository, never()).save(any());
+    }
+
+    @Test
+    void approveBookingsTestWhenBookingOverlaps() {
+        User owner = putUser(1L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingRepository.findApprovalsByIdIn(any())).thenReturn(List.of(
+                new BookingApproval(1L, 10L, 1L, 5L, Status.WAITING, time, time.plusDays(1))));
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(false);
+        List<BookingDecisionResultDto> results = bookingService.approveBookings(owner.getId(),
+                List.of(new BookingDecisionDto(1L, true)));
+        assertThat(results.get(0).getError(),
+                equalTo("Бронирование с id = 1 пересекается с другим бронированием предмета"));
+        verify(bookingRepository, never()).updateStatusByIdIn(any(), any(), any());
+        verify(occupancyIndex, never()).occupy(any(), any(), any());
+    }
+
+    @Test
+    void approveBookingsTestWhenStatusChangedConcurrently() {
+        User owner = putUser(1L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(bookingRepository.findApprovalsByIdIn(any())).thenReturn(List.of(
+                new BookingApproval(1L, 10L, 1L, 5L, Status.WAITING, time, time.plusDays(1)),
+                new BookingApproval(2L, 11L, 1L, 5L, Status.WAITING, time, time.plusDays(1))));
+        when(bookingCalendar.tryAdd(any(), any(), any(), any())).thenReturn(true);
+        when(bookingRepository.updateStatusByIdIn(any(), any(), any())).thenReturn(1);
+        assertThrows(ConflictException.class, () -> bookingService.approveBookings(owner.getId(), List.of(
+                new BookingDecisionDto(1L, true), new BookingDecisionDto(2L, true))));
+    }
+
+    @Test
+    void getBookingSummaryByUserIdTest() {
+        User booker = putUser(5L);
+        BookingSummaryDto summary = BookingSummaryDto.builder().all(3).waiting(1).build();
+        when(userRepository.findById(booker.getId())).thenReturn(Optional.of(booker));
+        when(bookingSummaryIndex.getBookerSummary(eq(booker.getId()), any())).thenReturn(summary);
+        assertThat(bookingService.getBookingSummaryByUserId(booker.getId()), equalTo(summary));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void getBookingSummaryByOwnerIdTestWhenOwnerIsNotFound() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> bookingService.getBookingSummaryByOwnerId(1L));
+        verifyNoInteractions(bookingSummaryIndex);
+    }
+
+    @Test
+    void approveBookingsTestWhenOwnerIsNotFound() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> bookingService.approveBookings(1L,
+                List.of(new BookingDecisionDto(1L, true))));
+        verifyNoInteractions(bookingRepository);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.shareit.booking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность решений владельца при конкуренции потоков за одни и те же брони: условный UPDATE
+ * по ожидаемому статусу, как в approveBooking, против чтения с блокировкой строки и обычного UPDATE.
+ * Каждая операция читает статус, переводит бронь в другой статус и фиксирует транзакцию; статусы
+ * чередуются, чтобы строки не выходили из оборота. Чем меньше броней, тем сильнее конкуренция.
+ * Запуск: собрать тестовые классы и выполнить main с тестовым classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class BookingTransitionBenchmark {
+    private static final String URL = "jdbc:h2:mem:transitions;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+
+    @Param({"40", "4000"})
+    private int bookings;
+
+    private Connection keeper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        //Соединение держит базу в памяти, пока потоки открывают и закрывают свои
+        keeper = DriverManager.getConnection(URL);
+        try (Statement statement = keeper.createStatement()) {
+            statement.execute("drop table if exists bookings");
+            statement.execute("create table bookings (id bigint primary key, status varchar(24), " +
+                    "version bigint not null default 0)");
+            statement.execute("insert into bookings (id, status) select x, 'WAITING' " +
+                    "from system_range(1, " + bookings + ")");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        keeper.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        private Connection connection;
+        private PreparedStatement readStatus;
+        private PreparedStatement lockStatus;
+        private PreparedStatement conditionalUpdate;
+        private PreparedStatement update;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            connection = DriverManager.getConnection(URL);
+            connection.setAutoCommit(false);
+            readStatus = connection.prepareStatement("select status from bookings where id = ?");
+            lockStatus = connection.prepareStatement("select status from bookings where id = ? for update");
+            conditionalUpdate = connection.prepareStatement("update bookings set status = ?, " +
+                    "version = version + 1 where id = ? and status = ?");
+            update = connection.prepareStatement("update bookings set status = ?, version = version + 1 " +
+                    "where id = ?");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    /**
+     * Возвращает число изменённых строк: 0 - решение проиграло конкуренту и получило бы 409.
+     */
+    @Benchmark
+    public int conditionalUpdate(Session session) throws SQLException {
+        long id = ThreadLocalRandom.current().nextInt(bookings) + 1;
+        String status = readStatus(session.readStatus, id);
+        session.conditionalUpdate.setString(1, next(status));
+        session.conditionalUpdate.setLong(2, id);
+        session.conditionalUpdate.setString(3, status);
+        int updated = session.conditionalUpdate.executeUpdate();
+        session.connection.commit();
+        return updated;
+    }
+
+    @Benchmark
+    public int pessimisticLock(Session session) throws SQLException {
+        long id = ThreadLocalRandom.current().nextInt(bookings) + 1;
+        String status = readStatus(session.lockStatus, id);
+        session.update.setString(1, next(status));
+        session.update.setLong(2, id);
+        int updated = session.update.executeUpdate();
+        session.connection.commit();
+        return updated;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BookingTransitionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static String readStatus(PreparedStatement query, long id) throws SQLException {
+        query.setLong(1, id);
+        try (ResultSet resultSet = query.executeQuery()) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static String next(String status) {
+        return "WAITING".equals(status) ? "REJECTED" : "WAITING";
+    }
+}
@@ -0,0 +1,169 @@
+package ru.practicum.shareit.booking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Первая страница бронирований владельца по каждому состоянию: условие по items.owner_id через соединение
+ * против копии owner_id в bookings. Данные синтетические: 10 предметов на владельца, брони раскиданы
+ * по двум годам вокруг текущего момента. База H2 лежит в файле во временном каталоге: 10 млн строк
+ * целиком в heap не помещаются, горячие страницы держит кэш в 1 ГБ.
+ * Запуск: собрать тестовые классы и выполнить main с тестовым classpath, меньший объём - -p bookings=1000000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class OwnerBookingsBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int ITEMS_PER_OWNER = 10;
+    private static final int BOOKINGS_PER_OWNER = 100;
+
+    private static final String VIEWS = "select b.id, b.start_date, b.end_date, b.status, i.id, i.name, " +
+            "i.description, i.available, i.request_id, u.id, u.name, u.email from bookings b " +
+            "join items i on i.id = b.item_id join users u on u.id = b.booker_id ";
+    private static final String FIRST_PAGE = " order by b.start_date desc limit 10";
+
+    @Param({"10000000"})
+    private int bookings;
+
+    @Param({"ALL", "CURRENT", "PAST", "FUTURE", "WAITING", "REJECTED"})
+    private String state;
+
+    private Path directory;
+    private Connection connection;
+    private PreparedStatement joinQuery;
+    private PreparedStatement ownerIdQuery;
+    private int owners;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        owners = bookings / BOOKINGS_PER_OWNER;
+        int items = owners * ITEMS_PER_OWNER;
+        directory = Files.createTempDirectory("owner-bookings");
+        connection = DriverManager.getConnection("jdbc:h2:" + directory.resolve("bench") +
+                ";CACHE_SIZE=1048576");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table users (id bigint primary key, name varchar(255), email varchar(512))");
+            statement.execute("create table items (id bigint primary key, name varchar(255), " +
+                    "description varchar(512), available boolean, owner_id bigint, request_id bigint)");
+            statement.execute("create table bookings (id bigint primary key, start_date timestamp, " +
+                    "end_date timestamp, item_id bigint, booker_id bigint, owner_id bigint, status varchar(24))");
+            statement.execute("insert into users select x, 'User ' || x, 'user' || x || '@mail.ru' " +
+                    "from system_range(1, " + owners + ")");
+            //Предмет x принадлежит владельцу (x - 1) % owners + 1
+            statement.execute("insert into items select x, 'Item ' || x, 'Description', true, " +
+                    "mod(x - 1, " + owners + ") + 1, null from system_range(1, " + items + ")");
+            //Брони длиной 1-3 суток, начала равномерно по двум годам вокруг NOW, статусы по кругу
+            statement.execute("insert into bookings select x, " +
+                    "dateadd(minute, mod(x * 7919, 1051200) - 525600, timestamp '" + Timestamp.valueOf(NOW) + "'), " +
+                    "dateadd(minute, mod(x * 7919, 1051200) - 525600 + 1440 * (1 + mod(x, 3)), " +
+                    "timestamp '" + Timestamp.valueOf(NOW) + "'), " +
+                    "mod(x * 31, " + items + ") + 1, mod(x * 17, " + owners + ") + 1, " +
+                    "mod(mod(x * 31, " + items + "), " + owners + ") + 1, " +
+                    "case mod(x, 4) when 0 then 'WAITING' when 1 then 'REJECTED' else 'APPROVED' end " +
+                    "from system_range(1, " + bookings + ")");
+            //Индексы как в миграциях: до денормализации - items по владельцу, после - bookings по владельцу
+            statement.execute("create index idx_items_owner on items (owner_id, id)");
+            statement.execute("create index idx_bookings_item_status_start " +
+                    "on bookings (item_id, status, start_date, end_date)");
+            statement.execute("create index idx_bookings_owner_start on bookings (owner_id, start_date desc, id desc)");
+            statement.execute("create index idx_bookings_owner_status_start " +
+                    "on bookings (owner_id, status, start_date desc, id desc)");
+            statement.execute("analyze");
+        }
+        joinQuery = connection.prepareStatement(VIEWS + "where i.owner_id = ?" + condition() + FIRST_PAGE);
+        ownerIdQuery = connection.prepareStatement(VIEWS + "where b.owner_id = ?" + condition() + FIRST_PAGE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, IOException {
+        joinQuery.close();
+        ownerIdQuery.close();
+        connection.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int joinItemsOwner() throws SQLException {
+        return firstPage(joinQuery);
+    }
+
+    @Benchmark
+    public int bookingsOwnerId() throws SQLException {
+        return firstPage(ownerIdQuery);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OwnerBookingsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private String condition() {
+        switch (state) {
+            case "CURRENT":
+                return " and b.start_date < ? and b.end_date > ?";
+            case "PAST":
+                return " and b.end_date < ?";
+            case "FUTURE":
+                return " and b.start_date > ?";
+            case "WAITING":
+            case "REJECTED":
+                return " and b.status = '" + state + "'";
+            default:
+                return "";
+        }
+    }
+
+    private int firstPage(PreparedStatement query) throws SQLException {
+        query.setLong(1, ThreadLocalRandom.current().nextInt(owners) + 1);
+        Timestamp now = Timestamp.valueOf(NOW);
+        for (int i = 2; i <= query.getParameterMetaData().getParameterCount(); i++) {
+            query.setTimestamp(i, now);
+        }
+        int rows = 0;
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение проверки пересечения бронирований: диапазонный запрос к БД против календаря предмета в памяти.
+ * Запуск: собрать тестовые классы и выполнить main с тестовым classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingCalendarBenchmark {
+    private static final long ITEM_ID = 1L;
+    private static final long HOUR = 3_600_000L;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    @Param({"100", "1000", "10000"})
+    private int bookings;
+
+    private Connection connection;
+    private PreparedStatement overlapQuery;
+    private ItemCalendar calendar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:calendar");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table bookings (id bigint primary key, item_id bigint, " +
+                    "start_date timestamp, end_date timestamp, status varchar(20))");
+            statement.execute("create index bookings_item_start on bookings (item_id, start_date)");
+        }
+        calendar = new ItemCalendar();
+        try (PreparedStatement insert = connection.prepareStatement("insert into bookings values (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < bookings; i++) {
+                long start = i * 2 * HOUR;
+                long end = start + HOUR;
+                insert.setLong(1, i);
+                insert.setLong(2, ITEM_ID);
+                insert.setTimestamp(3, Timestamp.valueOf(EPOCH.plusHours(i * 2L)));
+                insert.setTimestamp(4, Timestamp.valueOf(EPOCH.plusHours(i * 2L + 1)));
+                insert.setString(5, "APPROVED");
+                insert.addBatch();
+                calendar.add(i, start, end);
+            }
+            insert.executeBatch();
+        }
+        overlapQuery = connection.prepareStatement("select exists (select 1 from bookings where item_id = ? " +
+                "and status in ('WAITING', 'APPROVED') and start_date < ? and end_date > ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        overlapQuery.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean sqlRangeCheck() throws SQLException {
+        long hours = ThreadLocalRandom.current().nextLong(bookings * 2L);
+        overlapQuery.setLong(1, ITEM_ID);
+        overlapQuery.setTimestamp(2, Timestamp.valueOf(EPOCH.plusHours(hours + 1)));
+        overlapQuery.setTimestamp(3, Timestamp.valueOf(EPOCH.plusHours(hours)));
+        try (ResultSet resultSet = overlapQuery.executeQuery()) {
+            resultSet.next();
+            return resultSet.getBoolean(1);
+        }
+    }
+
+    @Benchmark
+    public boolean calendarCheck() {
+        long start = ThreadLocalRandom.current().nextLong(bookings * 2L) * HOUR;
+        return calendar.overlaps(start, start + HOUR, -1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BookingCalendarBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
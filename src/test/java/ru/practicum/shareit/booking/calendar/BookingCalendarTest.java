@@ -0,0 +1,126 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.practicum.shareit.booking.model.BookingPeriod;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BookingCalendarTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private BookingCalendar bookingCalendar;
+
+    private long millis;
+
+    private final LocalDateTime time = LocalDateTime
+            .of(2023, Month.AUGUST, 5, 5, 5, 5);
+
+    private BookingPeriod putPeriod(Long id, LocalDateTime start, LocalDateTime end) {
+        return new BookingPeriod(id, start, end);
+    }
+
+    @BeforeEach
+    void setUp() {
+        bookingCalendar = new BookingCalendar(bookingRepository, 60_000L, () -> millis);
+        when(bookingRepository.findByItemIdAndStatusIn(eq(1L), any()))
+                .thenReturn(List.of(putPeriod(10L, time, time.plusHours(2))));
+    }
+
+    @Test
+    void tryAddTestLoadsCalendarOnce() {
+        assertTrue(bookingCalendar.tryAdd(1L, 11L, time.plusHours(2), time.plusHours(3)));
+        assertTrue(bookingCalendar.tryAdd(1L, 12L, time.minusHours(1), time));
+        verify(bookingRepository, times(1)).findByItemIdAndStatusIn(eq(1L), any());
+    }
+
+    @Test
+    void tryAddTestWhenDatesOverlap() {
+        assertFalse(bookingCalendar.tryAdd(1L, 11L, time.plusHours(1), time.plusHours(3)));
+        assertFalse(bookingCalendar.tryAdd(1L, 11L, time.minusHours(1), time.plusHours(5)));
+        assertTrue(bookingCalendar.tryAdd(1L, 11L, time.plusHours(2), time.plusHours(3)));
+        assertFalse(bookingCalendar.tryAdd(1L, 12L, time.plusHours(2).plusMinutes(30), time.plusHours(4)));
+    }
+
+    @Test
+    void tryAddTestWhenBookingIsAlreadyInCalendar() {
+        assertTrue(bookingCalendar.tryAdd(1L, 10L, time, time.plusHours(2)));
+        assertFalse(bookingCalendar.tryAdd(1L, 11L, time, time.plusHours(2)));
+    }
+
+    @Test
+    void removeTest() {
+        bookingCalendar.remove(1L, 10L, time);
+        assertTrue(bookingCalendar.tryAdd(1L, 11L, time, time.plusHours(2)));
+    }
+
+    @Test
+    void rebuildTest() {
+        assertTrue(bookingCalendar.tryAdd(1L, 11L, time.plusHours(2), time.plusHours(3)));
+        bookingCalendar.rebuild(1L);
+        assertTrue(bookingCalendar.tryAdd(1L, 12L, time.plusHours(2), time.plusHours(3)));
+        bookingCalendar.rebuildAll();
+        assertTrue(bookingCalendar.tryAdd(1L, 13L, time.plusHours(2), time.plusHours(3)));
+        verify(bookingRepository, times(3)).findByItemIdAndStatusIn(eq(1L), any());
+    }
+
+    @Test
+    void pruneTestRemovesEndedIntervals() {
+        assertTrue(bookingCalendar.tryAdd(1L, 11L, time.plusHours(2), time.plusHours(3)));
+        bookingCalendar.prune(time.plusHours(2));
+        assertTrue(bookingCalendar.tryAdd(1L, 12L, time.plusHours(1), time.plusHours(2)));
+        assertFalse(bookingCalendar.tryAdd(1L, 13L, time.plusHours(2), time.plusHours(4)));
+        verify(bookingRepository, times(1)).findByItemIdAndStatusIn(eq(1L), any());
+    }
+
+    @Test
+    void pruneTestEvictsIdleCalendars() {
+        bookingCalendar.preload(1L);
+        bookingCalendar.preload(2L);
+        millis = 30_000L;
+        bookingCalendar.preload(2L);
+        millis = 70_000L;
+        bookingCalendar.prune(time);
+        assertEquals(1, bookingCalendar.calendarCount());
+        assertFalse(bookingCalendar.tryAdd(1L, 11L, time, time.plusHours(1)));
+        verify(bookingRepository, times(2)).findByItemIdAndStatusIn(eq(1L), any());
+        verify(bookingRepository, times(1)).findByItemIdAndStatusIn(eq(2L), any());
+    }
+
+    @Test
+    void itemCalendarTestWithManyIntervals() {
+        ItemCalendar calendar = new ItemCalendar();
+        for (long i = 100; i > 0; i--) {
+            calendar.add(i, i * 10, i * 10 + 5);
+        }
+        assertEquals(100, calendar.size());
+        assertFalse(calendar.overlaps(5, 10, 0));
+        assertTrue(calendar.overlaps(504, 506, 0));
+        assertFalse(calendar.overlaps(500, 505, 50));
+        assertFalse(calendar.overlaps(1005, 2000, 0));
+        assertTrue(calendar.remove(50, 500));
+        assertFalse(calendar.remove(50, 500));
+        assertFalse(calendar.overlaps(500, 510, 0));
+        assertEquals(99, calendar.size());
+        assertEquals(10, calendar.removeEndedBefore(105));
+        assertEquals(89, calendar.size());
+        assertFalse(calendar.overlaps(0, 110, 0));
+        assertTrue(calendar.overlaps(0, 111, 0));
+    }
+}
@@ -0,0 +1,202 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.model.BookingStatusPeriod;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BookingSummaryIndexTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    private BookingSummaryIndex bookingSummaryIndex;
+
+    private long clock;
+
+    private final LocalDateTime time = LocalDateTime
+            .of(2023, Month.AUGUST, 5, 5, 5, 5);
+
+    private BookingStatusPeriod putPeriod(Long id, Status status, LocalDateTime start, LocalDateTime end) {
+        return new BookingStatusPeriod(id, status, start, end);
+    }
+
+    private BookingSummaryDto putSummary(int all, int current, int past, int future, int waiting, int rejected) {
+        return putSummary(all, current, past, future, waiting, rejected, 0);
+    }
+
+    private BookingSummaryDto putSummary(int all, int current, int past, int future, int waiting, int rejected,
+                                         int expired) {
+        return BookingSummaryDto.builder()
+                .all(all)
+                .current(current)
+                .past(past)
+                .future(future)
+                .waiting(waiting)
+                .rejected(rejected)
+                .expired(expired)
+                .build();
+    }
+
+    @BeforeEach
+    void setUp() {
+        bookingSummaryIndex = new BookingSummaryIndex(bookingRepository, archivedBookingRepository, 3, 1000,
+                () -> clock);
+        when(bookingRepository.findStatusPeriodsByBookerId(5L)).thenReturn(List.of(
+                putPeriod(3L, Status.APPROVED, time.minusDays(3), time.minusDays(2)),
+                putPeriod(1L, Status.WAITING, time.minusHours(1), time.plusHours(1)),
+                putPeriod(2L, Status.REJECTED, time.plusDays(1), time.plusDays(2))));
+        when(bookingRepository.findStatusPeriodsByItemOwnerId(1L)).thenReturn(List.of(
+                putPeriod(1L, Status.WAITING, time.minusHours(1), time.plusHours(1))));
+    }
+
+    @Test
+    void getBookerSummaryTestCountsStatesAndLoadsOnce() {
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time), equalTo(putSummary(3, 1, 1, 1, 1, 1)));
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time.plusDays(3)),
+                equalTo(putSummary(3, 0, 3, 0, 1, 1)));
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time.minusDays(4)),
+                equalTo(putSummary(3, 0, 0, 3, 1, 1)));
+        verify(bookingRepository, times(1)).findStatusPeriodsByBookerId(5L);
+    }
+
+    @Test
+    void getBookerSummaryTestWhenBookingEndsNow() {
+        //Бронь, закончившаяся ровно сейчас, уже не текущая, но ещё и не прошедшая, как в запросах списков
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time.plusHours(1)),
+                equalTo(putSummary(3, 0, 1, 1, 1, 1)));
+    }
+
+    @Test
+    void addTestUpdatesLoadedUsersOnly() {
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        bookingSummaryIndex.add(5L, 1L, 4L, Status.WAITING, time.plusDays(5), time.plusDays(6));
+        bookingSummaryIndex.add(5L, 1L, 4L, Status.WAITING, time.plusDays(5), time.plusDays(6));
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time), equalTo(putSummary(4, 1, 1, 2, 2, 1)));
+        //Сводка владельца ещё не загружалась и будет прочитана из БД целиком
+        assertThat(bookingSummaryIndex.getOwnerSummary(1L, time), equalTo(putSummary(1, 1, 0, 0, 1, 0)));
+    }
+
+    @Test
+    void changeStatusTestMovesBookingBetweenCounters() {
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        bookingSummaryIndex.getOwnerSummary(1L, time);
+        bookingSummaryIndex.changeStatus(5L, 1L, 1L, Status.WAITING, Status.REJECTED);
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time), equalTo(putSummary(3, 1, 1, 1, 0, 2)));
+        assertThat(bookingSummaryIndex.getOwnerSummary(1L, time), equalTo(putSummary(1, 1, 0, 0, 0, 1)));
+    }
+
+    @Test
+    void changeStatusTestCountsExpiredBookings() {
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        bookingSummaryIndex.changeStatus(5L, 1L, 1L, Status.WAITING, Status.EXPIRED);
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time), equalTo(putSummary(3, 1, 1, 1, 0, 1, 1)));
+    }
+
+    @Test
+    void changeStatusTestWhenStatusAlreadyChanged() {
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        bookingSummaryIndex.changeStatus(5L, 1L, 1L, Status.WAITING, Status.APPROVED);
+        bookingSummaryIndex.changeStatus(5L, 1L, 1L, Status.WAITING, Status.REJECTED);
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time), equalTo(putSummary(3, 1, 1, 1, 0, 1)));
+    }
+
+    @Test
+    void rebuildAllTestReloadsFromRepository() {
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        bookingSummaryIndex.rebuildAll();
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        verify(bookingRepository, times(2)).findStatusPeriodsByBookerId(5L);
+    }
+
+    @Test
+    void addTestGrowsBeyondInitialCapacity() {
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        for (long id = 10; id < 30; id++) {
+            bookingSummaryIndex.add(5L, 1L, id, Status.WAITING, time.plusDays(id), time.plusDays(id + 1));
+        }
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time), equalTo(putSummary(23, 1, 1, 21, 21, 1)));
+    }
+
+    @Test
+    void getBookerSummaryTestReloadsExpiredEntry() {
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        clock += 999;
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        verify(bookingRepository, times(1)).findStatusPeriodsByBookerId(5L);
+        //Бронь удалена в обход приложения: через время жизни записи сводка перечитывается из БД
+        when(bookingRepository.findStatusPeriodsByBookerId(5L)).thenReturn(List.of(
+                putPeriod(3L, Status.APPROVED, time.minusDays(3), time.minusDays(2))));
+        clock += 1;
+        assertThat(bookingSummaryIndex.getBookerSummary(5L, time), equalTo(putSummary(1, 0, 1, 0, 0, 0)));
+    }
+
+    @Test
+    void getBookerSummaryTestEvictsBeyondMaxUsers() {
+        for (long userId = 1; userId <= 10; userId++) {
+            bookingSummaryIndex.getBookerSummary(userId, time);
+        }
+        assertThat(bookingSummaryIndex.size(), equalTo(3));
+        //Только что загруженный пользователь не вытесняется
+        bookingSummaryIndex.getBookerSummary(10L, time);
+        verify(bookingRepository, times(1)).findStatusPeriodsByBookerId(10L);
+    }
+
+    @Test
+    void getBookerSummaryTestEvictsExpiredEntriesFirst() {
+        bookingSummaryIndex.getBookerSummary(1L, time);
+        clock += 500;
+        bookingSummaryIndex.getBookerSummary(2L, time);
+        bookingSummaryIndex.getBookerSummary(3L, time);
+        clock += 600;
+        bookingSummaryIndex.getBookerSummary(4L, time);
+        assertThat(bookingSummaryIndex.size(), equalTo(3));
+        bookingSummaryIndex.getBookerSummary(2L, time);
+        bookingSummaryIndex.getBookerSummary(3L, time);
+        verify(bookingRepository, times(1)).findStatusPeriodsByBookerId(2L);
+        verify(bookingRepository, times(1)).findStatusPeriodsByBookerId(3L);
+    }
+
+    @Test
+    void invalidateItemTestResetsOwnerAndBookers() {
+        when(bookingRepository.findBookerIdsByItemId(7L)).thenReturn(List.of(5L));
+        when(archivedBookingRepository.findBookerIdsByItemId(7L)).thenReturn(List.of(5L, 6L));
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        bookingSummaryIndex.getOwnerSummary(1L, time);
+        bookingSummaryIndex.invalidateItem(7L, 1L);
+        assertThat(bookingSummaryIndex.size(), equalTo(0));
+    }
+
+    @Test
+    void invalidateUserTestResetsUserAndOwnersOfBookedItems() {
+        when(bookingRepository.findOwnerIdsByBookerId(5L)).thenReturn(List.of(1L));
+        bookingSummaryIndex.getBookerSummary(5L, time);
+        bookingSummaryIndex.getOwnerSummary(1L, time);
+        bookingSummaryIndex.getOwnerSummary(2L, time);
+        bookingSummaryIndex.invalidateUser(5L);
+        assertThat(bookingSummaryIndex.size(), equalTo(1));
+        bookingSummaryIndex.getOwnerSummary(2L, time);
+        verify(bookingRepository, times(1)).findStatusPeriodsByItemOwnerId(2L);
+    }
+}
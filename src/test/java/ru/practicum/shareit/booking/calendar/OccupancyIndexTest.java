@@ -0,0 +1,62 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.ItemBookingPeriod;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OccupancyIndexTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private OccupancyIndex occupancyIndex;
+
+    private final LocalDateTime time = LocalDateTime.of(2030, 1, 10, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        occupancyIndex = new OccupancyIndex(bookingRepository);
+    }
+
+    @Test
+    void rebuildTest() {
+        when(bookingRepository.findPeriodsByStatus(Status.APPROVED)).thenReturn(List.of(
+                new ItemBookingPeriod(1L, time, time.plusDays(2)),
+                new ItemBookingPeriod(2L, time.plusDays(5), time.plusDays(5).plusHours(1))));
+        occupancyIndex.rebuild();
+        assertFalse(occupancyIndex.isFree(1L, time.minusDays(3), time.minusHours(10)));
+        assertTrue(occupancyIndex.isFree(1L, time.minusDays(3), time.minusDays(1)));
+        assertTrue(occupancyIndex.isFree(1L, time.plusDays(3), time.plusDays(10)));
+        assertFalse(occupancyIndex.isFree(2L, time, time.plusDays(10)));
+        assertTrue(occupancyIndex.isFree(3L, time, time.plusDays(10)));
+        assertEquals(List.of(3L, 2L), occupancyIndex.filterFree(List.of(3L, 1L, 2L), time.plusDays(2),
+                time.plusDays(4)));
+    }
+
+    @Test
+    void occupyTest() {
+        occupancyIndex.occupy(1L, time, time.plusDays(1));
+        assertFalse(occupancyIndex.isFree(1L, time.plusDays(1), time.plusDays(2)));
+        assertTrue(occupancyIndex.isFree(1L, time.plusDays(2), time.plusDays(3)));
+    }
+
+    @Test
+    void occupyTestWhenBookingEndsAtMidnight() {
+        LocalDateTime midnight = LocalDateTime.of(2030, 1, 10, 0, 0);
+        occupancyIndex.occupy(1L, midnight.minusDays(1), midnight);
+        assertTrue(occupancyIndex.isFree(1L, midnight, midnight.plusDays(1)));
+        assertFalse(occupancyIndex.isFree(1L, midnight.minusHours(1), midnight.plusDays(1)));
+    }
+}
@@ -0,0 +1,122 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры истечения для миллиона ожидающих бронирований, начала которых раскиданы по 30 дням:
+ * колесо таймеров против очереди с приоритетом по сроку. Меряется постановка всех таймеров,
+ * как при загрузке на старте, и прохождение первых суток шагами по секунде, как у планировщика.
+ * Запуск: собрать тестовые классы и выполнить main с тестовым classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class TimingWheelBenchmark {
+    private static final long TICK = 1_000L;
+    private static final long DAY = 86_400_000L;
+    private static final long NOW = 1_690_000_000_000L;
+
+    @Param({"1000000"})
+    private int bookings;
+
+    private long[] deadlines;
+    private TimingWheel loadedWheel;
+    private PriorityQueue<Timer> loadedQueue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        deadlines = new long[bookings];
+        for (int i = 0; i < bookings; i++) {
+            deadlines[i] = NOW + (long) (random.nextDouble() * 30 * DAY);
+        }
+    }
+
+    //Прохождение суток опустошает структуру, поэтому перед каждым замером она загружается заново
+    @Setup(Level.Invocation)
+    public void load() {
+        loadedWheel = scheduleWheel();
+        loadedQueue = schedulePriorityQueue();
+    }
+
+    @Benchmark
+    public TimingWheel scheduleWheel() {
+        TimingWheel wheel = new TimingWheel(TICK, NOW);
+        for (int id = 0; id < bookings; id++) {
+            wheel.schedule(id, deadlines[id]);
+        }
+        return wheel;
+    }
+
+    @Benchmark
+    public PriorityQueue<Timer> schedulePriorityQueue() {
+        PriorityQueue<Timer> queue = new PriorityQueue<>();
+        for (int id = 0; id < bookings; id++) {
+            queue.add(new Timer(id, deadlines[id]));
+        }
+        return queue;
+    }
+
+    @Benchmark
+    public long advanceWheelOneDay() {
+        long[] fired = new long[1];
+        for (long now = NOW + TICK; now <= NOW + DAY; now += TICK) {
+            loadedWheel.advance(now, id -> fired[0]++);
+        }
+        return fired[0];
+    }
+
+    @Benchmark
+    public long pollPriorityQueueOneDay() {
+        long fired = 0;
+        for (long now = NOW + TICK; now <= NOW + DAY; now += TICK) {
+            while (!loadedQueue.isEmpty() && loadedQueue.peek().deadline <= now) {
+                loadedQueue.poll();
+                fired++;
+            }
+        }
+        return fired;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TimingWheelBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    static final class Timer implements Comparable<Timer> {
+        private final long id;
+        private final long deadline;
+
+        Timer(long id, long deadline) {
+            this.id = id;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.practicum.shareit.booking.calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class TimingWheelTest {
+    private static final long TICK = 1000L;
+    private static final long START = 1_690_000_000_000L;
+
+    private List<Long> advance(TimingWheel wheel, long now) {
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(now, expired::add);
+        return expired;
+    }
+
+    @Test
+    void advanceTestFiresNotBeforeDeadline() {
+        TimingWheel wheel = new TimingWheel(TICK, START);
+        wheel.schedule(1L, START + 5_500);
+        assertThat(advance(wheel, START + 5_000), empty());
+        assertThat(advance(wheel, START + 5_999), empty());
+        assertThat(advance(wheel, START + 6_000), equalTo(List.of(1L)));
+        assertThat(wheel.size(), equalTo(0));
+    }
+
+    @Test
+    void advanceTestFiresOverdueTimersOnNextAdvance() {
+        TimingWheel wheel = new TimingWheel(TICK, START);
+        wheel.schedule(1L, START - 60_000);
+        wheel.schedule(2L, START);
+        assertThat(wheel.size(), equalTo(2));
+        assertThat(advance(wheel, START), equalTo(List.of(1L, 2L)));
+    }
+
+    @Test
+    void advanceTestCascadesTimersFromUpperLevels() {
+        TimingWheel wheel = new TimingWheel(TICK, START);
+        //Минута, сутки, полгода и срок за горизонтом колеса в 2^32 тиков
+        wheel.schedule(1L, START + 60_000);
+        wheel.schedule(2L, START + 86_400_000);
+        wheel.schedule(3L, START + 180L * 86_400_000);
+        wheel.schedule(4L, START + (1L << 32) * TICK + 5 * TICK);
+        assertThat(advance(wheel, START + 59_000), empty());
+        assertThat(advance(wheel, START + 60_000), equalTo(List.of(1L)));
+        assertThat(advance(wheel, START + 86_399_000), empty());
+        assertThat(advance(wheel, START + 86_400_000), equalTo(List.of(2L)));
+        assertThat(advance(wheel, START + 180L * 86_400_000 - TICK), empty());
+        assertThat(advance(wheel, START + 180L * 86_400_000), equalTo(List.of(3L)));
+        assertThat(advance(wheel, START + (1L << 32) * TICK + 4 * TICK), empty());
+        assertThat(advance(wheel, START + (1L << 32) * TICK + 5 * TICK), equalTo(List.of(4L)));
+    }
+
+    @Test
+    void advanceTestFiresEveryTimerOnceAndInTime() {
+        Random random = new Random(42);
+        TimingWheel wheel = new TimingWheel(1L, 0L);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long id = 0; id < 20_000; id++) {
+            //Треть сроков близко, остальные раскиданы по всем уровням колеса
+            long deadline = 1 + (random.nextInt(3) == 0 ? random.nextInt(1_000) : random.nextInt(50_000_000));
+            deadlines.put(id, deadline);
+            wheel.schedule(id, deadline);
+        }
+        Map<Long, Long> fired = new HashMap<>();
+        long previous = 0;
+        long now = 0;
+        while (now < 50_000_000) {
+            now += 1 + random.nextInt(200_000);
+            long advancedFrom = previous;
+            long advancedTo = now;
+            wheel.advance(now, id -> {
+                assertThat(deadlines.get(id), lessThanOrEqualTo(advancedTo));
+                assertThat(deadlines.get(id), greaterThan(advancedFrom));
+                assertThat(fired.put(id, advancedTo), equalTo(null));
+            });
+            previous = now;
+        }
+        assertThat(fired.size(), equalTo(deadlines.size()));
+        assertThat(wheel.size(), equalTo(0));
+    }
+}
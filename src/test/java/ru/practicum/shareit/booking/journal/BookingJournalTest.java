@@ -0,0 +1,283 @@
+package ru.practicum.shareit.booking.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class BookingJournalTest {
+    private static final int SEGMENT_BYTES = BookingJournal.RECORD_SIZE * 4;
+
+    @TempDir
+    Path directory;
+
+    private BookingJournal open() {
+        return new BookingJournal(directory.toString(), SEGMENT_BYTES);
+    }
+
+    private List<Long> sequences(long fromSequence) {
+        List<Long> sequences = new ArrayList<>();
+        BookingJournal.replay(directory, fromSequence, entry -> sequences.add(entry.getSequence()));
+        return sequences;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private List<Long> bookingIds() {
+        List<Long> bookingIds = new ArrayList<>();
+        BookingJournal.replay(directory, 1, entry -> bookingIds.add(entry.getBookingId()));
+        return bookingIds;
+    }
+
+    //Завершение транзакции так, как его проводит менеджер транзакций Spring
+    private static void complete(boolean commit) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (commit) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, commit
+                ? TransactionSynchronization.STATUS_COMMITTED
+                : TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    private void record(BookingJournal journal, long bookingId) {
+        journal.record(BookingEventType.CREATED, bookingId, 1L, 1L, 1L, LocalDateTime.MIN, LocalDateTime.MAX);
+    }
+
+    @Test
+    void appendAndReplay() {
+        BookingJournal journal = open();
+        assertThat(journal.append(BookingEventType.CREATED, 1L, 2L, 3L, 4L, 1000L, 2000L), equalTo(1L));
+        assertThat(journal.append(BookingEventType.APPROVED, 1L, 2L, 3L, 4L, 1000L, 2000L), equalTo(2L));
+        List<String> entries = new ArrayList<>();
+        journal.replay(1, entry -> entries.add(entry.getSequence() + " " + entry.getType() + " " +
+                entry.getBookingId() + " " + entry.getItemId() + " " + entry.getBookerId() + " " +
+                entry.getOwnerId() + " " + entry.getStartMillis() + " " + entry.getEndMillis()));
+        assertThat(entries, contains("1 CREATED 1 2 3 4 1000 2000", "2 APPROVED 1 2 3 4 1000 2000"));
+    }
+
+    @Test
+    void rollsSegmentsAndReplaysFromSequence() throws IOException {
+        BookingJournal journal = open();
+        for (long i = 1; i <= 10; i++) {
+            journal.append(BookingEventType.CREATED, i, 1L, 1L, 1L, 0L, 0L);
+        }
+        assertThat(segments(), hasSize(3));
+        assertThat(segments().get(1).getFileName().toString(), equalTo("00000000000000000005.journal"));
+        assertThat(sequences(1), hasSize(10));
+        assertThat(sequences(6), contains(6L, 7L, 8L, 9L, 10L));
+    }
+
+    @Test
+    void reopenContinuesSequence() {
+        BookingJournal journal = open();
+        for (long i = 1; i <= 6; i++) {
+            journal.append(BookingEventType.CREATED, i, 1L, 1L, 1L, 0L, 0L);
+        }
+        journal.close();
+        BookingJournal reopened = open();
+        assertThat(reopened.nextSequence(), equalTo(7L));
+        assertThat(reopened.append(BookingEventType.EXPIRED, 1L, 1L, 1L, 1L, 0L, 0L), equalTo(7L));
+        assertThat(sequences(1), hasSize(7));
+    }
+
+    @Test
+    void reopenDropsTailAfterCorruptedRecord() throws IOException {
+        BookingJournal journal = open();
+        for (long i = 1; i <= 3; i++) {
+            journal.append(BookingEventType.CREATED, i, 1L, 1L, 1L, 0L, 0L);
+        }
+        journal.close();
+        //Портим поле id брони во второй записи: CRC перестаёт сходиться
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), BookingJournal.RECORD_SIZE + 24);
+        }
+        assertThat(sequences(1), contains(1L));
+
+        BookingJournal reopened = open();
+        assertThat(reopened.nextSequence(), equalTo(2L));
+        reopened.append(BookingEventType.REJECTED, 9L, 1L, 1L, 1L, 0L, 0L);
+        //Третья запись затёрта и не всплывает после новой записи с номером 2
+        assertThat(sequences(1), contains(1L, 2L));
+    }
+
+    @Test
+    void appendDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        BookingJournal journal = new BookingJournal(directory.toString(), BookingJournal.RECORD_SIZE * 200_000);
+        for (long i = 0; i < 50_000; i++) {
+            journal.append(BookingEventType.CREATED, i, 1L, 1L, 1L, 0L, 0L);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (long i = 0; i < 100_000; i++) {
+            journal.append(BookingEventType.APPROVED, i, 1L, 1L, 1L, 0L, 0L);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        //Допуск на служебные выделения самого замера, на 100 000 записей это меньше байта на запись
+        assertThat(allocated, lessThan(10_000L));
+    }
+
+    @Test
+    void readModelKeepsHistoryPerBooking() {
+        BookingJournal journal = open();
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        LocalDateTime end = start.plusDays(1);
+        long startMillis = start.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long endMillis = end.toInstant(ZoneOffset.UTC).toEpochMilli();
+        journal.append(BookingEventType.CREATED, 1L, 2L, 3L, 4L, startMillis, endMillis);
+        journal.append(BookingEventType.CREATED, 5L, 2L, 3L, 4L, startMillis, endMillis);
+        journal.append(BookingEventType.APPROVED, 1L, 2L, 3L, 4L, startMillis, endMillis);
+        journal.append(BookingEventType.EXPIRED, 5L, 2L, 3L, 4L, startMillis, endMillis);
+
+        BookingReadModel model = new BookingReadModel();
+        journal.replay(1, model);
+        BookingReadModel.BookingHistory history = model.get(1L);
+        assertThat(history.getStatus(), equalTo(BookingEventType.APPROVED));
+        assertThat(history.getStart(), equalTo(start));
+        assertThat(history.getEnd(), equalTo(end));
+        assertThat(history.getEvents().stream().map(BookingReadModel.BookingEvent::getSequence)
+                .collect(Collectors.toList()), contains(1L, 3L));
+        assertThat(model.get(5L).getStatus(), equalTo(BookingEventType.EXPIRED));
+        assertThat(model.get(7L), nullValue());
+        assertThat(model.count(BookingEventType.CREATED), equalTo(2L));
+        assertThat(model.getLastSequence(), equalTo(4L));
+    }
+
+    @Test
+    void recordWritesOnlyCommittedTransactions() {
+        BookingJournal journal = open();
+        record(journal, 1L);
+        TransactionSynchronizationManager.initSynchronization();
+        record(journal, 2L);
+        record(journal, 3L);
+        complete(false);
+        TransactionSynchronizationManager.initSynchronization();
+        record(journal, 4L);
+        assertThat(bookingIds(), contains(1L));
+        record(journal, 5L);
+        complete(true);
+        assertThat(bookingIds(), contains(1L, 4L, 5L));
+    }
+
+    @Test
+    void recordKeepsEventsOfSuspendedTransaction() {
+        BookingJournal journal = open();
+        TransactionSynchronizationManager.initSynchronization();
+        record(journal, 1L);
+        //Приостановка для REQUIRES_NEW: события внешней транзакции ждут её фиксации
+        List<TransactionSynchronization> outer = TransactionSynchronizationManager.getSynchronizations();
+        outer.forEach(TransactionSynchronization::suspend);
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        record(journal, 2L);
+        complete(true);
+        assertThat(bookingIds(), contains(2L));
+        TransactionSynchronizationManager.initSynchronization();
+        outer.forEach(TransactionSynchronizationManager::registerSynchronization);
+        outer.forEach(TransactionSynchronization::resume);
+        record(journal, 3L);
+        complete(true);
+        assertThat(bookingIds(), contains(2L, 1L, 3L));
+    }
+
+    //Байты, выделенные на transactions транзакций по events событий в каждой
+    private static long allocatedByTransactions(BookingJournal journal, int transactions, int events) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int t = 0; t < transactions; t++) {
+            TransactionSynchronizationManager.initSynchronization();
+            for (long i = 0; i < events; i++) {
+                journal.record(BookingEventType.APPROVED, i, 1L, 1L, 1L, start, start);
+            }
+            complete(true);
+        }
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    @Test
+    void recordDoesNotAllocatePerEvent() {
+        BookingJournal journal = new BookingJournal(directory.toString(), BookingJournal.RECORD_SIZE * 500_000);
+        allocatedByTransactions(journal, 5_000, 21);
+        //Сама транзакция выделяет память на регистрацию синхронизации, поэтому сравниваются транзакции
+        //с одним и с 21 событием: двадцать лишних событий не должны выделять ничего
+        long single = allocatedByTransactions(journal, 10_000, 1);
+        long many = allocatedByTransactions(journal, 10_000, 21);
+        assertThat((many - single) / (10_000 * 20), lessThan(2L));
+    }
+
+    @Test
+    void rollReleasesMappingOfPreviousSegment() throws IOException {
+        Path maps = Path.of("/proc/self/maps");
+        assumeTrue(Files.isReadable(maps));
+        BookingJournal journal = open();
+        for (long i = 1; i <= 40; i++) {
+            journal.append(BookingEventType.CREATED, i, 1L, 1L, 1L, 0L, 0L);
+        }
+        assertThat(sequences(1), hasSize(40));
+        journal.force();
+        //Отображён только текущий сегмент: сменённые освобождены при сбросе, прочитанные - после чтения
+        List<String> mapped = Files.readAllLines(maps).stream()
+                .filter(line -> line.contains(directory.toString()))
+                .collect(Collectors.toList());
+        assertThat(mapped, hasSize(1));
+        assertThat(mapped.get(0).endsWith("00000000000000000037.journal"), equalTo(true));
+    }
+
+    @Test
+    void replayStopsBeforeReservedRecordUntilItIsWritten() {
+        BookingJournal journal = open();
+        BookingJournal.Reservation first = journal.reserve();
+        BookingJournal.Reservation second = journal.reserve();
+        assertThat(second.getSequence(), equalTo(2L));
+        journal.write(second, BookingEventType.CREATED, 2L, 1L, 1L, 1L, 0L, 0L);
+        assertThat(sequences(1), hasSize(0));
+        journal.write(first, BookingEventType.CREATED, 1L, 1L, 1L, 1L, 0L, 0L);
+        assertThat(sequences(1), contains(1L, 2L));
+        assertThat(journal.append(BookingEventType.APPROVED, 1L, 1L, 1L, 1L, 0L, 0L), equalTo(3L));
+    }
+
+    @Test
+    void forceKeepsRetiredSegmentWhileReservedRecordIsNotWritten() throws IOException {
+        BookingJournal journal = open();
+        BookingJournal.Reservation pending = journal.reserve();
+        for (long i = 2; i <= 5; i++) {
+            journal.append(BookingEventType.CREATED, i, 1L, 1L, 1L, 0L, 0L);
+        }
+        journal.force();
+        journal.write(pending, BookingEventType.CREATED, 1L, 1L, 1L, 1L, 0L, 0L);
+        journal.force();
+        assertThat(sequences(1), contains(1L, 2L, 3L, 4L, 5L));
+        assertThat(segments(), hasSize(2));
+    }
+}
@@ -0,0 +1,151 @@
+package ru.practicum.shareit.booking.stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.journal.BookingJournal;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BookingStreamHubTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @TempDir
+    Path directory;
+
+    private BookingJournal bookingJournal;
+
+    private BookingStreamHub bookingStreamHub;
+
+    private BookingDto putBooking(Long id) {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        return BookingDto.builder()
+                .id(id)
+                .start(start)
+                .end(start.plusDays(1))
+                .item(ItemDto.builder().id(3L).build())
+                .booker(UserDto.builder().id(4L).build())
+                .build();
+    }
+
+    private long sequenceOf(long bookingId) {
+        long[] sequence = {-1};
+        bookingJournal.replay(0, entry -> {
+            if (entry.getBookingId() == bookingId) {
+                sequence[0] = entry.getSequence();
+            }
+        });
+        return sequence[0];
+    }
+
+    @BeforeEach
+    void setUp() {
+        //Сегмент на 16 записей по 72 байта: тесты проходят через смену сегмента
+        bookingJournal = new BookingJournal(directory.toString(), 72 * 16);
+        bookingStreamHub = new BookingStreamHub(bookingRepository, userRepository, bookingJournal, 20, 30,
+                60_000L, 1);
+        when(userRepository.existsById(1L)).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingStreamHub.shutdown();
+        bookingJournal.close();
+    }
+
+    @Test
+    void subscribeTestReplaysBookingWithLowerIdCommittedLater() {
+        //Бронь 10 получила id раньше брони 11, но зафиксирована после неё
+        bookingStreamHub.publish(1L, putBooking(11L));
+        bookingStreamHub.publish(2L, putBooking(12L));
+        bookingStreamHub.publish(1L, putBooking(10L));
+        when(bookingRepository.findViewsByIdIn(any())).thenReturn(List.of());
+        bookingStreamHub.subscribe(1L, sequenceOf(11L));
+        verify(bookingRepository, times(1)).findViewsByIdIn(List.of(10L));
+        assertThat(bookingStreamHub.subscriberCount(1L), equalTo(1));
+    }
+
+    @Test
+    void subscribeTestReadsAtMostBufferSizeMissedBookings() {
+        for (long id = 1; id <= 25; id++) {
+            bookingStreamHub.publish(1L, putBooking(id));
+        }
+        when(bookingRepository.findViewsByIdIn(any())).thenReturn(List.of());
+        bookingStreamHub.subscribe(1L, sequenceOf(1L) - 1);
+        verify(bookingRepository, times(1)).findViewsByIdIn(LongStream.rangeClosed(1, 20).boxed()
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void subscribeTestResetsWhenLastEventIdIsOutsideReplayWindow() {
+        for (long id = 1; id <= 40; id++) {
+            bookingStreamHub.publish(1L, putBooking(id));
+        }
+        when(bookingRepository.findViewsByIdIn(any())).thenReturn(List.of());
+        //Старый id, нулевой и id из будущего не заставляют читать журнал с начала
+        bookingStreamHub.subscribe(1L, sequenceOf(1L) - 1);
+        bookingStreamHub.subscribe(1L, 0L);
+        bookingStreamHub.subscribe(1L, sequenceOf(40L) + 100);
+        verify(bookingRepository, never()).findViewsByIdIn(any());
+
+        bookingStreamHub.subscribe(1L, sequenceOf(30L));
+        verify(bookingRepository, times(1)).findViewsByIdIn(LongStream.rangeClosed(31, 40).boxed()
+                .collect(Collectors.toList()));
+        assertThat(bookingStreamHub.subscriberCount(1L), equalTo(4));
+    }
+
+    @Test
+    void subscribeTestWithoutLastEventIdSkipsReplay() {
+        bookingStreamHub.subscribe(1L, null);
+        bookingStreamHub.subscribe(1L, null);
+        verify(bookingRepository, never()).findViewsByIdIn(any());
+        assertThat(bookingStreamHub.subscriberCount(1L), equalTo(2));
+    }
+
+    @Test
+    void subscribeTestWhenOwnerIsNotFound() {
+        assertThrows(NotFoundException.class, () -> bookingStreamHub.subscribe(2L, null));
+        assertThat(bookingStreamHub.subscriberCount(2L), equalTo(0));
+    }
+
+    @Test
+    void subscribeTestUnsubscribesWhenReplayFails() {
+        bookingStreamHub.publish(1L, putBooking(8L));
+        when(bookingRepository.findViewsByIdIn(any()))
+                .thenThrow(new IllegalStateException("База данных недоступна"));
+        assertThrows(IllegalStateException.class, () -> bookingStreamHub.subscribe(1L, sequenceOf(8L) - 1));
+        assertThat(bookingStreamHub.subscriberCount(1L), equalTo(0));
+    }
+}
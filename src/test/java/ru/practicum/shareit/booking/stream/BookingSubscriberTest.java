@@ -0,0 +1,159 @@
+package ru.practicum.shareit.booking.stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class BookingSubscriberTest {
+    private RecordingEmitter emitter;
+    private final List<Runnable> pending = new ArrayList<>();
+    //Задачи отправки копятся и выполняются по команде теста, как в пуле, который ещё не дошёл до них
+    private final Executor sender = pending::add;
+
+    //id брони нарочно не совпадает с номером записи журнала: id события - номер записи
+    private BookingStreamEvent putEvent(long sequence) {
+        return BookingStreamEvent.booking(sequence, BookingDto.builder().id(100 - sequence).build());
+    }
+
+    private void send() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        emitter = new RecordingEmitter();
+    }
+
+    @Test
+    void offerTestSendsLiveEventsAfterReplayWithoutDuplicates() {
+        BookingSubscriber subscriber = new BookingSubscriber(emitter, 10, sender);
+        subscriber.offer(putEvent(5));
+        subscriber.offer(putEvent(6));
+        assertThat(pending.size(), equalTo(0));
+
+        subscriber.replay(new BookingStreamEvent[]{putEvent(4), putEvent(5)}, 5, false);
+        subscriber.offer(putEvent(5));
+        subscriber.offer(putEvent(7));
+        send();
+        assertThat(emitter.ids(), equalTo(List.of("4", "5", "6", "7")));
+        assertThat(emitter.completed, equalTo(false));
+    }
+
+    @Test
+    void offerTestCompletesSlowSubscriberWhenBufferIsFull() {
+        BookingSubscriber subscriber = new BookingSubscriber(emitter, 2, sender);
+        subscriber.replay(new BookingStreamEvent[0], Long.MIN_VALUE, false);
+        assertThat(subscriber.offer(putEvent(1)), equalTo(true));
+        assertThat(subscriber.offer(putEvent(2)), equalTo(true));
+        assertThat(subscriber.offer(putEvent(3)), equalTo(false));
+        assertThat(subscriber.offer(putEvent(4)), equalTo(true));
+        send();
+        //Отправлено накопленное, дальше клиент переподключится с Last-Event-ID = 2
+        assertThat(emitter.ids(), equalTo(List.of("1", "2")));
+        assertThat(emitter.completed, equalTo(true));
+    }
+
+    @Test
+    void replayTestDropsLiveEventsWhenMoreMissedBookingsRemain() {
+        BookingSubscriber subscriber = new BookingSubscriber(emitter, 2, sender);
+        subscriber.offer(putEvent(9));
+        subscriber.replay(new BookingStreamEvent[]{putEvent(3), putEvent(4)}, 4, true);
+        send();
+        assertThat(emitter.ids(), equalTo(List.of("3", "4")));
+        assertThat(emitter.completed, equalTo(true));
+    }
+
+    @Test
+    void heartbeatTestSendsIdOnlyWhenIdle() {
+        BookingSubscriber subscriber = new BookingSubscriber(emitter, 10, sender);
+        subscriber.heartbeat(2);
+        subscriber.replay(new BookingStreamEvent[0], Long.MIN_VALUE, false);
+        subscriber.offer(putEvent(1));
+        subscriber.heartbeat(3);
+        send();
+        subscriber.heartbeat(7);
+        send();
+        //Heartbeat до окончания дочитывания и при непустой очереди не ставится
+        assertThat(emitter.ids(), equalTo(List.of("1", "7")));
+        assertThat(emitter.names(), equalTo(List.of("booking", "")));
+    }
+
+    @Test
+    void replayTestSendsResetBeforeLiveEvents() {
+        BookingSubscriber subscriber = new BookingSubscriber(emitter, 10, sender);
+        subscriber.offer(putEvent(8));
+        subscriber.offer(putEvent(10));
+        subscriber.replay(new BookingStreamEvent[]{BookingStreamEvent.reset(9)}, 9, false);
+        send();
+        assertThat(emitter.ids(), equalTo(List.of("9", "10")));
+        assertThat(emitter.names(), equalTo(List.of("reset", "booking")));
+    }
+
+    @Test
+    void offerTestStopsSendingAfterClientDisconnects() {
+        BookingSubscriber subscriber = new BookingSubscriber(emitter, 10, sender);
+        subscriber.replay(new BookingStreamEvent[0], Long.MIN_VALUE, false);
+        emitter.failing = true;
+        subscriber.offer(putEvent(1));
+        send();
+        emitter.failing = false;
+        subscriber.offer(putEvent(2));
+        send();
+        assertThat(emitter.ids(), equalTo(List.of()));
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<Set<DataWithMediaType>> events = new ArrayList<>();
+        private boolean failing;
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(builder.build());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        private List<String> ids() {
+            return fields("id:");
+        }
+
+        //Имя события или пустая строка для heartbeat
+        private List<String> names() {
+            return fields("event:");
+        }
+
+        private List<String> fields(String prefix) {
+            return events.stream()
+                    .map(event -> event.stream()
+                            .map(part -> part.getData().toString())
+                            .collect(Collectors.joining()))
+                    .map(text -> Arrays.stream(text.split("\n"))
+                            .filter(line -> line.startsWith(prefix))
+                            .map(line -> line.substring(prefix.length()))
+                            .findFirst()
+                            .orElse(""))
+                    .collect(Collectors.toList());
+        }
+    }
+}
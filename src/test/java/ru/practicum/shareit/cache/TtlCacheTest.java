@@ -0,0 +1,141 @@
+package ru.practicum.shareit.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TtlCacheTest {
+    private final AtomicLong clock = new AtomicLong(1_000L);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private String load(String key) {
+        return key + loads.incrementAndGet();
+    }
+
+    @Test
+    void getTestReturnsCachedValueUntilTtlExpires() {
+        TtlCache<String, String> cache = new TtlCache<>(100, 10, clock::get);
+        assertThat(cache.get("a", this::load), equalTo("a1"));
+        clock.addAndGet(99);
+        assertThat(cache.get("a", this::load), equalTo("a1"));
+        clock.addAndGet(1);
+        assertThat(cache.get("a", this::load), equalTo("a2"));
+    }
+
+    @Test
+    void getTestDoesNotCacheFailures() {
+        TtlCache<String, String> cache = new TtlCache<>(100, 10, clock::get);
+        assertThrows(IllegalStateException.class, () -> cache.get("a", key -> {
+            throw new IllegalStateException("База данных недоступна");
+        }));
+        assertThat(cache.size(), equalTo(0));
+        assertThat(cache.get("a", this::load), equalTo("a1"));
+    }
+
+    @Test
+    void getTestEvictsExpiredValuesFirstWhenFull() {
+        TtlCache<String, String> cache = new TtlCache<>(100, 2, clock::get);
+        cache.get("a", this::load);
+        clock.addAndGet(50);
+        cache.get("b", this::load);
+        clock.addAndGet(50);
+        cache.get("c", this::load);
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.get("b", this::load), equalTo("b2"));
+        assertThat(cache.get("c", this::load), equalTo("c3"));
+    }
+
+    @Test
+    void getStatsTestCountsHitsMissesAndEvictions() {
+        TtlCache<String, String> cache = new TtlCache<>(100, 1, clock::get);
+        cache.get("a", this::load);
+        cache.get("a", this::load);
+        clock.addAndGet(100);
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getHits(), equalTo(1L));
+        assertThat(stats.getMisses(), equalTo(3L));
+        //Одно значение устарело, второе вытеснено размером
+        assertThat(stats.getEvictions(), equalTo(2L));
+        assertThat(stats.getSize(), equalTo(1));
+    }
+
+    @Test
+    void invalidateIfTestRemovesOnlyMatchingKeys() {
+        TtlCache<String, String> cache = new TtlCache<>(100, 10, clock::get);
+        cache.get("дрель", this::load);
+        cache.get("палатка", this::load);
+        cache.invalidateIf(key -> key.startsWith("д"));
+        assertThat(cache.get("палатка", this::load), equalTo("палатка2"));
+        assertThat(cache.get("дрель", this::load), equalTo("дрель3"));
+        assertThat(cache.getStats().getInvalidations(), equalTo(1L));
+        cache.clear();
+        assertThat(cache.size(), equalTo(0));
+    }
+
+    @Test
+    void invalidateIfTestDoesNotKeepValueLoadedBeforeIt() throws Exception {
+        TtlCache<String, String> cache = new TtlCache<>(100, 10, clock::get);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = pool.submit(() -> cache.get("a", key -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return load(key);
+            }));
+            loading.await();
+            cache.invalidateIf(key -> true);
+            release.countDown();
+            assertThat(stale.get(5, TimeUnit.SECONDS), equalTo("a1"));
+            assertThat(cache.get("a", this::load), equalTo("a2"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void getTestLoadsOnceForConcurrentMisses() throws Exception {
+        TtlCache<String, String> cache = new TtlCache<>(100, 10, clock::get);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = pool.submit(() -> cache.get("a", key -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return load(key);
+            }));
+            loading.await();
+            Future<String> second = pool.submit(() -> cache.get("a", this::load));
+            Future<String> third = pool.submit(() -> cache.get("a", this::load));
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS), equalTo("a1"));
+            assertThat(second.get(5, TimeUnit.SECONDS), equalTo("a1"));
+            assertThat(third.get(5, TimeUnit.SECONDS), equalTo("a1"));
+            assertThat(loads.get(), equalTo(1));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
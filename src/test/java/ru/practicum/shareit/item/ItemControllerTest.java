@@ -7,10 +7,17 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.cache.CacheStats;
 import ru.practicum.shareit.exception.ErrorAccess;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.service.ItemSearchCache;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemStatsCache;
+import ru.practicum.shareit.pagination.Cursor;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -21,6 +28,7 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -32,6 +40,10 @@ class ItemControllerTest {
     private MockMvc mvc;
     @MockBean
     private ItemService itemService;
+    @MockBean
+    private ItemStatsCache itemStatsCache;
+    @MockBean
+    private ItemSearchCache itemSearchCache;
     private final ItemDto itemDto = ItemDto.builder()
             .id(1L)
             .name("Отвёртка")
@@ -102,6 +114,52 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$[0].description", is(itemDto.getDescription())));
     }
 
+    @Test
+    void getItemsByOwnerIdReturnsNextCursorWhenPageIsFull() throws Exception {
+        when(itemService.getItemsByOwnerId(anyLong(), anyInt(), anyInt())).thenReturn(List.of(itemDto));
+
+        mvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("from", "0")
+                        .param("size", "1")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Cursor.HEADER, new Cursor(null, itemDto.getId()).encode()));
+    }
+
+    @Test
+    void getItemsByOwnerIdWithCursor() throws Exception {
+        Cursor cursor = new Cursor(LocalDateTime.of(2030, 1, 1, 10, 0), 7L);
+        when(itemService.getItemsByOwnerIdAfter(anyLong(), any(), anyInt())).thenReturn(List.of(itemDto));
+
+        mvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("cursor", cursor.encode())
+                        .param("size", "5")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().doesNotExist(Cursor.HEADER));
+        verify(itemService, times(1)).getItemsByOwnerIdAfter(1L, cursor, 5);
+        verify(itemService, never()).getItemsByOwnerId(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getItemsByOwnerIdWithIncorrectCursor() throws Exception {
+        mvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("cursor", "не курсор")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(itemService);
+    }
+
     @Test
     void getItemsByTextOfQueryTestCorrect() throws Exception {
         when(itemService.getItemsByTextOfQuery(anyString(), anyInt(), anyInt())).thenReturn(List.of(itemDto));
@@ -119,6 +177,72 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$[0].description", is(itemDto.getDescription())));
     }
 
+    @Test
+    void getItemsByFuzzyTextOfQueryTest() throws Exception {
+        when(itemService.getItemsByFuzzyTextOfQuery(anyString(), anyInt(), anyInt())).thenReturn(List.of(itemDto));
+
+        mvc.perform(get("/items/search")
+                        .param("text", "Малоток")
+                        .param("fuzzy", "true")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(itemDto.getId()), Long.class));
+        verify(itemService, times(1)).getItemsByFuzzyTextOfQuery("Малоток", 0, 10);
+        verify(itemService, never()).getItemsByTextOfQuery(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getSearchCacheStatsTest() throws Exception {
+        when(itemSearchCache.getStats()).thenReturn(new CacheStats(7, 3, 1, 2, 4));
+
+        mvc.perform(get("/items/search/stats")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits", is(7)))
+                .andExpect(jsonPath("$.misses", is(3)))
+                .andExpect(jsonPath("$.evictions", is(1)))
+                .andExpect(jsonPath("$.invalidations", is(2)))
+                .andExpect(jsonPath("$.size", is(4)));
+        verifyNoInteractions(itemService);
+    }
+
+    @Test
+    void getSuggestionsTest() throws Exception {
+        when(itemService.getSuggestions(anyString(), anyInt()))
+                .thenReturn(List.of(new ItemSuggestionDto("молоток", 3)));
+
+        mvc.perform(get("/items/suggest")
+                        .param("prefix", "мол")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].text", is("молоток")))
+                .andExpect(jsonPath("$[0].items", is(3)));
+        verify(itemService, times(1)).getSuggestions("мол", 10);
+    }
+
+    @Test
+    void getFreeItemsByTextOfQueryTest() throws Exception {
+        when(itemService.getFreeItemsByTextOfQuery(anyString(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(List.of(itemDto));
+
+        mvc.perform(get("/items/search")
+                        .param("text", "Молоток")
+                        .param("start", "2030-01-04T00:00:00")
+                        .param("end", "2030-01-06T00:00:00")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(itemDto.getId()), Long.class));
+        verify(itemService, times(1)).getFreeItemsByTextOfQuery("Молоток",
+                LocalDateTime.of(2030, 1, 4, 0, 0), LocalDateTime.of(2030, 1, 6, 0, 0), 0, 10);
+        verify(itemService, never()).getItemsByTextOfQuery(anyString(), anyInt(), anyInt());
+    }
+
     @Test
     void updateItemTestCorrect() throws Exception {
         ItemDto updateItemDto = ItemDto.builder()
@@ -167,4 +291,63 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$.id", is(commentDto.getId()), Long.class))
                 .andExpect(jsonPath("$.text", is(commentDto.getText())));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFreeIntervalsTest() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(2);
+        when(itemService.getFreeIntervals(anyLong(), anyLong(), any(), any()))
+                .thenReturn(List.of(FreeIntervalDto.builder().start(from.plusDays(1)).end(to).build()));
+
+        mvc.perform(get("/items/{itemId}/availability", 1)
+                        .header("X-Sharer-User-Id", 1)
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-01-03T00:00:00")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].start", is("2030-01-02T00:00:00")))
+                .andExpect(jsonPath("$[0].end", is("2030-01-03T00:00:00")));
+        verify(itemService, times(1)).getFreeIntervals(1L, 1L, from, to);
+    }
+
+    @Test
+    void getItemStatsTestUsesCacheByDefault() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+        when(itemStatsCache.getItemStats(anyLong(), any(), any())).thenReturn(List.of(ItemStatsDto.builder()
+                .itemId(1L).name("Отвёртка").bookings(4L).approved(3L).rejected(1L)
+                .bookedDays(2.5).occupancy(25.0).approvalRate(0.75).build()));
+
+        mvc.perform(get("/items/owner/stats")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-01-11T00:00:00")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].itemId", is(1L), Long.class))
+                .andExpect(jsonPath("$[0].occupancy", is(25.0)))
+                .andExpect(jsonPath("$[0].approvalRate", is(0.75)));
+        verify(itemStatsCache, times(1)).getItemStats(1L, from, to);
+        verify(itemService, never()).getItemStats(anyLong(), any(), any());
+    }
+
+    @Test
+    void getItemStatsTestWithoutCache() throws Exception {
+        when(itemService.getItemStats(anyLong(), any(), any())).thenReturn(List.of());
+
+        mvc.perform(get("/items/owner/stats")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-01-11T00:00:00")
+                        .param("cached", "false")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        verify(itemStatsCache, never()).getItemStats(anyLong(), any(), any());
+    }
+}
@@ -0,0 +1,176 @@
+package ru.practicum.shareit.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemTokenizer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Первая страница поиска предметов подстрокой: LIKE по названию и описанию против кандидатов из триграммного
+ * индекса с проверкой текста по строкам из БД, как в ItemServiceImpl. Названия и описания собраны из словаря
+ * инструментов и снаряжения с неравномерной частотой слов, каждый десятый предмет недоступен.
+ * Запуск: собрать тестовые классы и выполнить main с тестовым classpath, меньший объём - -p items=100000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class ItemSearchBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 100;
+    private static final String[] NOUNS = {"дрель", "перфоратор", "шуруповёрт", "лобзик", "болгарка", "палатка",
+        "спальник", "велосипед", "самокат", "байдарка", "лестница", "стремянка", "пила", "рубанок", "фен",
+        "компрессор", "генератор", "сварка", "тачка", "газонокосилка", "триммер", "мойка", "пылесос", "кусторез",
+        "гамак", "котелок", "горелка", "рюкзак", "лыжи", "сноуборд", "коньки", "удочка", "лодка", "мангал",
+        "проектор", "колонка", "микрофон", "штатив", "объектив", "фотоаппарат"};
+    private static final String[] ADJECTIVES = {"аккумуляторная", "сетевой", "ударная", "профессиональный",
+        "компактная", "лёгкий", "туристическая", "детский", "горный", "складная", "надувная", "электрический",
+        "бензиновый", "мощная", "новый", "почти новая", "бытовой", "строительный", "садовая", "зимний"};
+    private static final String[] DETAILS = {"в кейсе", "с набором бит", "две батареи", "с зарядкой",
+        "для дачи", "на 4 человека", "до -10", "с чехлом", "без чехла", "с насадками", "отличное состояние",
+        "есть царапины", "в комплекте инструкция", "забирать у метро", "можно на выходные"};
+
+    private static final String FIRST_PAGE = "select id, name, description, available from items " +
+            "where available = true and (upper(name) like upper(?) or upper(description) like upper(?)) " +
+            "order by id limit " + PAGE_SIZE;
+    private static final String BY_IDS = "select id, name, description, available from items where id = any(?)";
+
+    @Param({"1000000"})
+    private int items;
+
+    //Частое слово, инфикс, редкое слово, фраза через пробел и слово, которого нет
+    @Param({"дрель", "рель", "кусторез", "ая пала", "экскаватор"})
+    private String query;
+
+    private Connection connection;
+    private PreparedStatement likeQuery;
+    private PreparedStatement byIdsQuery;
+    private ItemSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:items-search");
+        index = new ItemSearchIndex(null, null, 1000);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table items (id bigint primary key, name varchar(255), " +
+                    "description varchar(512), available boolean)");
+        }
+        Random random = new Random(42);
+        try (PreparedStatement insert = connection.prepareStatement("insert into items values (?, ?, ?, ?)")) {
+            for (long id = 1; id <= items; id++) {
+                Item item = randomItem(id, random);
+                insert.setLong(1, id);
+                insert.setString(2, item.getName());
+                insert.setString(3, item.getDescription());
+                insert.setBoolean(4, item.getAvailable());
+                insert.addBatch();
+                index.add(item);
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        likeQuery = connection.prepareStatement(FIRST_PAGE);
+        byIdsQuery = connection.prepareStatement(BY_IDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        likeQuery.close();
+        byIdsQuery.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public int like() throws SQLException {
+        likeQuery.setString(1, "%" + query + "%");
+        likeQuery.setString(2, "%" + query + "%");
+        int rows = 0;
+        try (ResultSet resultSet = likeQuery.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int trigramIndex() throws SQLException {
+        String substring = ItemTokenizer.normalize(query);
+        int rows = 0;
+        long afterId = 0;
+        while (rows < PAGE_SIZE) {
+            List<Long> candidates = index.searchSubstring(query, afterId, BATCH_SIZE);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            afterId = candidates.get(candidates.size() - 1);
+            byIdsQuery.setObject(1, candidates.toArray(new Long[0]));
+            try (ResultSet resultSet = byIdsQuery.executeQuery()) {
+                while (resultSet.next()) {
+                    if (resultSet.getBoolean(4)
+                            && (ItemTokenizer.normalize(resultSet.getString(2)).contains(substring)
+                            || ItemTokenizer.normalize(resultSet.getString(3)).contains(substring))) {
+                        rows++;
+                    }
+                }
+            }
+        }
+        return Math.min(rows, PAGE_SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ItemSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Предмет из словаря бенчмарка; общий с ItemSearchIndexBenchmark, чтобы замеры шли на одинаковых данных.
+     */
+    static Item randomItem(long id, Random random) {
+        String noun = pick(NOUNS, random);
+        String name = capitalize(noun) + " " + pick(ADJECTIVES, random).split(" ")[0];
+        String description = capitalize(pick(ADJECTIVES, random)) + " " + noun + ", " +
+                pick(DETAILS, random) + ", " + pick(DETAILS, random);
+        return Item.builder().id(id).name(name).description(description).available(random.nextInt(10) != 0).build();
+    }
+
+    //Квадрат равномерного числа: первые слова словаря встречаются заметно чаще последних
+    private static String pick(String[] words, Random random) {
+        double r = random.nextDouble();
+        return words[(int) (r * r * words.length)];
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
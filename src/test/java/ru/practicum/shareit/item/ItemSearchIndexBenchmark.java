@@ -0,0 +1,73 @@
+package ru.practicum.shareit.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Распределение задержки запросов к индексу поиска предметов без обращения к БД: пакет кандидатов поиска
+ * подстрокой и страница нечёткого поиска. Режим выборки даёт перцентили, в том числе p99.
+ * Данные те же, что в ItemSearchBenchmark.
+ * Запуск: собрать тестовые классы и выполнить main с тестовым classpath, меньший объём - -p items=100000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class ItemSearchIndexBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1000000"})
+    private int items;
+
+    //Частое слово, инфикс, редкое слово, фраза через пробел и слово, которого нет
+    @Param({"дрель", "рель", "кусторез", "ая пала", "экскаватор"})
+    private String query;
+
+    private ItemSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //Без активной транзакции предметы попадают в индекс сразу
+        index = new ItemSearchIndex(null, null, 1000);
+        Random random = new Random(42);
+        for (long id = 1; id <= items; id++) {
+            index.add(ItemSearchBenchmark.randomItem(id, random));
+        }
+    }
+
+    @Benchmark
+    public int substring() {
+        return index.searchSubstring(query, 0, BATCH_SIZE).size();
+    }
+
+    @Benchmark
+    public int fuzzy() {
+        return index.searchFuzzy(query, 0, PAGE_SIZE).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ItemSearchIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,165 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.cache.CacheStats;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.service.ItemSearchCache;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Поиск предметов через индекс: построение из БД и поддержка записями сервиса.
+ */
+@SpringBootTest
+class ItemSearchTest {
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private ItemSearchIndex itemSearchIndex;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private ItemSearchCache itemSearchCache;
+
+    private User owner;
+    private Item drill;
+    private Item brokenDrill;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@search.ru").build());
+        drill = itemRepository.save(Item.builder().name("Дрель").description("Ударная дрель").available(true)
+                .owner(owner).build());
+        brokenDrill = itemRepository.save(Item.builder().name("Дрель").description("Сломана").available(false)
+                .owner(owner).build());
+        //Предметы сохранены в обход сервиса, поэтому индекс перестраивается из БД как при старте
+        itemSearchIndex.rebuild();
+        itemSearchCache.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        itemRepository.deleteAll();
+        itemRequestRepository.deleteAll();
+        userRepository.deleteAll();
+        itemSearchIndex.rebuild();
+        itemSearchCache.clear();
+    }
+
+    private List<Long> search(String text) {
+        return itemService.getItemsByTextOfQuery(text, 0, 10).stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<String> suggest(String prefix) {
+        return itemService.getSuggestions(prefix, 10).stream()
+                .map(suggestion -> suggestion.getText() + ":" + suggestion.getItems())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void searchTestSkipsUnavailableItemsMatchedByName() {
+        assertThat(search("дрель"), contains(drill.getId()));
+        assertThat(itemRepository.getItemsByTextOfQuery("дрель", PageRequest.of(0, 10)).stream()
+                .map(Item::getId)
+                .collect(Collectors.toList()), contains(drill.getId()));
+    }
+
+    @Test
+    void searchTestMatchesInfix() {
+        assertThat(search("РЕЛЬ"), contains(drill.getId()));
+        assertThat(search("ая др"), contains(drill.getId()));
+        assertThat(search("ударная дрель"), contains(drill.getId()));
+        assertThat(search("дрель ударная"), empty());
+        //Короче триграммы - запрос к БД с тем же смыслом
+        assertThat(search("ль"), contains(drill.getId()));
+    }
+
+    @Test
+    void searchTestFuzzyFindsMisspelledWords() {
+        assertThat(itemService.getItemsByFuzzyTextOfQuery("дрэль", 0, 10).stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList()), contains(drill.getId()));
+        assertThat(search("дрэль"), empty());
+    }
+
+    @Test
+    void suggestTestFollowsServiceWrites() {
+        assertThat(suggest("Др"), contains("дрель:1"));
+        itemService.updateItem(brokenDrill.getId(), ItemDto.builder().available(true).build(), owner.getId());
+        assertThat(suggest("др"), contains("дрель:2"));
+        itemService.addItem(ItemDto.builder().name("Дрезина").description("Ручная").available(true).build(),
+                owner.getId());
+        assertThat(suggest("дре"), contains("дрель:2", "дрезина:1"));
+        itemService.deleteItem(drill.getId());
+        assertThat(suggest("дре"), contains("дрезина:1", "дрель:1"));
+    }
+
+    @Test
+    void searchTestCachesPagesUntilMatchingItemChanges() {
+        //Счётчики общие для всего контекста, поэтому проверяются приращения
+        CacheStats before = itemSearchCache.getStats();
+        assertThat(search("дрель"), contains(drill.getId()));
+        assertThat(search("ДРЕЛЬ"), contains(drill.getId()));
+        assertThat(itemSearchCache.getStats().getHits() - before.getHits(), equalTo(1L));
+
+        itemService.updateItem(brokenDrill.getId(), ItemDto.builder().available(true).build(), owner.getId());
+        assertThat(search("дрель"), contains(drill.getId(), brokenDrill.getId()));
+        assertThat(itemSearchCache.getStats().getInvalidations() - before.getInvalidations(), equalTo(1L));
+    }
+
+    @Test
+    void searchTestMapsRequestOfFoundItemWithoutTransaction() {
+        ItemRequest request = itemRequestRepository.save(ItemRequest.builder().description("Нужен перфоратор")
+                .requester(owner).created(LocalDateTime.now()).build());
+        ItemDto puncher = itemService.addItem(ItemDto.builder().name("Перфоратор").description("С буром")
+                .available(true).requestId(request.getId()).build(), owner.getId());
+        assertThat(itemService.getItemsByTextOfQuery("перфоратор", 0, 10).get(0).getRequestId(),
+                equalTo(request.getId()));
+        assertThat(itemService.getItemsByTextOfQuery("бу", 0, 10).get(0).getId(), equalTo(puncher.getId()));
+    }
+
+    @Test
+    void searchTestFollowsServiceWrites() {
+        ItemDto tent = itemService.addItem(ItemDto.builder().name("Палатка").description("Двухместная")
+                .available(true).build(), owner.getId());
+        assertThat(search("палатка"), contains(tent.getId()));
+
+        itemService.updateItem(tent.getId(), ItemDto.builder().name("Тент").build(), owner.getId());
+        assertThat(search("палатка"), empty());
+        assertThat(search("тент"), contains(tent.getId()));
+        assertThat(search("двухместная"), contains(tent.getId()));
+
+        itemService.updateItem(brokenDrill.getId(), ItemDto.builder().available(true).build(), owner.getId());
+        assertThat(search("дрель"), contains(drill.getId(), brokenDrill.getId()));
+
+        itemService.deleteItem(drill.getId());
+        assertThat(search("дарн"), empty());
+        assertThat(search("дрель"), contains(brokenDrill.getId()));
+    }
+}
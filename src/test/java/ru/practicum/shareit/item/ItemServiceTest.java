@@ -4,21 +4,33 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Pageable;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
+import ru.practicum.shareit.booking.calendar.OccupancyIndex;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPeriod;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.ErrorAccess;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingStats;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.service.ItemSearchCache;
 import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.pagination.Cursor;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
@@ -45,6 +57,17 @@ public class ItemServiceTest {
     private CommentRepository commentRepository;
     @Mock
     private ItemRequestRepository itemRequestRepository;
+    @Mock
+    private OccupancyIndex occupancyIndex;
+
+    @Mock
+    private ArchivedBookingRepository archivedBookingRepository;
+    @Mock
+    private ItemSearchIndex itemSearchIndex;
+    @Mock
+    private BookingSummaryIndex bookingSummaryIndex;
+    @Spy
+    private ItemSearchCache itemSearchCache = new ItemSearchCache(60_000, 100);
     @InjectMocks
     private ItemServiceImpl itemService;
 
@@ -72,6 +95,21 @@ public class ItemServiceTest {
                 .build();
     }
 
+    private BookingPeriod putPeriod(Long id, LocalDateTime start, LocalDateTime end) {
+        return new BookingPeriod(id, start, end);
+    }
+
+    private ItemBookingStats putStats(Long id, long approved, long rejected, double bookedSeconds) {
+        ItemBookingStats stats = mock(ItemBookingStats.class);
+        when(stats.getId()).thenReturn(id);
+        when(stats.getName()).thenReturn("Отвёртка");
+        when(stats.getBookings()).thenReturn(approved + rejected);
+        when(stats.getApproved()).thenReturn(approved);
+        when(stats.getRejected()).thenReturn(rejected);
+        when(stats.getBookedSeconds()).thenReturn(bookedSeconds);
+        return stats;
+    }
+
     private ItemRequest putItemRequest(Long id) {
         return ItemRequest.builder()
                 .id(id)
@@ -111,6 +149,7 @@ public class ItemServiceTest {
         verify(userRepository, times(1)).findById(user.getId());
         verify(itemRequestRepository, times(1)).findById((itemRequest.getId()));
         verify(itemRepository, times(1)).save(any(Item.class));
+        verify(itemSearchIndex, times(1)).add(item);
     }
 
     @Test
@@ -194,19 +233,19 @@ public class ItemServiceTest {
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
         when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
         when(commentRepository.findAllByItemId(item.getId())).thenReturn(comments);
-        when(bookingRepository.findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(anyLong(), any(), any()))
-                .thenReturn(lastBooking);
-        when(bookingRepository.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(anyLong(), any(), any()))
-                .thenReturn(nextBooking);
+        when(bookingRepository.findLastBookingsByItemIds(anyCollection(), any(), any()))
+                .thenReturn(List.of(lastBooking));
+        when(bookingRepository.findNextBookingsByItemIds(anyCollection(), any(), any()))
+                .thenReturn(List.of(nextBooking));
         ItemDto itemDto = itemService.getItemById(owner.getId(), item.getId());
         assertEquals(item.getId(), itemDto.getId());
         assertEquals(lastBooking.getId(), itemDto.getLastBooking().getId());
         assertEquals(nextBooking.getId(), itemDto.getNextBooking().getId());
         verify(commentRepository, times(1)).findAllByItemId(item.getId());
         verify(bookingRepository, times(1))
-                .findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(anyLong(), any(), any());
+                .findLastBookingsByItemIds(eq(List.of(item.getId())), eq(Status.APPROVED), any());
         verify(bookingRepository, times(1))
-                .findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(anyLong(), any(), any());
+                .findNextBookingsByItemIds(eq(List.of(item.getId())), eq(Status.APPROVED), any());
     }
 
     @Test
@@ -217,11 +256,9 @@ public class ItemServiceTest {
         when(userRepository.findById(owner.getId())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> itemService.getItemsByOwnerId(owner.getId(), from, size));
-        verify(itemRepository, never()).getItemsByOwnerId(owner.getId(), eq(any(Pageable.class)));
-        verify(bookingRepository, never()).findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(anyLong(), any(),
-                any());
-        verify(bookingRepository, never()).findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(anyLong(), any(),
-                any());
+        verify(itemRepository, never()).getItemsWithNextBookingByOwnerId(anyLong(), any(), anyInt(), anyLong());
+        verify(bookingRepository, never()).findLastBookingsByItemIds(anyCollection(), any(), any());
+        verify(bookingRepository, never()).findNextBookingsByItemIds(anyCollection(), any(), any());
     }
 
     @Test
@@ -231,15 +268,16 @@ public class ItemServiceTest {
         Integer size = 5;
         User user = putUser(2L);
         when(userRepository.findById(owner.getId())).thenReturn(Optional.of(user));
-        when(itemRepository.getItemsByOwnerId(anyLong(), any())).thenReturn(Collections.emptyList());
+        when(itemRepository.getItemsWithNextBookingByOwnerId(anyLong(), any(), anyInt(), anyLong()))
+                .thenReturn(Collections.emptyList());
+        when(itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(anyLong(), any(), anyLong(), anyInt(), anyLong()))
+                .thenReturn(Collections.emptyList());
         List<ItemDto> itemsDto = itemService.getItemsByOwnerId(owner.getId(), from, size);
         assertTrue(itemsDto.isEmpty());
         verify(userRepository, times(1)).findById(owner.getId());
-        verify(itemRepository, times(1)).getItemsByOwnerId(anyLong(), any());
-        verify(bookingRepository, never()).findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(anyLong(), any(),
-                any());
-        verify(bookingRepository, never()).findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(anyLong(), any(),
-                any());
+        verify(itemRepository, times(1)).getItemsWithNextBookingByOwnerId(anyLong(), any(), anyInt(), anyLong());
+        verify(bookingRepository, never()).findLastBookingsByItemIds(anyCollection(), any(), any());
+        verify(bookingRepository, never()).findNextBookingsByItemIds(anyCollection(), any(), any());
     }
 
     @Test
@@ -258,15 +296,14 @@ public class ItemServiceTest {
         itemNextBooking.setStart(LocalDateTime.now().plusHours(5));
         itemNextBooking.setEnd(LocalDateTime.now().plusHours(10));
         when(userRepository.findById((owner.getId()))).thenReturn(Optional.of(owner));
-        when(itemRepository.getItemsByOwnerId(eq(owner.getId()), any(Pageable.class))).thenReturn(items);
-        when(bookingRepository.findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(eq(item.getId()), any(), any()))
-                .thenReturn(itemlastBooking);
-        when(bookingRepository.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(eq(item.getId()), any(), any()))
-                .thenReturn(itemNextBooking);
-        when(bookingRepository.findFirstByItemIdAndStatusAndStartBeforeOrderByEndDesc(eq(item1.getId()), any(), any()))
-                .thenReturn(null);
-        when(bookingRepository.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(eq(item1.getId()), any(), any()))
-                .thenReturn(null);
+        when(itemRepository.getItemsWithNextBookingByOwnerId(eq(owner.getId()), any(), eq(10), eq(0L)))
+                .thenReturn(List.of(item));
+        when(itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(eq(owner.getId()), any(), eq(0L), eq(9), eq(0L)))
+                .thenReturn(List.of(item1));
+        when(bookingRepository.findLastBookingsByItemIds(eq(List.of(item.getId(), item1.getId())), any(), any()))
+                .thenReturn(List.of(itemlastBooking));
+        when(bookingRepository.findNextBookingsByItemIds(eq(List.of(item.getId(), item1.getId())), any(), any()))
+                .thenReturn(List.of(itemNextBooking));
         List<ItemDto> actualItemsDto = itemService.getItemsByOwnerId(owner.getId(), 0, 10);
         assertThat(actualItemsDto.size(), equalTo(2));
         assertThat(actualItemsDto.get(0).getId(), equalTo(item.getId()));
@@ -283,7 +320,55 @@ public class ItemServiceTest {
         assertThat(actualItemsDto.get(1).getAvailable(), equalTo(item1.getAvailable()));
         assertThat(actualItemsDto.get(1).getNextBooking(), equalTo(null));
         assertThat(actualItemsDto.get(1).getLastBooking(), equalTo(null));
-        verify(itemRepository, times(1)).getItemsByOwnerId(eq(owner.getId()), any(Pageable.class));
+        verify(itemRepository, never()).countItemsWithNextBookingByOwnerId(anyLong(), any());
+        verify(bookingRepository, times(1)).findLastBookingsByItemIds(anyCollection(), any(), any());
+        verify(bookingRepository, times(1)).findNextBookingsByItemIds(anyCollection(), any(), any());
+    }
+
+    @Test
+    void getItemsByOwnerIdTestWhenPageStartsAfterItemsWithNextBooking() {
+        User owner = putUser(1L);
+        Item item = putItem(7L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(itemRepository.getItemsWithNextBookingByOwnerId(eq(owner.getId()), any(), eq(5), eq(10L)))
+                .thenReturn(Collections.emptyList());
+        when(itemRepository.countItemsWithNextBookingByOwnerId(eq(owner.getId()), any())).thenReturn(7L);
+        when(itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(eq(owner.getId()), any(), eq(0L), eq(5), eq(3L)))
+                .thenReturn(List.of(item));
+        List<ItemDto> actualItemsDto = itemService.getItemsByOwnerId(owner.getId(), 10, 5);
+        assertThat(actualItemsDto.size(), equalTo(1));
+        assertThat(actualItemsDto.get(0).getId(), equalTo(item.getId()));
+    }
+
+    @Test
+    void getItemsByOwnerIdAfterTestWhenCursorHasNextBooking() {
+        User owner = putUser(1L);
+        Item item = putItem(3L);
+        item.setOwner(owner);
+        Cursor cursor = new Cursor(LocalDateTime.now().plusDays(1), 2L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(itemRepository.getItemsWithNextBookingByOwnerIdAfter(eq(owner.getId()), any(), eq(cursor.getStart()),
+                eq(2L), eq(5))).thenReturn(List.of(item));
+        List<ItemDto> actualItemsDto = itemService.getItemsByOwnerIdAfter(owner.getId(), cursor, 5);
+        assertThat(actualItemsDto.size(), equalTo(1));
+        assertThat(actualItemsDto.get(0).getId(), equalTo(item.getId()));
+        verify(itemRepository, times(1)).getItemsWithoutNextBookingByOwnerIdAfter(eq(owner.getId()), any(), eq(0L),
+                eq(4), eq(0L));
+        verify(bookingRepository, times(1)).findNextBookingsByItemIds(eq(List.of(item.getId())), any(), any());
+    }
+
+    @Test
+    void getItemsByOwnerIdAfterTestWhenCursorHasNoNextBooking() {
+        User owner = putUser(1L);
+        Cursor cursor = new Cursor(null, 2L);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(itemRepository.getItemsWithoutNextBookingByOwnerIdAfter(eq(owner.getId()), any(), eq(2L), eq(5),
+                eq(0L))).thenReturn(Collections.emptyList());
+        List<ItemDto> actualItemsDto = itemService.getItemsByOwnerIdAfter(owner.getId(), cursor, 5);
+        assertTrue(actualItemsDto.isEmpty());
+        verify(itemRepository, never()).getItemsWithNextBookingByOwnerIdAfter(anyLong(), any(), any(), anyLong(),
+                anyInt());
+        verify(bookingRepository, never()).findLastBookingsByItemIds(anyCollection(), any(), any());
     }
 
     @Test
@@ -307,6 +392,120 @@ public class ItemServiceTest {
         assertThat(itemsDto.get(1).getAvailable(), equalTo(item1.getAvailable()));
         verify(itemRepository, times(1)).getItemsByTextOfQuery(eq(textOfQuery),
                 any(Pageable.class));
+        verify(itemSearchIndex, never()).searchSubstring(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void getItemsByTextOfQueryTestServesRepeatedQueryFromCache() {
+        when(itemRepository.getItemsByTextOfQuery(eq("Отвёртка"), any(Pageable.class)))
+                .thenReturn(List.of(putItem(1L)));
+        itemService.getItemsByTextOfQuery("Отвёртка", 0, 5);
+        //Регистр и смещение внутри страницы на ключ не влияют
+        List<ItemDto> itemsDto = itemService.getItemsByTextOfQuery("ОТВЁРТКА", 3, 5);
+        assertThat(itemsDto.size(), equalTo(1));
+        verify(itemRepository, times(1)).getItemsByTextOfQuery(any(), any());
+        assertThat(itemSearchCache.getStats().getHits(), equalTo(1L));
+        assertThat(itemSearchCache.getStats().getMisses(), equalTo(1L));
+    }
+
+    @Test
+    void updateItemTestInvalidatesOnlyMatchingSearches() {
+        User user = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(user);
+        when(itemRepository.getItemsByTextOfQuery(any(), any(Pageable.class))).thenReturn(List.of());
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(itemRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        itemService.getItemsByTextOfQuery("Крест", 0, 5);
+        itemService.getItemsByTextOfQuery("Пила", 0, 5);
+        itemService.getItemsByTextOfQuery("Молоток", 0, 5);
+        //Старое описание содержит "крест", новое название - "молоток"
+        itemService.updateItem(1L, ItemDto.builder().name("Молоток").description("Слесарный").build(), 1L);
+        itemService.getItemsByTextOfQuery("Крест", 0, 5);
+        itemService.getItemsByTextOfQuery("Пила", 0, 5);
+        itemService.getItemsByTextOfQuery("Молоток", 0, 5);
+        verify(itemRepository, times(2)).getItemsByTextOfQuery(eq("Крест"), any(Pageable.class));
+        verify(itemRepository, times(1)).getItemsByTextOfQuery(eq("Пила"), any(Pageable.class));
+        verify(itemRepository, times(2)).getItemsByTextOfQuery(eq("Молоток"), any(Pageable.class));
+        assertThat(itemSearchCache.getStats().getInvalidations(), equalTo(2L));
+    }
+
+    @Test
+    void getItemsByTextOfQueryTestUsesSearchIndex() {
+        String textOfQuery = "вёрт";
+        Item item = putItem(4L);
+        Item item1 = putItem(3L);
+        Item item2 = putItem(5L);
+        Item falseCandidate = putItem(6L);
+        falseCandidate.setName("Вёр");
+        falseCandidate.setDescription("ёрт");
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.searchSubstring(eq(textOfQuery), eq(0L), anyInt())).thenReturn(List.of(3L, 4L, 5L, 6L));
+        when(itemRepository.findAllById(List.of(3L, 4L, 5L, 6L)))
+                .thenReturn(List.of(item, falseCandidate, item2, item1));
+        List<ItemDto> itemsDto = itemService.getItemsByTextOfQuery(textOfQuery, 1, 1);
+        assertThat(itemsDto.size(), equalTo(1));
+        assertThat(itemsDto.get(0).getId(), equalTo(4L));
+        itemsDto = itemService.getItemsByTextOfQuery(textOfQuery, 3, 1);
+        assertTrue(itemsDto.isEmpty());
+        verify(itemSearchIndex, times(1)).searchSubstring(eq(textOfQuery), eq(6L), anyInt());
+        verify(itemRepository, never()).getItemsByTextOfQuery(any(), any());
+    }
+
+    @Test
+    void getItemsByTextOfQueryTestWhenIndexFindsNothing() {
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.searchSubstring(eq("Пила"), eq(0L), anyInt())).thenReturn(List.of());
+        List<ItemDto> itemsDto = itemService.getItemsByTextOfQuery("Пила", 0, 2);
+        assertTrue(itemsDto.isEmpty());
+        verify(itemRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getItemsByTextOfQueryTestWhenTextIsShorterThanTrigram() {
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemRepository.getItemsByTextOfQuery(eq("Пи"), any(Pageable.class))).thenReturn(List.of(putItem(1L)));
+        List<ItemDto> itemsDto = itemService.getItemsByTextOfQuery("Пи", 0, 2);
+        assertThat(itemsDto.size(), equalTo(1));
+        verify(itemSearchIndex, never()).searchSubstring(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void getItemsByFuzzyTextOfQueryTestKeepsIndexOrder() {
+        Item item = putItem(4L);
+        Item item1 = putItem(3L);
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.searchFuzzy("Отвертка", 0, 5)).thenReturn(List.of(4L, 3L));
+        when(itemRepository.findAllById(List.of(4L, 3L))).thenReturn(List.of(item1, item));
+        List<ItemDto> itemsDto = itemService.getItemsByFuzzyTextOfQuery("Отвертка", 0, 5);
+        assertThat(itemsDto.size(), equalTo(2));
+        assertThat(itemsDto.get(0).getId(), equalTo(4L));
+        assertThat(itemsDto.get(1).getId(), equalTo(3L));
+    }
+
+    @Test
+    void getItemsByFuzzyTextOfQueryTestWhenIndexIsNotReady() {
+        when(itemRepository.getItemsByTextOfQuery(eq("Отвертка"), any(Pageable.class))).thenReturn(List.of());
+        List<ItemDto> itemsDto = itemService.getItemsByFuzzyTextOfQuery("Отвертка", 0, 5);
+        assertTrue(itemsDto.isEmpty());
+        verify(itemSearchIndex, never()).searchFuzzy(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getSuggestionsTestCorrect() {
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.suggest("отв", 5)).thenReturn(List.of(new ItemSuggestionDto("отвертка", 2)));
+        List<ItemSuggestionDto> suggestions = itemService.getSuggestions(" отв ", 5);
+        assertThat(suggestions.size(), equalTo(1));
+        assertThat(suggestions.get(0).getText(), equalTo("отвертка"));
+    }
+
+    @Test
+    void getSuggestionsTestWhenPrefixIsBlankOrIndexIsNotReady() {
+        assertTrue(itemService.getSuggestions(" ", 5).isEmpty());
+        assertTrue(itemService.getSuggestions("отв", 5).isEmpty());
+        verify(itemSearchIndex, never()).suggest(any(), anyInt());
     }
 
     @Test
@@ -319,6 +518,169 @@ public class ItemServiceTest {
         verify(itemRepository, never()).getItemsByTextOfQuery(any(), any());
     }
 
+    @Test
+    void getFreeItemsByTextOfQueryTestCorrect() {
+        String textOfQuery = "Отвёртка";
+        LocalDateTime start = LocalDateTime.of(2030, 1, 4, 0, 0);
+        LocalDateTime end = start.plusDays(2);
+        Item item = putItem(4L);
+        Item item1 = putItem(5L);
+        when(itemRepository.getAvailableItemIdsByTextOfQuery(eq(textOfQuery), eq(0L), any()))
+                .thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+        when(occupancyIndex.filterFree(List.of(1L, 2L, 3L, 4L, 5L), start, end)).thenReturn(List.of(1L, 3L, 4L, 5L));
+        when(itemRepository.findAllById(List.of(4L, 5L))).thenReturn(List.of(item1, item));
+        List<ItemDto> itemsDto = itemService.getFreeItemsByTextOfQuery(textOfQuery, start, end, 2, 2);
+        assertThat(itemsDto.size(), equalTo(2));
+        assertThat(itemsDto.get(0).getId(), equalTo(item.getId()));
+        assertThat(itemsDto.get(1).getId(), equalTo(item1.getId()));
+    }
+
+    @Test
+    void getFreeItemsByTextOfQueryTestWhenPageIsEmpty() {
+        String textOfQuery = "Отвёртка";
+        LocalDateTime start = LocalDateTime.of(2030, 1, 4, 0, 0);
+        LocalDateTime end = start.plusDays(2);
+        when(itemRepository.getAvailableItemIdsByTextOfQuery(eq(textOfQuery), eq(0L), any())).thenReturn(List.of(1L));
+        when(occupancyIndex.filterFree(List.of(1L), start, end)).thenReturn(List.of(1L));
+        assertTrue(itemService.getFreeItemsByTextOfQuery(textOfQuery, start, end, 10, 10).isEmpty());
+        verify(itemRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getFreeItemsByTextOfQueryTestWhenPeriodIsIncorrect() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 4, 0, 0);
+        assertThrows(ValidationException.class, () ->
+                itemService.getFreeItemsByTextOfQuery("Отвёртка", start, null, 0, 10));
+        assertThrows(ValidationException.class, () ->
+                itemService.getFreeItemsByTextOfQuery("Отвёртка", start, start.minusDays(1), 0, 10));
+        verify(itemRepository, never()).getAvailableItemIdsByTextOfQuery(any(), anyLong(), any());
+    }
+
+    @Test
+    void getFreeItemsByTextOfQueryTestReadsCandidatesInBatches() {
+        String textOfQuery = "Отвёртка";
+        LocalDateTime start = LocalDateTime.of(2030, 1, 4, 0, 0);
+        LocalDateTime end = start.plusDays(2);
+        List<Long> firstBatch = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            firstBatch.add(id);
+        }
+        Item item = putItem(101L);
+        when(itemRepository.getAvailableItemIdsByTextOfQuery(eq(textOfQuery), eq(0L), any())).thenReturn(firstBatch);
+        when(itemRepository.getAvailableItemIdsByTextOfQuery(eq(textOfQuery), eq(100L), any()))
+                .thenReturn(List.of(101L, 102L));
+        when(occupancyIndex.filterFree(firstBatch, start, end)).thenReturn(List.of());
+        when(occupancyIndex.filterFree(List.of(101L, 102L), start, end)).thenReturn(List.of(101L, 102L));
+        when(itemRepository.findAllById(List.of(101L))).thenReturn(List.of(item));
+        List<ItemDto> itemsDto = itemService.getFreeItemsByTextOfQuery(textOfQuery, start, end, 0, 1);
+        assertThat(itemsDto.size(), equalTo(1));
+        assertThat(itemsDto.get(0).getId(), equalTo(101L));
+        verify(itemRepository, never()).getAvailableItemIdsByTextOfQuery(eq(textOfQuery), eq(102L), any());
+    }
+
+    @Test
+    void getFreeItemsByTextOfQueryTestUsesSearchIndex() {
+        String textOfQuery = "вёртк";
+        LocalDateTime start = LocalDateTime.of(2030, 1, 4, 0, 0);
+        LocalDateTime end = start.plusDays(2);
+        Item item = putItem(2L);
+        Item other = putItem(3L);
+        other.setName("Дрель");
+        other.setDescription("Ударная");
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.searchSubstring(eq(textOfQuery), eq(0L), anyInt())).thenReturn(List.of(1L, 2L, 3L));
+        when(occupancyIndex.filterFree(List.of(1L, 2L, 3L), start, end)).thenReturn(List.of(2L, 3L));
+        when(itemRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(other, item));
+        when(itemRepository.findAllById(List.of(2L))).thenReturn(List.of(item));
+        List<ItemDto> itemsDto = itemService.getFreeItemsByTextOfQuery(textOfQuery, start, end, 0, 10);
+        assertThat(itemsDto.size(), equalTo(1));
+        assertThat(itemsDto.get(0).getId(), equalTo(2L));
+        verify(itemRepository, never()).getAvailableItemIdsByTextOfQuery(any(), anyLong(), any());
+    }
+
+    @Test
+    void getFreeIntervalsTestCorrect() {
+        User user = putUser(1L);
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(itemRepository.existsById(2L)).thenReturn(true);
+        when(bookingRepository.findByItemIdAndStatusInAndStartBeforeAndEndAfterOrderByStart(eq(2L), anyCollection(),
+                eq(to), eq(from))).thenReturn(List.of(
+                putPeriod(1L, from.minusDays(1), from.plusDays(1)),
+                putPeriod(2L, from.plusDays(3), from.plusDays(5)),
+                putPeriod(3L, from.plusDays(4), from.plusDays(4).plusHours(1)),
+                putPeriod(4L, from.plusDays(5), from.plusDays(6))));
+        List<FreeIntervalDto> free = itemService.getFreeIntervals(user.getId(), 2L, from, to);
+        assertThat(free, equalTo(List.of(
+                FreeIntervalDto.builder().start(from.plusDays(1)).end(from.plusDays(3)).build(),
+                FreeIntervalDto.builder().start(from.plusDays(6)).end(to).build())));
+    }
+
+    @Test
+    void getFreeIntervalsTestWhenItemIsFullyBooked() {
+        User user = putUser(1L);
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(1);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(itemRepository.existsById(2L)).thenReturn(true);
+        when(bookingRepository.findByItemIdAndStatusInAndStartBeforeAndEndAfterOrderByStart(eq(2L), anyCollection(),
+                eq(to), eq(from))).thenReturn(List.of(putPeriod(1L, from.minusDays(1), to.plusDays(1))));
+        assertTrue(itemService.getFreeIntervals(user.getId(), 2L, from, to).isEmpty());
+    }
+
+    @Test
+    void getFreeIntervalsTestWhenPeriodIsIncorrect() {
+        User user = putUser(1L);
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        assertThrows(ValidationException.class, () -> itemService.getFreeIntervals(user.getId(), 2L, from, from));
+        verify(bookingRepository, never())
+                .findByItemIdAndStatusInAndStartBeforeAndEndAfterOrderByStart(any(), any(), any(), any());
+    }
+
+    @Test
+    void getItemStatsTestCorrect() {
+        User user = putUser(1L);
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        List<ItemBookingStats> rows = List.of(putStats(2L, 3L, 1L, 2.5 * 86_400), putStats(3L, 0L, 0L, 0));
+        when(itemRepository.getItemStatsByOwnerId(user.getId(), from, to)).thenReturn(rows);
+        List<ItemStatsDto> stats = itemService.getItemStats(user.getId(), from, to);
+        assertThat(stats, equalTo(List.of(
+                ItemStatsDto.builder().itemId(2L).name("Отвёртка").bookings(4L).approved(3L).rejected(1L)
+                        .bookedDays(2.5).occupancy(25.0).approvalRate(0.75).build(),
+                ItemStatsDto.builder().itemId(3L).name("Отвёртка").bookings(0L).approved(0L).rejected(0L)
+                        .bookedDays(0.0).occupancy(0.0).build())));
+    }
+
+    @Test
+    void getItemStatsTestWhenPeriodIsIncorrect() {
+        User user = putUser(1L);
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        assertThrows(ValidationException.class, () -> itemService.getItemStats(user.getId(), from, from));
+        verify(itemRepository, never()).getItemStatsByOwnerId(any(), any(), any());
+    }
+
+    @Test
+    void getItemStatsTestWhenUserIsNotFound() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> itemService.getItemStats(1L, from, from.plusDays(1)));
+    }
+
+    @Test
+    void getFreeIntervalsTestWhenItemIsNotFound() {
+        User user = putUser(1L);
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(itemRepository.existsById(2L)).thenReturn(false);
+        assertThrows(NotFoundException.class, () ->
+                itemService.getFreeIntervals(user.getId(), 2L, from, from.plusDays(1)));
+    }
+
     @Test
     void updateItemTestCorrect() {
         ItemDto itemDto = ItemDto.builder().build();
@@ -335,6 +697,32 @@ public class ItemServiceTest {
         assertThat(actualDto.getAvailable(), equalTo(item.getAvailable()));
         verify(itemRepository, times(1)).findById(eq(item.getId()));
         verify(itemRepository, times(1)).save(any(Item.class));
+        verify(itemSearchIndex, times(1)).update("Отвёртка", "Крестовая отвёртка", item);
+    }
+
+    @Test
+    void updateItemTestPassesOldTextToSearchIndex() {
+        ItemDto itemDto = ItemDto.builder().name("Дрель").build();
+        User owner = putUser(1L);
+        Item item = putItem(1L);
+        item.setOwner(owner);
+        when(userRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+        when(itemRepository.save(any(Item.class))).thenReturn(item);
+        itemService.updateItem(item.getId(), itemDto, owner.getId());
+        assertThat(item.getName(), equalTo("Дрель"));
+        verify(itemSearchIndex, times(1)).update("Отвёртка", "Крестовая отвёртка", item);
+    }
+
+    @Test
+    void deleteItemTestRemovesItemFromSearchIndex() {
+        Item item = putItem(1L);
+        item.setOwner(putUser(2L));
+        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+        itemService.deleteItem(item.getId());
+        verify(itemSearchIndex, times(1)).remove(item);
+        verify(bookingSummaryIndex, times(1)).invalidateItem(1L, 2L);
+        verify(itemRepository, times(1)).deleteById(item.getId());
     }
 
     @Test
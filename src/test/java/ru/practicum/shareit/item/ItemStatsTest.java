@@ -0,0 +1,117 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingArchiver;
+import ru.practicum.shareit.item.dto.ItemStatsDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemStatsCache;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Агрегаты по предметам владельца одним запросом к основной таблице и архиву бронирований.
+ */
+@SpringBootTest(properties = "shareit.items.stats.cache-ttl-millis=60000")
+class ItemStatsTest {
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private ItemStatsCache itemStatsCache;
+    @Autowired
+    private BookingArchiver bookingArchiver;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    private final LocalDateTime from = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private final LocalDateTime to = from.plusDays(10);
+    private User owner;
+    private User booker;
+    private Item boat;
+    private Item tent;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@stats.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@stats.ru").build());
+        boat = saveItem("Байдарка");
+        tent = saveItem("Палатка");
+        //Бронь, начавшаяся до периода, учитывается только своей частью внутри периода
+        saveBooking(boat, from.minusDays(1), from.plusDays(2), Status.APPROVED);
+        saveBooking(boat, from.plusDays(5), from.plusDays(6), Status.APPROVED);
+        saveBooking(boat, from.plusDays(7), from.plusDays(8), Status.REJECTED);
+        saveBooking(boat, from.plusDays(8), from.plusDays(9), Status.WAITING);
+        saveBooking(boat, to, to.plusDays(1), Status.APPROVED);
+        //Все брони периода давно закончились и лежат в архиве
+        bookingArchiver.archive(LocalDateTime.now());
+        saveBooking(boat, from.plusDays(9), to.plusDays(3), Status.APPROVED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archivedBookingRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getItemStatsTestAggregatesHotAndArchivedBookings() {
+        assertThat(archivedBookingRepository.count(), equalTo(5L));
+        List<ItemStatsDto> stats = itemService.getItemStats(owner.getId(), from, to);
+        assertThat(stats, equalTo(List.of(
+                ItemStatsDto.builder().itemId(boat.getId()).name("Байдарка").bookings(5L).approved(3L).rejected(1L)
+                        .bookedDays(4.0).occupancy(40.0).approvalRate(0.75).build(),
+                ItemStatsDto.builder().itemId(tent.getId()).name("Палатка").bookings(0L).approved(0L).rejected(0L)
+                        .bookedDays(0.0).occupancy(0.0).build())));
+    }
+
+    @Test
+    void getItemStatsTestCachedResultIsShared() {
+        List<ItemStatsDto> first = itemStatsCache.getItemStats(owner.getId(), from, to);
+        saveBooking(tent, from, to, Status.APPROVED);
+        assertThat(itemStatsCache.getItemStats(owner.getId(), from, to), sameInstance(first));
+        assertThat(itemService.getItemStats(owner.getId(), from, to).get(1).getOccupancy(), equalTo(100.0));
+    }
+
+    private Item saveItem(String name) {
+        return itemRepository.save(Item.builder()
+                .name(name)
+                .description(name)
+                .available(true)
+                .owner(owner)
+                .build());
+    }
+
+    private void saveBooking(Item item, LocalDateTime start, LocalDateTime end, Status status) {
+        bookingRepository.save(Booking.builder()
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .start(start)
+                .end(end)
+                .build());
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Предметы владельца: сначала с ближайшей подтверждённой бронью по её началу, затем остальные по id.
+ * Страница может начинаться в одной части списка и заканчиваться в другой.
+ */
+@SpringBootTest
+class ItemsByOwnerTest {
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+    private User owner;
+    private User booker;
+    private Item later;
+    private Item sooner;
+    private Item free;
+    private Item rejected;
+    private Item past;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder().name("Owner").email("owner@by-owner.ru").build());
+        booker = userRepository.save(User.builder().name("Booker").email("booker@by-owner.ru").build());
+        later = saveItem("Байдарка");
+        sooner = saveItem("Палатка");
+        free = saveItem("Котелок");
+        rejected = saveItem("Спальник");
+        past = saveItem("Фонарь");
+        saveBooking(later, now.plusDays(3), Status.APPROVED);
+        saveBooking(later, now.plusDays(5), Status.APPROVED);
+        saveBooking(sooner, now.plusDays(1), Status.APPROVED);
+        saveBooking(rejected, now.plusDays(1), Status.REJECTED);
+        saveBooking(past, now.minusDays(3), Status.APPROVED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getItemsByOwnerIdTestPagesAcrossItemsWithAndWithoutNextBooking() {
+        assertThat(ids(itemService.getItemsByOwnerId(owner.getId(), 0, 3)),
+                equalTo(List.of(sooner.getId(), later.getId(), free.getId())));
+        assertThat(ids(itemService.getItemsByOwnerId(owner.getId(), 3, 3)),
+                equalTo(List.of(rejected.getId(), past.getId())));
+        assertThat(ids(itemService.getItemsByOwnerId(owner.getId(), 0, 10)).size(), equalTo(5));
+    }
+
+    @Test
+    void getItemsByOwnerIdAfterTestContinuesFromCursor() {
+        assertThat(ids(itemService.getItemsByOwnerIdAfter(owner.getId(),
+                        new Cursor(now.plusDays(1), sooner.getId()), 2)),
+                equalTo(List.of(later.getId(), free.getId())));
+        assertThat(ids(itemService.getItemsByOwnerIdAfter(owner.getId(), new Cursor(null, free.getId()), 2)),
+                equalTo(List.of(rejected.getId(), past.getId())));
+    }
+
+    private Item saveItem(String name) {
+        return itemRepository.save(Item.builder()
+                .name(name)
+                .description(name)
+                .available(true)
+                .owner(owner)
+                .build());
+    }
+
+    private void saveBooking(Item item, LocalDateTime start, Status status) {
+        bookingRepository.save(Booking.builder()
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .start(start)
+                .end(start.plusDays(1))
+                .build());
+    }
+
+    private static List<Long> ids(List<ItemDto> items) {
+        return items.stream().map(ItemDto::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,295 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.model.Item;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class ItemSearchIndexTest {
+    //Без активной транзакции изменения применяются сразу, БД для этих проверок не нужна
+    private final ItemSearchIndex index = new ItemSearchIndex(null, null, 1000);
+
+    private List<String> suggestions(String prefix) {
+        return index.suggest(prefix, 10).stream()
+                .map(suggestion -> suggestion.getText() + ":" + suggestion.getItems())
+                .collect(Collectors.toList());
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('а' + random.nextInt(5)));
+        }
+        return word.toString();
+    }
+
+    //Прямой перебор: оценка предмета - сумма лучших подобранных слов по каждому слову запроса, частота слова
+    //считается по всем предметам, включая недоступные
+    private static List<Long> bruteForceFuzzy(String query, Map<Long, Set<String>> texts, Set<Long> availableIds,
+                                              List<String> vocabulary, int offset, int limit) {
+        Map<String, Long> frequencies = new HashMap<>();
+        texts.values().forEach(words -> words.forEach(word -> frequencies.merge(word, 1L, Long::sum)));
+        List<List<String>> matches = new ArrayList<>();
+        for (String word : ItemTokenizer.tokenize(query)) {
+            matches.add(new TreeSet<>(vocabulary).stream()
+                    .filter(term -> TermTrieTest.distance(word, term) <= ItemSearchIndex.maxFuzzyDistance(word))
+                    .sorted(Comparator.comparingInt((String term) -> TermTrieTest.distance(word, term))
+                            .thenComparing(term -> -frequencies.getOrDefault(term, 0L)))
+                    .collect(Collectors.toList()));
+        }
+        Map<Long, long[]> scores = new TreeMap<>();
+        candidates:
+        for (Map.Entry<Long, Set<String>> entry : texts.entrySet()) {
+            if (!availableIds.contains(entry.getKey())) {
+                continue;
+            }
+            long[] score = new long[2];
+            for (int k = 0; k < matches.size(); k++) {
+                String best = matches.get(k).stream().filter(entry.getValue()::contains).findFirst().orElse(null);
+                if (best == null) {
+                    continue candidates;
+                }
+                String word = new ArrayList<>(ItemTokenizer.tokenize(query)).get(k);
+                score[0] += TermTrieTest.distance(word, best);
+                score[1] -= frequencies.get(best);
+            }
+            scores.put(entry.getKey(), score);
+        }
+        return scores.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Long, long[]> e) -> e.getValue()[0])
+                        .thenComparingLong(e -> e.getValue()[1])
+                        .thenComparing(Map.Entry::getKey))
+                .skip(offset)
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private Item item(long id, String name, String description, boolean available) {
+        return Item.builder().id(id).name(name).description(description).available(available).build();
+    }
+
+    @Test
+    void tokenizeSplitsOnNonLettersAndIgnoresCase() {
+        assertThat(new ArrayList<>(ItemTokenizer.tokenize("Дрель-шуруповёрт, 18V", "ДРЕЛЬ")),
+                contains("дрель", "шуруповёрт", "18v"));
+    }
+
+    @Test
+    void updateAndRemoveKeepWordPostingsCurrent() {
+        Item item = item(5, "Велосипед", "Горный", true);
+        index.add(item);
+        index.add(item(3, "Велосипед", "Детский", true));
+        item.setName("Самокат");
+        item.setAvailable(true);
+        index.update("Велосипед", "Горный", item);
+        assertThat(index.searchFuzzy("велосипед", 0, 10), contains(3L));
+        assertThat(index.searchFuzzy("самокат", 0, 10), contains(5L));
+        assertThat(index.searchFuzzy("горный самокат", 0, 10), contains(5L));
+        item.setAvailable(false);
+        index.update("Самокат", "Горный", item);
+        assertThat(index.searchFuzzy("самокат", 0, 10), empty());
+        index.remove(item(3, "Велосипед", "Детский", true));
+        assertThat(index.searchFuzzy("велосипед", 0, 10), empty());
+    }
+
+    @Test
+    void intersectionOfLongAndShortLists() {
+        for (long id = 1; id <= 10_000; id++) {
+            index.add(item(id, "Инструмент", id % 1000 == 0 ? "Редкий инструмент" : "Обычный", true));
+        }
+        //Добавление не по порядку id вставляет в середину списка
+        index.add(item(5001, "Набор", "Редкий инструмент", true));
+        List<Long> expected = IntStream.rangeClosed(1, 10)
+                .mapToObj(i -> (long) i * 1000)
+                .collect(Collectors.toList());
+        //Триграмма "й и" есть у одиннадцати предметов, "инс" - у всех
+        List<Long> found = index.searchSubstring("й инс", 0, 100);
+        assertThat(found.size(), equalTo(11));
+        assertThat(found.subList(0, 5), equalTo(expected.subList(0, 5)));
+        assertThat(found.get(5), equalTo(5001L));
+        assertThat(found.subList(6, 11), equalTo(expected.subList(5, 10)));
+    }
+
+    @Test
+    void trigramsAreDistinctSortedAndDoNotSpanTexts() {
+        long[] trigrams = ItemTokenizer.trigrams("Абаб", "аб");
+        //"аба" и "баб" из первого текста; на стыке "баб" + "аб" новых триграмм нет
+        assertThat(trigrams.length, equalTo(2));
+        assertThat(trigrams[0] < trigrams[1], equalTo(true));
+        assertThat(ItemTokenizer.trigrams("аб").length, equalTo(0));
+    }
+
+    @Test
+    void searchSubstringFindsInfixCandidates() {
+        index.add(item(1, "Дрель", "Ударная", true));
+        index.add(item(2, "Рельс", "Стальной", true));
+        index.add(item(3, "Модель", "Сборная", true));
+        index.add(item(4, "Дрель", "Сломана", false));
+        assertThat(index.searchSubstring("РЕЛЬ", 0, 10), contains(1L, 2L));
+        assertThat(index.searchSubstring("дрель уд", 0, 10), empty());
+        assertThat(index.searchSubstring("ель", 0, 10), contains(1L, 2L, 3L));
+        assertThat(index.searchSubstring("ель", 1, 10), contains(2L, 3L));
+        assertThat(index.searchSubstring("ель", 0, 2), contains(1L, 2L));
+        assertThat(index.searchSubstring("ел", 0, 10), empty());
+    }
+
+    @Test
+    void itemWithIdBeyondIntRangeDoesNotFailWrites() {
+        index.add(item(1, "Дрель", "Ударная", true));
+        Item large = item(Integer.MAX_VALUE + 1L, "Дрель", "Новая", true);
+        index.add(large);
+        index.update("Дрель", "Новая", large);
+        index.remove(large);
+        assertThat(index.isReady(), equalTo(false));
+        assertThat(index.searchSubstring("дрель", 0, 10), contains(1L));
+        assertThat(index.searchSubstring("дрель", Integer.MAX_VALUE, 10), empty());
+    }
+
+    @Test
+    void searchSubstringReturnsCandidatesThatNeedVerification() {
+        //Все триграммы "абвг" есть, но не подряд: отсеивает проверка по тексту
+        index.add(item(1, "абв", "бвг", true));
+        assertThat(index.searchSubstring("абвг", 0, 10), contains(1L));
+    }
+
+    @Test
+    void updateMovesTrigramPostings() {
+        Item item = item(1, "Палатка", "Туристическая", true);
+        index.add(item);
+        item.setName("Тент");
+        index.update("Палатка", "Туристическая", item);
+        assertThat(index.searchSubstring("латк", 0, 10), empty());
+        assertThat(index.searchSubstring("ент", 0, 10), contains(1L));
+        assertThat(index.searchSubstring("турист", 0, 10), contains(1L));
+        index.remove(item);
+        assertThat(index.searchSubstring("турист", 0, 10), empty());
+    }
+
+    @Test
+    void searchFuzzyRanksByDistanceThenFrequency() {
+        index.add(item(1, "Дрель", "Ударная", true));
+        index.add(item(2, "Дрель", "Сетевая", true));
+        index.add(item(3, "Дуэль", "Пистолеты", true));
+        index.add(item(4, "Дрели", "Набор", true));
+        index.add(item(5, "Дрель", "Сломана", false));
+        //"дрэль": "дрель" (2 доступных предмета) и "дуэль" на расстоянии 1, "дрели" на расстоянии 2 - дальше
+        //допустимого для слова из пяти букв
+        assertThat(index.searchFuzzy("дрэль", 0, 10), contains(1L, 2L, 3L));
+        assertThat(index.searchFuzzy("дрэль", 1, 2), contains(2L, 3L));
+        //Точное совпадение выше "дрели" на расстоянии 1, "дуэль" на расстоянии 2 уже не подходит
+        assertThat(index.searchFuzzy("дрель", 0, 10), contains(1L, 2L, 4L));
+    }
+
+    @Test
+    void searchFuzzyRequiresMatchForEveryWord() {
+        index.add(item(1, "Дрель", "Ударная", true));
+        index.add(item(2, "Дрель", "Сетевая", true));
+        assertThat(index.searchFuzzy("дрэль удрная", 0, 10), contains(1L));
+        assertThat(index.searchFuzzy("дрэль экскаватор", 0, 10), empty());
+    }
+
+    @Test
+    void searchFuzzyMatchesBruteForceOnRandomItems() {
+        Random random = new Random(23);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            vocabulary.add(randomWord(random, 3 + random.nextInt(5)));
+        }
+        Map<Long, Set<String>> texts = new HashMap<>();
+        Set<Long> availableIds = new HashSet<>();
+        for (long id = 1; id <= 2000; id++) {
+            String name = vocabulary.get(random.nextInt(vocabulary.size()));
+            String description = vocabulary.get(random.nextInt(vocabulary.size())) + " " +
+                    vocabulary.get(random.nextInt(vocabulary.size()));
+            boolean isAvailable = random.nextInt(5) != 0;
+            index.add(item(id, name, description, isAvailable));
+            texts.put(id, ItemTokenizer.tokenize(name, description));
+            if (isAvailable) {
+                availableIds.add(id);
+            }
+        }
+        for (int q = 0; q < 200; q++) {
+            String query = randomWord(random, 3 + random.nextInt(5)) +
+                    (q % 2 == 0 ? "" : " " + vocabulary.get(random.nextInt(vocabulary.size())));
+            int offset = random.nextInt(3) * 5;
+            assertThat(query, index.searchFuzzy(query, offset, 10),
+                    equalTo(bruteForceFuzzy(query, texts, availableIds, vocabulary, offset, 10)));
+        }
+    }
+
+    @Test
+    void searchFuzzyDoesNotAllocatePerPosting() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (long id = 1; id <= 20_000; id++) {
+            index.add(item(id, "Дрель", "Ударная", true));
+        }
+        for (int i = 0; i < 1000; i++) {
+            index.searchFuzzy("дрэль", 0, 10);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            index.searchFuzzy("дрэль", 0, 10);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        //Двадцать тысяч подходящих предметов, но выделяется только под страницу и подобранные слова
+        assertThat(allocated / 1000, lessThan(5_000L));
+    }
+
+    @Test
+    void searchFuzzyIgnoresRemovedTerms() {
+        Item item = item(1, "Гамак", "Сетчатый", true);
+        index.add(item);
+        index.remove(item);
+        assertThat(index.searchFuzzy("гамок", 0, 10), empty());
+        index.add(item(2, "Гамак", "Тканевый", true));
+        assertThat(index.searchFuzzy("гамок", 0, 10), contains(2L));
+    }
+
+    @Test
+    void suggestCountsAvailableItemsByNameWords() {
+        Item drill = item(1, "Дрель ударная", "Дренаж не прочистит", true);
+        index.add(drill);
+        index.add(item(2, "Дрель", "Сетевая", true));
+        index.add(item(3, "Дрезина", "Ручная", false));
+        //Слова описания и недоступные предметы в подсказки не попадают
+        assertThat(suggestions("др"), contains("дрель:2"));
+        assertThat(suggestions("уд"), contains("ударная:1"));
+        drill.setAvailable(false);
+        index.update("Дрель ударная", "Дренаж не прочистит", drill);
+        assertThat(suggestions("др"), contains("дрель:1"));
+        drill.setName("Дрезина");
+        drill.setAvailable(true);
+        index.update("Дрель ударная", "Дренаж не прочистит", drill);
+        assertThat(suggestions("др"), contains("дрезина:1", "дрель:1"));
+        assertThat(suggestions("уд"), empty());
+        index.remove(drill);
+        assertThat(suggestions("др"), contains("дрель:1"));
+    }
+
+    @Test
+    void fuzzyDistanceDependsOnWordLength() {
+        assertThat(ItemSearchIndex.maxFuzzyDistance("ак"), equalTo(0));
+        assertThat(ItemSearchIndex.maxFuzzyDistance("пила"), equalTo(1));
+        assertThat(ItemSearchIndex.maxFuzzyDistance("палатка"), equalTo(2));
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class SuggestTrieTest {
+    private final SuggestTrie trie = new SuggestTrie();
+
+    private List<String> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, limit).stream()
+                .map(ItemSuggestionDto::getText)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void suggestRanksByWeightThenAlphabetically() {
+        trie.addWeight("дрель", 3);
+        trie.addWeight("дрезина", 1);
+        trie.addWeight("дренаж", 3);
+        trie.addWeight("доска", 5);
+        assertThat(suggest("дре", 10), contains("дрель", "дренаж", "дрезина"));
+        assertThat(suggest("ДР", 2), contains("дрель", "дренаж"));
+        assertThat(suggest("д", 10), contains("доска", "дрель", "дренаж", "дрезина"));
+        assertThat(suggest("дрель", 10), contains("дрель"));
+        assertThat(trie.suggest("дрел", 10).get(0).getItems(), equalTo(3));
+        assertThat(suggest("пила", 10), empty());
+        assertThat(suggest("дрельщик", 10), empty());
+    }
+
+    @Test
+    void suggestSkipsTermsWithoutWeight() {
+        trie.addWeight("палатка", 1);
+        trie.addWeight("палас", 1);
+        trie.addWeight("палатка", -1);
+        assertThat(trie.weight("палатка"), equalTo(0));
+        assertThat(suggest("пал", 10), contains("палас"));
+        trie.addWeight("палас", -5);
+        assertThat(trie.weight("палас"), equalTo(0));
+        assertThat(suggest("па", 10), empty());
+    }
+
+    @Test
+    void decreasedWeightLetsTermOutsideTopIn() {
+        for (int i = 0; i < SuggestTrie.MAX_SUGGESTIONS + 1; i++) {
+            trie.addWeight("пила" + (char) ('а' + i), 2);
+        }
+        trie.addWeight("пилак", -1);
+        assertThat(suggest("пил", 10).size(), equalTo(SuggestTrie.MAX_SUGGESTIONS));
+        assertThat(suggest("пил", 10).contains("пилак"), equalTo(false));
+        trie.addWeight("пилаа", -2);
+        assertThat(suggest("пил", 10).contains("пилак"), equalTo(true));
+        assertThat(suggest("пил", 10).contains("пилаа"), equalTo(false));
+    }
+
+    @Test
+    void suggestMatchesBruteForceOnRandomWeights() {
+        Random random = new Random(11);
+        Map<String, Integer> weights = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(4);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('а' + random.nextInt(4)));
+            }
+            int delta = random.nextInt(3) - 1;
+            trie.addWeight(word.toString(), delta);
+            weights.put(word.toString(), Math.max(weights.getOrDefault(word.toString(), 0) + delta, 0));
+        }
+        for (String prefix : List.of("", "а", "б", "аб", "вв", "гаг")) {
+            List<String> expected = weights.entrySet().stream()
+                    .filter(e -> e.getKey().startsWith(prefix) && e.getValue() > 0)
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                    .limit(SuggestTrie.MAX_SUGGESTIONS)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            assertThat(prefix, suggest(prefix, SuggestTrie.MAX_SUGGESTIONS), equalTo(expected));
+        }
+    }
+
+    @Test
+    void suggestAllocatesOnlyResponse() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        trie.addWeight("дрель", 1);
+        for (int i = 0; i < 50_000; i++) {
+            trie.suggest("пила", 10);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            trie.suggest("пила", 10);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        //Без совпадений ответ пустой и общий, значит и выделять нечего
+        assertThat(allocated, lessThan(10_000L));
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+public class TermTrieTest {
+    private final TermTrie tree = new TermTrie();
+
+    private Map<String, Integer> find(String query, int maxDistance) {
+        Map<String, Integer> found = new HashMap<>();
+        tree.find(query, maxDistance, found::put);
+        return found;
+    }
+
+    //Эталон для проверок нечёткого поиска: расстояние Левенштейна полной матрицей
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int replace = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    @Test
+    void distanceCountsInsertionsDeletionsAndReplacements() {
+        assertThat(distance("дрель", "дрель"), equalTo(0));
+        assertThat(distance("дрель", "дрел"), equalTo(1));
+        assertThat(distance("дрель", "дрэль"), equalTo(1));
+        assertThat(distance("палатка", "плаатка"), equalTo(2));
+        assertThat(distance("", "пила"), equalTo(4));
+    }
+
+    @Test
+    void findReturnsTermsWithinDistance() {
+        List.of("дрель", "модель", "рель", "дуэль", "палатка", "плата", "дрель").forEach(tree::add);
+        assertThat(tree.size(), equalTo(6));
+        assertThat(find("дрел", 1).keySet(), containsInAnyOrder("дрель"));
+        assertThat(find("дрел", 2).keySet(), containsInAnyOrder("дрель", "рель"));
+        assertThat(find("дрел", 1).get("дрель"), equalTo(1));
+        assertThat(find("дрэль", 2).keySet(), containsInAnyOrder("дрель", "рель", "дуэль"));
+        assertThat(new ArrayList<>(find("экскаватор", 2).keySet()), empty());
+    }
+
+    @Test
+    void findMatchesBruteForceOnRandomWords() {
+        Random random = new Random(7);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('а' + random.nextInt(6)));
+            }
+            words.add(word.toString());
+            tree.add(word.toString());
+        }
+        for (int q = 0; q < 50; q++) {
+            String query = words.get(random.nextInt(words.size())).substring(1);
+            Map<String, Integer> expected = new HashMap<>();
+            for (String word : words) {
+                int distance = distance(query, word);
+                if (distance <= 2) {
+                    expected.put(word, distance);
+                }
+            }
+            assertThat(find(query, 2), equalTo(expected));
+        }
+    }
+}
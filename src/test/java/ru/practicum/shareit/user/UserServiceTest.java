@@ -7,6 +7,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.shareit.booking.calendar.BookingSummaryIndex;
 import ru.practicum.shareit.exception.EmailBusyException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
@@ -29,6 +30,8 @@ import static org.mockito.Mockito.*;
 public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private BookingSummaryIndex bookingSummaryIndex;
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -169,6 +172,7 @@ public class UserServiceTest {
     void deleteUserCorrectTest() {
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         userService.deleteUser(userId);
+        verify(bookingSummaryIndex, times(1)).invalidateUser(userId);
         verify(userRepository, times(1)).deleteById(userId);
     }
 